@@ -0,0 +1,91 @@
+package eu.catlabs.humanaity.human.application;
+
+import eu.catlabs.humanaity.HumanaityApplication;
+import eu.catlabs.humanaity.city.domain.City;
+import eu.catlabs.humanaity.city.infrastructure.persistence.CityRepository;
+import eu.catlabs.humanaity.human.api.dto.HumanInput;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generation of a city's humans: one {@code createHuman} per human, with its own city lookup and insert,
+ * against the bulk path inserting sequence-keyed humans in JDBC batches.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+public class HumanBulkInsertBenchmark {
+
+    @Param({"1000", "10000", "100000"})
+    private int population;
+
+    private ConfigurableApplicationContext context;
+    private HumanApplicationService humanApplicationService;
+    private CityRepository cityRepository;
+    private JdbcTemplate jdbcTemplate;
+    private List<HumanInput> inputs;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(HumanaityApplication.class)
+                .web(WebApplicationType.NONE)
+                // arguments rather than default properties, which application.properties would override
+                .run(
+                        "--spring.datasource.url=jdbc:h2:mem:insert-benchmark;DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--logging.level.root=WARN");
+        humanApplicationService = context.getBean(HumanApplicationService.class);
+        cityRepository = context.getBean(CityRepository.class);
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Setup(Level.Invocation)
+    public void newCity() {
+        jdbcTemplate.update("DELETE FROM human");
+        City city = new City();
+        city.setName("benchmark");
+        Long cityId = cityRepository.save(city).getId();
+        SplittableRandom random = new SplittableRandom(42);
+        inputs = new ArrayList<>(population);
+        for (int i = 0; i < population; i++) {
+            HumanInput input = new HumanInput();
+            input.setName("human-" + i);
+            input.setCityId(cityId);
+            input.setX(random.nextDouble());
+            input.setY(random.nextDouble());
+            input.setCreativity(random.nextDouble());
+            input.setIntellect(random.nextDouble());
+            input.setSociability(random.nextDouble());
+            input.setPracticality(random.nextDouble());
+            inputs.add(input);
+        }
+    }
+
+    @Benchmark
+    public int createHumanEach() {
+        for (HumanInput input : inputs) {
+            humanApplicationService.createHuman(input);
+        }
+        return inputs.size();
+    }
+
+    @Benchmark
+    public int createHumansBatched() {
+        return humanApplicationService.createHumans(inputs.get(0).getCityId(), inputs);
+    }
+}
@@ -0,0 +1,60 @@
+package eu.catlabs.humanaity.human.application;
+
+import eu.catlabs.humanaity.human.api.dto.HumanOutput;
+import eu.catlabs.humanaity.human.domain.Human;
+import eu.catlabs.humanaity.human.domain.Personality;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of mapping humans to {@link HumanOutput}: one tick's worth of moved humans and a whole city listing.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class HumanOutputBenchmark {
+
+    private static final int HUMANS_PER_TICK = 10;
+
+    @Param({"10", "1000", "100000", "1000000"})
+    private int population;
+
+    private List<Human> humans;
+    private List<Human> tickHumans;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SplittableRandom random = new SplittableRandom(42);
+        humans = new ArrayList<>(population);
+        for (long id = 1; id <= population; id++) {
+            Human human = new Human();
+            human.setId(id);
+            human.setName("Human " + id);
+            human.setX(random.nextDouble());
+            human.setY(random.nextDouble());
+            human.setCreativity(random.nextDouble());
+            human.setIntellect(random.nextDouble());
+            human.setSociability(random.nextDouble());
+            human.setPracticality(random.nextDouble());
+            human.setPersonality(Personality.values()[random.nextInt(Personality.values().length)]);
+            humans.add(human);
+        }
+        tickHumans = humans.subList(0, Math.min(HUMANS_PER_TICK, population));
+    }
+
+    @Benchmark
+    public List<HumanOutput> mapTick() {
+        return tickHumans.stream().map(HumanApplicationService::toHumanOutput).toList();
+    }
+
+    @Benchmark
+    public List<HumanOutput> mapCity() {
+        return humans.stream().map(HumanApplicationService::toHumanOutput).toList();
+    }
+}
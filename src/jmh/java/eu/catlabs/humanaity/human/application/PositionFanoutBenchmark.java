@@ -0,0 +1,99 @@
+package eu.catlabs.humanaity.human.application;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.catlabs.humanaity.human.api.dto.HumanOutput;
+import eu.catlabs.humanaity.human.domain.Human;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Cost of fanning one city frame out to its subscribers: serializing it once for all of them
+ * against mapping and serializing it again for every subscriber, as the per-subscriber streams did.
+ * Subscribers discard what they are sent and are written on the broadcasting thread, so only serialization,
+ * event building and queueing are measured.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class PositionFanoutBenchmark {
+
+    @Param({"1", "100", "1000"})
+    private int subscribers;
+
+    @Param({"10", "100"})
+    private int humansPerFrame;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final PositionFrameEncoder encoder = new PositionFrameEncoder(objectMapper);
+    private List<Human> moved;
+    private List<SseEmitter> emitters;
+    private CityPositionHub hub;
+
+    @Setup(Level.Trial)
+    public void setUp(Blackhole blackhole) throws Exception {
+        SplittableRandom random = new SplittableRandom(42);
+        moved = new ArrayList<>(humansPerFrame);
+        for (long id = 1; id <= humansPerFrame; id++) {
+            Human human = new Human();
+            human.setId(id);
+            human.setName("Human " + id);
+            human.setX(random.nextDouble());
+            human.setY(random.nextDouble());
+            moved.add(human);
+        }
+        hub = new CityPositionHub(1L, 100);
+        emitters = new ArrayList<>(subscribers);
+        for (int i = 0; i < subscribers; i++) {
+            SseEmitter emitter = new DiscardingEmitter(blackhole);
+            emitters.add(emitter);
+            hub.subscribe(new SsePositionSubscription(1L, PositionStreamFormat.FULL, emitter, null,
+                    16, SlowConsumerPolicy.LATEST, Runnable::run, Runnable::run), null, box -> List.of(), encoder);
+        }
+    }
+
+    @Benchmark
+    public void serializeOnce() {
+        PendingPositions positions = new PendingPositions();
+        for (Human human : moved) {
+            positions.put(human.getId(), human, human.getX(), human.getY(), human.isBusy());
+        }
+        hub.broadcast(positions, encoder);
+    }
+
+    @Benchmark
+    public void serializePerSubscriber() throws Exception {
+        for (SseEmitter emitter : emitters) {
+            List<HumanOutput> frame = moved.stream().map(HumanApplicationService::toHumanOutput).toList();
+            emitter.send(SseEmitter.event().data(objectMapper.writeValueAsBytes(frame), MediaType.APPLICATION_JSON));
+        }
+    }
+
+    private static final class DiscardingEmitter extends SseEmitter {
+
+        private final Blackhole blackhole;
+
+        private DiscardingEmitter(Blackhole blackhole) {
+            this.blackhole = blackhole;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) {
+            blackhole.consume(builder.build());
+        }
+
+        @Override
+        public void send(Set<DataWithMediaType> items) {
+            blackhole.consume(items);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package eu.catlabs.humanaity.human.infrastructure.persistence;
+
+import eu.catlabs.humanaity.HumanaityApplication;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCountCallbackHandler;
+
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-city human queries on 1M rows in H2, with the composite indexes on {@code (city_id, busy)} and
+ * {@code (city_id, id)} against the foreign key index alone. Runs the SQL of the repository queries through
+ * JDBC, so entity mapping does not hide the database's share; the query plans are printed on setup.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx3g")
+public class HumanQueryBenchmark {
+
+    private static final int ROWS = 1_000_000;
+    private static final int CITIES = 100;
+    private static final int PAGE_SIZE = 500;
+
+    /** {@code findByCityIdAndBusyTrue} */
+    private static final String BUSY_OF_CITY = "SELECT * FROM human WHERE city_id = ? AND busy = TRUE";
+    /** {@code findByCityIdOrderByIdAsc}, loading a city's world */
+    private static final String CITY_BY_ID = "SELECT * FROM human WHERE city_id = ? ORDER BY id";
+    /** {@code findPositionsByCityIdAfter}, one keyset page of the listing */
+    private static final String POSITION_PAGE = "SELECT id, x, y, busy FROM human WHERE city_id = ? AND id > ? "
+            + "ORDER BY city_id, id FETCH FIRST " + PAGE_SIZE + " ROWS ONLY";
+
+    @Param({"true", "false"})
+    private boolean indexed;
+
+    private ConfigurableApplicationContext context;
+    private JdbcTemplate jdbcTemplate;
+    private final SplittableRandom random = new SplittableRandom(42);
+    private long firstCityId;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(HumanaityApplication.class)
+                .web(WebApplicationType.NONE)
+                // arguments rather than default properties, which application.properties would override
+                .run(
+                        "--spring.datasource.url=jdbc:h2:mem:query-benchmark;DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--logging.level.root=WARN");
+        jdbcTemplate = context.getBean(JdbcTemplate.class);
+
+        jdbcTemplate.update("INSERT INTO city (name) SELECT 'city-' || X FROM SYSTEM_RANGE(1, " + CITIES + ")");
+        firstCityId = jdbcTemplate.queryForObject("SELECT MIN(id) FROM city", Long.class);
+        // humans interleaved across cities, as cities grow side by side; one in ten busy
+        jdbcTemplate.update("INSERT INTO human (id, busy, name, x, y, creativity, intellect, sociability, "
+                + "practicality, science_skill, culture_skill, social_skill, total_science_contributed, "
+                + "total_culture_contributed, total_social_contributed, city_id) "
+                + "SELECT X, MOD(X, 10) = 0, 'human-' || X, RAND(), RAND(), 0.5, 0.5, 0.5, 0.5, 0, 0, 0, 0, 0, 0, "
+                + firstCityId + " + MOD(X, " + CITIES + ") FROM SYSTEM_RANGE(1, " + ROWS + ")");
+        if (!indexed) {
+            jdbcTemplate.execute("DROP INDEX idx_human_city_busy");
+            jdbcTemplate.execute("DROP INDEX idx_human_city_id");
+        }
+        jdbcTemplate.execute("ANALYZE");
+        for (String query : List.of(BUSY_OF_CITY, CITY_BY_ID, POSITION_PAGE)) {
+            String plan = jdbcTemplate.queryForObject("EXPLAIN " + query.replace("?", "42"), String.class);
+            System.out.println("indexed=" + indexed + ": " + plan.substring(plan.indexOf("/*")).replaceAll("\\s+", " "));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    private long randomCity() {
+        return firstCityId + random.nextInt(CITIES);
+    }
+
+    private int count(String sql, Object... args) {
+        RowCountCallbackHandler rows = new RowCountCallbackHandler();
+        jdbcTemplate.query(sql, rows, args);
+        return rows.getRowCount();
+    }
+
+    @Benchmark
+    public int busyHumansOfCity() {
+        return count(BUSY_OF_CITY, randomCity());
+    }
+
+    @Benchmark
+    public int humansOfCityById() {
+        return count(CITY_BY_ID, randomCity());
+    }
+
+    @Benchmark
+    public int positionPageOfCity() {
+        return count(POSITION_PAGE, randomCity(), random.nextInt(ROWS));
+    }
+}
@@ -0,0 +1,116 @@
+package eu.catlabs.humanaity.simulation;
+
+import eu.catlabs.humanaity.human.domain.Human;
+import eu.catlabs.humanaity.simulation.domain.CitySimulator;
+import eu.catlabs.humanaity.simulation.domain.CityWorld;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Tick and collision query time of the slot-based world against the former entity shuffle and all-humans scan.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class CollisionBenchmark {
+
+    @Param({"100", "1000", "10000", "100000"})
+    private int population;
+
+    private final CitySimulator simulator = new CitySimulator();
+    private final int[] sampled = new int[10];
+    private Random random;
+    private CityWorld world;
+    private List<Human> humans;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        random = new Random(42);
+        humans = new ArrayList<>(population);
+        for (long id = 1; id <= population; id++) {
+            Human human = new Human();
+            human.setId(id);
+            human.setX(random.nextDouble());
+            human.setY(random.nextDouble());
+            humans.add(human);
+        }
+        world = new CityWorld(1L, humans);
+        humans = world.snapshot().stream().map(this::copy).toList();
+    }
+
+    @Benchmark
+    public int gridTick() {
+        synchronized (world) {
+            return simulator.tick(world, random, sampled, sampled.length);
+        }
+    }
+
+    @Benchmark
+    public int gridCollisionQuery() {
+        synchronized (world) {
+            return world.findCollision(random.nextInt(population));
+        }
+    }
+
+    @Benchmark
+    public Optional<Human> linearCollisionQuery() {
+        Human human = humans.get(random.nextInt(population));
+        for (Human other : humans) {
+            if (!human.getId().equals(other.getId()) && distance(human, other) < CityWorld.COLLISION_DISTANCE) {
+                return Optional.of(other);
+            }
+        }
+        return Optional.empty();
+    }
+
+    @Benchmark
+    public List<Human> linearScanTick() {
+        List<Human> shuffledHumans = new ArrayList<>(humans);
+        Collections.shuffle(shuffledHumans, random);
+        List<Human> randomHumans = shuffledHumans.stream().limit(10).toList();
+        for (Human human : randomHumans) {
+            if (!human.isBusy() && !collidesLinear(human, humans)) {
+                human.setX(Math.max(0, Math.min(1, human.getX() + (random.nextDouble() - 0.5) * 0.1)));
+                human.setY(Math.max(0, Math.min(1, human.getY() + (random.nextDouble() - 0.5) * 0.1)));
+            }
+        }
+        return randomHumans;
+    }
+
+    private boolean collidesLinear(Human human, List<Human> allHumans) {
+        for (Human other : allHumans) {
+            if (human.getId().equals(other.getId())) {
+                continue;
+            }
+            if (distance(human, other) < CityWorld.COLLISION_DISTANCE) {
+                human.setBusy(true);
+                other.setBusy(true);
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Human copy(Human human) {
+        Human copy = new Human();
+        copy.setId(human.getId());
+        copy.setX(human.getX());
+        copy.setY(human.getY());
+        return copy;
+    }
+
+    private static double distance(Human human1, Human human2) {
+        return Math.sqrt(
+                Math.pow(human1.getX() - human2.getX(), 2) +
+                        Math.pow(human1.getY() - human2.getY(), 2)
+        );
+    }
+}
@@ -0,0 +1,96 @@
+package eu.catlabs.humanaity.simulation;
+
+import eu.catlabs.humanaity.HumanaityApplication;
+import eu.catlabs.humanaity.city.domain.City;
+import eu.catlabs.humanaity.city.infrastructure.persistence.CityRepository;
+import eu.catlabs.humanaity.human.domain.Human;
+import eu.catlabs.humanaity.human.infrastructure.persistence.HumanRepository;
+import eu.catlabs.humanaity.simulation.domain.CityWorld;
+import eu.catlabs.humanaity.simulation.domain.PositionBatch;
+import eu.catlabs.humanaity.simulation.infrastructure.persistence.HumanPositionRepository;
+import org.openjdk.jmh.annotations.*;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Flush of every human of a city: full-entity saveAll against the batched x/y/busy JDBC update.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+public class PositionFlushBenchmark {
+
+    @Param({"100", "1000", "10000"})
+    private int rows;
+
+    private ConfigurableApplicationContext context;
+    private HumanRepository humanRepository;
+    private HumanPositionRepository humanPositionRepository;
+    private final PositionBatch batch = new PositionBatch();
+    private final Random random = new Random(42);
+    private CityWorld world;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        context = new SpringApplicationBuilder(HumanaityApplication.class)
+                .web(WebApplicationType.NONE)
+                // arguments rather than default properties, which application.properties would override
+                .run(
+                        "--spring.datasource.url=jdbc:h2:mem:flush-benchmark;DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--logging.level.root=WARN");
+        humanRepository = context.getBean(HumanRepository.class);
+        humanPositionRepository = context.getBean(HumanPositionRepository.class);
+
+        City city = new City();
+        city.setName("benchmark");
+        city = context.getBean(CityRepository.class).save(city);
+        List<Human> humans = new ArrayList<>(rows);
+        for (int i = 0; i < rows; i++) {
+            Human human = new Human();
+            human.setName("human-" + i);
+            human.setX(random.nextDouble());
+            human.setY(random.nextDouble());
+            human.setCity(city);
+            humans.add(human);
+        }
+        world = new CityWorld(city.getId(), humanRepository.saveAll(humans));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    @Setup(Level.Invocation)
+    public void moveEveryone() {
+        synchronized (world) {
+            for (int slot = 0; slot < world.size(); slot++) {
+                world.move(slot, random.nextDouble(), random.nextDouble());
+            }
+        }
+    }
+
+    @Benchmark
+    public int entitySaveAll() {
+        List<Human> dirtyHumans = world.drainDirty();
+        humanRepository.saveAll(dirtyHumans);
+        return dirtyHumans.size();
+    }
+
+    @Benchmark
+    public int jdbcBatchUpdate() {
+        batch.clear();
+        world.drainDirty(batch);
+        humanPositionRepository.updatePositions(batch);
+        return batch.size();
+    }
+}
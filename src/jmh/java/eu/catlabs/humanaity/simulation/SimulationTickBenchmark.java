@@ -0,0 +1,101 @@
+package eu.catlabs.humanaity.simulation;
+
+import eu.catlabs.humanaity.human.domain.Human;
+import eu.catlabs.humanaity.simulation.domain.CitySimulator;
+import eu.catlabs.humanaity.simulation.domain.CityWorld;
+import eu.catlabs.humanaity.simulation.domain.InteractionBatch;
+import eu.catlabs.humanaity.simulation.domain.PositionBatch;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulation hot path per city size: a full tick as run by the scheduler, a single collision query,
+ * a single position update and draining the moved humans into a flush batch.
+ * Run with {@code -prof gc} (the profile default) to get allocation rates next to the timings.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class SimulationTickBenchmark {
+
+    @Param({"10", "1000", "100000", "1000000"})
+    private int population;
+
+    @Param({"10", "1000"})
+    private int humansPerTick;
+
+    private final CitySimulator simulator = new CitySimulator();
+    private final PositionBatch batch = new PositionBatch();
+    private final InteractionBatch interactions = new InteractionBatch();
+    private SplittableRandom random;
+    private CityWorld world;
+    private int[] sampled;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        random = new SplittableRandom(42);
+        List<Human> humans = new ArrayList<>(population);
+        for (long id = 1; id <= population; id++) {
+            Human human = new Human();
+            human.setId(id);
+            human.setX(random.nextDouble());
+            human.setY(random.nextDouble());
+            humans.add(human);
+        }
+        world = new CityWorld(1L, humans);
+        sampled = new int[humansPerTick];
+    }
+
+    @Setup(Level.Iteration)
+    public void drainInteractions() {
+        interactions.clear();
+        world.getInteractions().drainFinished(interactions);
+    }
+
+    /**
+     * Equivalent of one {@code simulateCity} run, without publishing.
+     */
+    @Benchmark
+    public int tick() {
+        synchronized (world) {
+            return simulator.tick(world, random, sampled, humansPerTick);
+        }
+    }
+
+    @Benchmark
+    public int collisionQuery() {
+        synchronized (world) {
+            return world.findCollision(random.nextInt(world.size()));
+        }
+    }
+
+    @Benchmark
+    public int positionUpdate() {
+        synchronized (world) {
+            int slot = random.nextInt(world.size());
+            world.move(slot, random.nextDouble(), random.nextDouble());
+            return slot;
+        }
+    }
+
+    /**
+     * Tick followed by collecting the rows and interactions a write-behind flush would send.
+     */
+    @Benchmark
+    public int tickAndDrain() {
+        synchronized (world) {
+            simulator.tick(world, random, sampled, humansPerTick);
+            batch.clear();
+            world.drainDirty(batch);
+        }
+        interactions.clear();
+        world.getInteractions().drainFinished(interactions);
+        return batch.size() + interactions.size();
+    }
+}
@@ -0,0 +1,32 @@
+package eu.catlabs.humanaity.auth.domain;
+
+import java.util.Set;
+
+/**
+ * Identity of a user as read by authenticated requests, without the password hash. Immutable, so one
+ * instance can be cached and shared between requests, unlike the entity.
+ */
+public class UserSummary {
+
+    private final Long id;
+    private final String email;
+    private final Set<String> roles;
+
+    public UserSummary(User user) {
+        this.id = user.getId();
+        this.email = user.getEmail();
+        this.roles = Set.copyOf(user.getRoles());
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getEmail() {
+        return email;
+    }
+
+    public Set<String> getRoles() {
+        return roles;
+    }
+}
@@ -1,13 +1,40 @@
 package eu.catlabs.humanaity.auth.infrastructure.persistence;
 
 import eu.catlabs.humanaity.auth.domain.User;
+import eu.catlabs.humanaity.auth.domain.UserSummary;
+import eu.catlabs.humanaity.infrastructure.config.CacheConfig;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
 
+/**
+ * Summaries of users by email are cached, without the password hash; entities are always read from the
+ * persistence context of the caller. Saves evict the summary once committed; deletes clear the user and
+ * city caches, since deleting a user deletes their cities.
+ */
 @Repository
 public interface UserRepository extends JpaRepository<User, Long> {
     Optional<User> findByEmail(String email);
+
+    @Cacheable(cacheNames = CacheConfig.USERS, unless = "#result == null")
+    default Optional<UserSummary> findSummaryByEmail(String email) {
+        return findByEmail(email).map(UserSummary::new);
+    }
+
     boolean existsByEmail(String email);
+
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.USERS, key = "#p0.email")
+    <S extends User> S save(S user);
+
+    @Override
+    @CacheEvict(cacheNames = {CacheConfig.USERS, CacheConfig.CITIES}, allEntries = true)
+    void deleteById(Long id);
+
+    @Override
+    @CacheEvict(cacheNames = {CacheConfig.USERS, CacheConfig.CITIES}, allEntries = true)
+    void delete(User user);
 }
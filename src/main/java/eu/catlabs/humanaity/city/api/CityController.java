@@ -4,7 +4,7 @@ import eu.catlabs.humanaity.city.api.dto.CityInput;
 import eu.catlabs.humanaity.city.api.dto.CityOutput;
 import eu.catlabs.humanaity.city.application.CityApplicationService;
 import eu.catlabs.humanaity.city.domain.City;
-import eu.catlabs.humanaity.auth.domain.User;
+import eu.catlabs.humanaity.auth.domain.UserSummary;
 import eu.catlabs.humanaity.auth.infrastructure.persistence.UserRepository;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
@@ -49,10 +49,10 @@ public class CityController {
         }
 
         String email = authentication.getName();
-        User currentUser = userRepository.findByEmail(email)
+        UserSummary currentUser = userRepository.findSummaryByEmail(email)
                 .orElseThrow(() -> new IllegalStateException("User not found: " + email));
 
-        List<City> cities = cityApplicationService.getCitiesForUser(currentUser);
+        List<City> cities = cityApplicationService.getCitiesForUser(currentUser.getId());
         List<CityOutput> outputs = cities.stream()
                 .map(this::toCityOutput)
                 .collect(Collectors.toList());
@@ -73,7 +73,7 @@ public class CityController {
     @Operation(summary = "Get city by ID")
     public ResponseEntity<CityOutput> getCityById(@PathVariable String id) {
         return cityApplicationService.getCityById(id)
-                .map(this::toCityOutput)
+                .map(city -> new CityOutput(city.getId(), city.getName(), null))
                 .map(ResponseEntity::ok)
                 .orElse(ResponseEntity.notFound().build());
     }
@@ -86,10 +86,10 @@ public class CityController {
         }
 
         String email = authentication.getName();
-        User currentUser = userRepository.findByEmail(email)
+        UserSummary currentUser = userRepository.findSummaryByEmail(email)
                 .orElseThrow(() -> new IllegalStateException("User not found: " + email));
 
-        City city = cityApplicationService.createCityForUser(input, currentUser);
+        City city = cityApplicationService.createCityForUser(input, currentUser.getId());
         return ResponseEntity.status(HttpStatus.CREATED).body(toCityOutput(city));
     }
 
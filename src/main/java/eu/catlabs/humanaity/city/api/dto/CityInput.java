@@ -1,5 +1,8 @@
 package eu.catlabs.humanaity.city.api.dto;
 
+import io.swagger.v3.oas.annotations.media.Schema;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.Size;
 import lombok.AllArgsConstructor;
@@ -13,4 +16,9 @@ public class CityInput {
     @NotBlank(message = "City name is required")
     @Size(min = 1, max = 100, message = "City name must be between 1 and 100 characters")
     private String name;
+
+    @Schema(description = "Humans to generate locally; without it a handful are generated by the AI service")
+    @Min(value = 1, message = "Population must be at least 1")
+    @Max(value = 100000, message = "Population must not exceed 100000")
+    private Integer population;
 }
@@ -2,6 +2,7 @@ package eu.catlabs.humanaity.city.application;
 
 import eu.catlabs.humanaity.city.api.dto.CityInput;
 import eu.catlabs.humanaity.city.domain.City;
+import eu.catlabs.humanaity.city.domain.CitySummary;
 import eu.catlabs.humanaity.auth.domain.User;
 import eu.catlabs.humanaity.city.infrastructure.persistence.CityRepository;
 import eu.catlabs.humanaity.human.application.HumanGenerationApplicationService;
@@ -30,8 +31,8 @@ public class CityApplicationService {
         return cityRepository.findAll();
     }
 
-    public Optional<City> getCityById(String id) {
-        return cityRepository.findById(Long.parseLong(id));
+    public Optional<CitySummary> getCityById(String id) {
+        return cityRepository.findSummaryById(Long.parseLong(id));
     }
 
     public List<City> getCitiesByName(String name) {
@@ -39,14 +40,14 @@ public class CityApplicationService {
     }
 
     @Transactional
-    public City createCityForUser(CityInput input, User owner) {
-        if (owner == null) {
+    public City createCityForUser(CityInput input, Long ownerId) {
+        if (ownerId == null) {
             throw new IllegalArgumentException("Owner cannot be null");
         }
         
         City city = new City();
         city.setName(input.getName());
-        city.setOwner(owner);
+        city.setOwner(entityManager.getReference(User.class, ownerId));
         
         City savedCity = cityRepository.save(city);
         
@@ -54,11 +55,15 @@ public class CityApplicationService {
         entityManager.flush();
         
         // Generate humans for the city
-        humanGenerationService.generateHumansForCity(savedCity);
+        humanGenerationService.generateHumansForCity(savedCity, input.getPopulation());
         
         return savedCity;
     }
 
+    /**
+     * Saves the renamed city through the repository, which evicts its cached summary once committed.
+     */
+    @Transactional
     public City updateCity(String id, CityInput input) {
         Optional<City> existingCity = cityRepository.findById(Long.parseLong(id));
 
@@ -75,7 +80,7 @@ public class CityApplicationService {
         cityRepository.deleteById(id);
     }
 
-    public List<City> getCitiesForUser(User user) {
-        return cityRepository.findByOwner(user);
+    public List<City> getCitiesForUser(Long userId) {
+        return cityRepository.findByOwnerId(userId);
     }
 }
@@ -0,0 +1,30 @@
+package eu.catlabs.humanaity.city.domain;
+
+/**
+ * Identity of a city as read by city-scoped requests. Immutable, so one instance can be cached and shared
+ * between requests, unlike the entity.
+ */
+public class CitySummary {
+
+    private final Long id;
+    private final String name;
+    private final Long ownerId;
+
+    public CitySummary(Long id, String name, Long ownerId) {
+        this.id = id;
+        this.name = name;
+        this.ownerId = ownerId;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public Long getOwnerId() {
+        return ownerId;
+    }
+}
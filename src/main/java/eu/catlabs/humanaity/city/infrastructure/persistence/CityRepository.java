@@ -1,14 +1,41 @@
 package eu.catlabs.humanaity.city.infrastructure.persistence;
 
 import eu.catlabs.humanaity.city.domain.City;
-import eu.catlabs.humanaity.auth.domain.User;
+import eu.catlabs.humanaity.city.domain.CitySummary;
+import eu.catlabs.humanaity.infrastructure.config.CacheConfig;
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
+import java.util.Optional;
 
+/**
+ * Summaries of cities by id are cached; entities are always read from the persistence context of the
+ * caller. Saves and deletes evict the summary once committed.
+ */
 @Repository
 public interface CityRepository extends JpaRepository<City, Long> {
     List<City> findByNameContainingIgnoreCase(String name);
-    List<City> findByOwner(User owner);
+    List<City> findByOwnerId(Long ownerId);
+
+    @Cacheable(cacheNames = CacheConfig.CITIES, unless = "#result == null")
+    @Query("select new eu.catlabs.humanaity.city.domain.CitySummary(c.id, c.name, o.id) "
+            + "from City c left join c.owner o where c.id = :id")
+    Optional<CitySummary> findSummaryById(@Param("id") Long id);
+
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.CITIES, key = "#result.id")
+    <S extends City> S save(S city);
+
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.CITIES)
+    void deleteById(Long id);
+
+    @Override
+    @CacheEvict(cacheNames = CacheConfig.CITIES, key = "#p0.id")
+    void delete(City city);
 }
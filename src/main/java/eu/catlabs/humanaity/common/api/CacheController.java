@@ -0,0 +1,48 @@
+package eu.catlabs.humanaity.common.api;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import eu.catlabs.humanaity.common.api.dto.CacheMetricsOutput;
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import org.springframework.cache.CacheManager;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/caches")
+@Tag(name = "Caches", description = "Lookup cache statistics")
+@SecurityRequirement(name = "bearer-jwt")
+public class CacheController {
+    private final CacheManager cacheManager;
+
+    public CacheController(CacheManager cacheManager) {
+        this.cacheManager = cacheManager;
+    }
+
+    @GetMapping("/metrics")
+    @Operation(summary = "Hits, misses and size of each cache on this server")
+    public ResponseEntity<List<CacheMetricsOutput>> getCacheMetrics() {
+        List<CacheMetricsOutput> outputs = cacheManager.getCacheNames().stream()
+                .map(name -> toCacheMetricsOutput(name, (Cache<?, ?>) cacheManager.getCache(name).getNativeCache()))
+                .toList();
+        return ResponseEntity.ok(outputs);
+    }
+
+    private CacheMetricsOutput toCacheMetricsOutput(String name, Cache<?, ?> cache) {
+        CacheStats stats = cache.stats();
+        CacheMetricsOutput output = new CacheMetricsOutput();
+        output.setName(name);
+        output.setSize(cache.estimatedSize());
+        output.setHits(stats.hitCount());
+        output.setMisses(stats.missCount());
+        output.setHitRate(stats.hitRate());
+        output.setEvictions(stats.evictionCount());
+        return output;
+    }
+}
@@ -0,0 +1,19 @@
+package eu.catlabs.humanaity.common.api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class CacheMetricsOutput {
+    private String name;
+    @Schema(description = "Entries currently cached, approximately")
+    private long size;
+    private long hits;
+    private long misses;
+    @Schema(description = "Share of lookups answered from the cache, 1 when there were none")
+    private double hitRate;
+    @Schema(description = "Entries removed for the size bound or expiry, not counting explicit evictions")
+    private long evictions;
+}
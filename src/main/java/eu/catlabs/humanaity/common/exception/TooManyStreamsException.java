@@ -0,0 +1,11 @@
+package eu.catlabs.humanaity.common.exception;
+
+/**
+ * Raised when opening a stream would exceed a per-user or per-node cap.
+ */
+public class TooManyStreamsException extends BusinessException {
+
+    public TooManyStreamsException(String message) {
+        super(message);
+    }
+}
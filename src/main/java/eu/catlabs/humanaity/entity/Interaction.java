@@ -8,6 +8,8 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+import java.time.LocalDateTime;
+
 @Entity
 @Data
 @NoArgsConstructor
@@ -16,4 +18,12 @@ public class Interaction {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
+
+    // Plain ids rather than associations: finished interactions outlive their humans
+    private Long cityId;
+    private Long firstHumanId;
+    private Long secondHumanId;
+
+    private LocalDateTime startedAt;
+    private LocalDateTime endedAt;
 }
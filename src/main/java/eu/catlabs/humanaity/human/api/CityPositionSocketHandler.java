@@ -0,0 +1,95 @@
+package eu.catlabs.humanaity.human.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.catlabs.humanaity.common.exception.TooManyStreamsException;
+import eu.catlabs.humanaity.human.api.dto.ViewportInput;
+import eu.catlabs.humanaity.human.application.HumanApplicationService;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MultiValueMap;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.TextWebSocketHandler;
+import org.springframework.web.util.UriComponents;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * WebSocket variant of the city position stream, at {@code /api/humans/city/{cityId}/positions/socket}.
+ * Takes the same {@code format}, {@code lastEventId}, {@code hz} and viewport query parameters as the
+ * server-sent events; text messages from the client hold a new viewport, or an empty object for the whole city.
+ * A session over the stream caps is closed with status 1013.
+ */
+@Component
+public class CityPositionSocketHandler extends TextWebSocketHandler {
+
+    public static final String PATH = "/api/humans/city/*/positions/socket";
+
+    private static final Logger logger = LoggerFactory.getLogger(CityPositionSocketHandler.class);
+    private static final String CITY_ID = "cityId";
+    private static final String SUBSCRIPTION_ID = "subscriptionId";
+
+    private final HumanApplicationService humanApplicationService;
+    private final ObjectMapper objectMapper;
+
+    public CityPositionSocketHandler(HumanApplicationService humanApplicationService, ObjectMapper objectMapper) {
+        this.humanApplicationService = humanApplicationService;
+        this.objectMapper = objectMapper;
+    }
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) throws IOException {
+        try {
+            UriComponents uri = UriComponentsBuilder.fromUri(session.getUri()).build();
+            List<String> segments = uri.getPathSegments();
+            Long cityId = Long.parseLong(segments.get(segments.size() - 3));
+            MultiValueMap<String, String> params = uri.getQueryParams();
+            String lastEventId = params.getFirst("lastEventId");
+            ViewportInput viewport = new ViewportInput(doubleParam(params, "minX"), doubleParam(params, "minY"),
+                    doubleParam(params, "maxX"), doubleParam(params, "maxY"));
+            session.getAttributes().put(CITY_ID, cityId);
+            String username = session.getPrincipal() != null ? session.getPrincipal().getName() : null;
+            session.getAttributes().put(SUBSCRIPTION_ID, humanApplicationService.openPositionSocket(cityId, username,
+                    session, params.getFirst("format"), lastEventId, viewport,
+                    doubleParam(params, "hz")));
+        } catch (IllegalArgumentException e) {
+            session.close(CloseStatus.BAD_DATA.withReason(e.getMessage()));
+        } catch (TooManyStreamsException e) {
+            session.close(CloseStatus.SERVICE_OVERLOAD.withReason(e.getMessage()));
+        }
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) throws IOException {
+        Long cityId = (Long) session.getAttributes().get(CITY_ID);
+        String subscriptionId = (String) session.getAttributes().get(SUBSCRIPTION_ID);
+        try {
+            ViewportInput viewport = objectMapper.readValue(message.getPayload(), ViewportInput.class);
+            humanApplicationService.changeStreamViewport(cityId, subscriptionId, viewport);
+        } catch (IllegalArgumentException | IOException e) {
+            logger.debug("Ignoring viewport of socket {}: {}", session.getId(), e.getMessage());
+        }
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) {
+        logger.debug("Transport error on socket {}: {}", session.getId(), exception.getMessage());
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        String subscriptionId = (String) session.getAttributes().get(SUBSCRIPTION_ID);
+        if (subscriptionId != null) {
+            humanApplicationService.closePositionSocket(subscriptionId);
+        }
+    }
+
+    private static Double doubleParam(MultiValueMap<String, String> params, String name) {
+        String value = params.getFirst(name);
+        return value != null ? Double.valueOf(value) : null;
+    }
+}
@@ -2,22 +2,45 @@ package eu.catlabs.humanaity.human.api;
 
 import eu.catlabs.humanaity.human.api.dto.HumanInput;
 import eu.catlabs.humanaity.human.api.dto.HumanOutput;
+import eu.catlabs.humanaity.human.api.dto.HumanPositionOutput;
+import eu.catlabs.humanaity.human.api.dto.PositionStreamConnectionOutput;
+import eu.catlabs.humanaity.human.api.dto.PositionStreamMetricsOutput;
+import eu.catlabs.humanaity.human.api.dto.ViewportInput;
 import eu.catlabs.humanaity.human.application.HumanApplicationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import jakarta.validation.Valid;
+import org.springframework.data.domain.Slice;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.security.core.Authentication;
+import org.springframework.util.StreamUtils;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import org.springframework.web.servlet.support.ServletUriComponentsBuilder;
+import reactor.core.publisher.Flux;
 
 import java.util.List;
+import java.util.Locale;
 import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.function.Function;
+import java.util.zip.GZIPOutputStream;
 
 @RestController
 @RequestMapping("/api/humans")
 @Tag(name = "Humans", description = "Human management API")
 public class HumanController {
 
+    private static final String EXPORT_SLOT = HumanController.class.getName() + ".exportSlot";
+
     private final HumanApplicationService humanApplicationService;
 
     public HumanController(HumanApplicationService humanApplicationService) {
@@ -33,10 +56,141 @@ public class HumanController {
     }
 
     @GetMapping("/city/{cityId}")
-    @Operation(summary = "Get all humans in a city")
-    public ResponseEntity<List<HumanOutput>> getHumansByCity(@PathVariable String cityId) {
-        List<HumanOutput> humans = humanApplicationService.getHumansByCityId(cityId);
-        return ResponseEntity.ok(humans);
+    @Operation(summary = "Get all humans in a city",
+            description = "Without parameters, every human of the city. With after or limit, one page of humans by "
+                    + "ascending id starting after the id given in after, with a Link header to the next page while "
+                    + "there is one.")
+    public ResponseEntity<List<HumanOutput>> getHumansByCity(@PathVariable String cityId,
+                                                             @RequestParam(required = false) Long after,
+                                                             @RequestParam(required = false) Integer limit) {
+        if (after == null && limit == null) {
+            return ResponseEntity.ok(humanApplicationService.getHumansByCityId(cityId));
+        }
+        return toPage(humanApplicationService.getHumanPage(Long.parseLong(cityId), after, limit), HumanOutput::getId);
+    }
+
+    @GetMapping("/city/{cityId}/positions/page")
+    @Operation(summary = "Get one page of the positions of the humans in a city",
+            description = "id, x, y and busy of the humans by ascending id, starting after the id given in after, "
+                    + "with a Link header to the next page while there is one")
+    public ResponseEntity<List<HumanPositionOutput>> getHumanPositionsByCity(@PathVariable Long cityId,
+                                                                             @RequestParam(required = false) Long after,
+                                                                             @RequestParam(required = false) Integer limit) {
+        return toPage(humanApplicationService.getHumanPositionPage(cityId, after, limit), HumanPositionOutput::getId);
+    }
+
+    @GetMapping(value = "/city/{cityId}/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @Operation(summary = "Stream all humans in a city as newline-delimited JSON",
+            description = "Humans are read as the client consumes them, without holding a thread while it waits")
+    public Flux<HumanOutput> streamHumansByCity(@PathVariable Long cityId) {
+        return humanApplicationService.streamHumansByCityId(cityId);
+    }
+
+    @GetMapping(value = "/city/{cityId}/export", produces = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Export all humans in a city as one JSON array",
+            description = "Rows are written a page at a time as they are read, gzip-compressed when the client "
+                    + "accepts it, so the response starts before the last page is read and memory does not grow "
+                    + "with the city. Too many exports running on the server answer 429.")
+    public ResponseEntity<StreamingResponseBody> exportHumansByCity(
+            @PathVariable Long cityId,
+            @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+            NativeWebRequest request) {
+        boolean gzip = acceptsGzip(acceptEncoding);
+        Runnable releaseExport = humanApplicationService.reserveExport();
+        try {
+            WebAsyncUtils.getAsyncManager(request).registerCallableInterceptor(EXPORT_SLOT,
+                    new CallableProcessingInterceptor() {
+                        @Override
+                        public <T> void afterCompletion(NativeWebRequest completed, Callable<T> task) {
+                            releaseExport.run();
+                        }
+                    });
+            ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+            if (gzip) {
+                response.header(HttpHeaders.CONTENT_ENCODING, "gzip");
+            }
+            return response.body(out -> {
+                try {
+                    if (!gzip) {
+                        humanApplicationService.exportHumansByCityId(cityId, out);
+                        return;
+                    }
+                    try (GZIPOutputStream compressed = new GZIPOutputStream(StreamUtils.nonClosing(out), 8192, true)) {
+                        humanApplicationService.exportHumansByCityId(cityId, compressed);
+                    }
+                } finally {
+                    releaseExport.run();
+                }
+            });
+        } catch (RuntimeException e) {
+            releaseExport.run();
+            throw e;
+        }
+    }
+
+    @GetMapping(value = "/city/{cityId}/positions", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream position updates of the humans in a city",
+            description = "format: full (default), delta, quantized or binary. Reconnecting with Last-Event-ID "
+                    + "replays the missed frames, or sends a snapshot when they are no longer available. "
+                    + "minX, minY, maxX and maxY restrict the stream to a viewport. hz caps the frame rate, "
+                    + "merging the skipped frames into the next one. Quiet streams get a heartbeat comment; "
+                    + "too many open streams for the user or the server answer 429.")
+    public SseEmitter streamCityPositions(@PathVariable Long cityId,
+                                          @RequestParam(required = false) String format,
+                                          @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                                          ViewportInput viewport,
+                                          @RequestParam(required = false) Double hz,
+                                          Authentication authentication) {
+        return humanApplicationService.getCityPositionsStream(cityId, username(authentication), format, lastEventId,
+                viewport, hz);
+    }
+
+    @GetMapping("/city/{cityId}/positions/connections")
+    @Operation(summary = "Metrics of the open position streams of a city",
+            description = "Outbound queue depth and dropped frames per connection")
+    public ResponseEntity<List<PositionStreamConnectionOutput>> getPositionStreamConnections(@PathVariable Long cityId) {
+        return ResponseEntity.ok(humanApplicationService.getPositionStreamConnections(cityId));
+    }
+
+    @GetMapping("/positions/metrics")
+    @Operation(summary = "Open position streams of this server",
+            description = "Streams per city against the server and per-user caps, with the streams reaped "
+                    + "as idle and rejected by the caps")
+    public ResponseEntity<PositionStreamMetricsOutput> getPositionStreamMetrics() {
+        return ResponseEntity.ok(humanApplicationService.getPositionStreamMetrics());
+    }
+
+    @GetMapping(value = "/city/{cityId}/positions/reactive", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream position updates of the humans in a city, driven by the client's demand",
+            description = "Same events and parameters as /positions. Frames the client cannot take yet wait in a "
+                    + "bounded queue, and an idle connection holds no thread.")
+    public Flux<ServerSentEvent<String>> streamCityPositionsReactive(@PathVariable Long cityId,
+                                                                     @RequestParam(required = false) String format,
+                                                                     @RequestHeader(value = "Last-Event-ID", required = false) String lastEventId,
+                                                                     ViewportInput viewport,
+                                                                     @RequestParam(required = false) Double hz,
+                                                                     Authentication authentication) {
+        return humanApplicationService.getCityPositionsFlux(cityId, username(authentication), format, lastEventId,
+                viewport, hz);
+    }
+
+    @PutMapping("/city/{cityId}/positions/{subscriptionId}/viewport")
+    @Operation(summary = "Move the viewport of an open position stream",
+            description = "The subscription id is the data of the stream's first event")
+    public ResponseEntity<Void> updateStreamViewport(@PathVariable Long cityId,
+                                                     @PathVariable String subscriptionId,
+                                                     @RequestBody ViewportInput viewport) {
+        boolean updated = humanApplicationService.changeStreamViewport(cityId, subscriptionId, viewport);
+        return updated ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
+    }
+
+    @DeleteMapping("/city/{cityId}/positions/{subscriptionId}/viewport")
+    @Operation(summary = "Stream the whole city again on an open position stream")
+    public ResponseEntity<Void> clearStreamViewport(@PathVariable Long cityId, @PathVariable String subscriptionId) {
+        boolean updated = humanApplicationService.changeStreamViewport(cityId, subscriptionId, null);
+        return updated ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
     }
 
     @PostMapping
@@ -63,4 +217,56 @@ public class HumanController {
         boolean deleted = humanApplicationService.deleteHuman(id);
         return deleted ? ResponseEntity.noContent().build() : ResponseEntity.notFound().build();
     }
+
+    private static <T> ResponseEntity<List<T>> toPage(Slice<T> page, Function<T, Long> id) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.hasNext()) {
+            Long last = id.apply(page.getContent().get(page.getNumberOfElements() - 1));
+            String next = ServletUriComponentsBuilder.fromCurrentRequest()
+                    .replaceQueryParam("after", last)
+                    .replaceQueryParam("limit", page.getSize())
+                    .toUriString();
+            response.header(HttpHeaders.LINK, "<" + next + ">; rel=\"next\"");
+        }
+        return response.body(page.getContent());
+    }
+
+    /**
+     * Whether an {@code Accept-Encoding} header allows gzip: codings are matched case-insensitively, a
+     * {@code gzip} entry takes precedence over {@code *}, and a coding with {@code q=0} or an unreadable
+     * weight is refused.
+     */
+    static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Double gzip = null;
+        Double any = null;
+        for (String entry : acceptEncoding.split(",")) {
+            String[] parts = entry.split(";");
+            String coding = parts[0].trim().toLowerCase(Locale.ROOT);
+            double weight = 1.0;
+            for (int i = 1; i < parts.length; i++) {
+                String parameter = parts[i].trim().toLowerCase(Locale.ROOT);
+                if (parameter.startsWith("q=")) {
+                    try {
+                        weight = Double.parseDouble(parameter.substring(2).trim());
+                    } catch (NumberFormatException e) {
+                        weight = 0.0;
+                    }
+                }
+            }
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                gzip = weight;
+            } else if (coding.equals("*")) {
+                any = weight;
+            }
+        }
+        Double weight = gzip != null ? gzip : any;
+        return weight != null && weight > 0;
+    }
+
+    private static String username(Authentication authentication) {
+        return authentication != null && authentication.isAuthenticated() ? authentication.getName() : null;
+    }
 }
@@ -2,11 +2,15 @@ package eu.catlabs.humanaity.human.api.dto;
 
 import eu.catlabs.humanaity.human.domain.Personality;
 import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
 import lombok.Getter;
+import lombok.NoArgsConstructor;
 import lombok.Setter;
 
 @Getter
 @Setter
+@NoArgsConstructor
+@AllArgsConstructor
 public class HumanOutput {
     @Schema(requiredMode = Schema.RequiredMode.REQUIRED)
     private Long id;
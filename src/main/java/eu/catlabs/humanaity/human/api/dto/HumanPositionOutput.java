@@ -0,0 +1,22 @@
+package eu.catlabs.humanaity.human.api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class HumanPositionOutput {
+    @Schema(requiredMode = Schema.RequiredMode.REQUIRED)
+    private Long id;
+    @Schema(requiredMode = Schema.RequiredMode.REQUIRED)
+    private Double x;
+    @Schema(requiredMode = Schema.RequiredMode.REQUIRED)
+    private Double y;
+    @Schema(name = "busy", requiredMode = Schema.RequiredMode.REQUIRED)
+    private boolean isBusy;
+}
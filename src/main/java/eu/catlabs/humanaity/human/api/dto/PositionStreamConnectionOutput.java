@@ -0,0 +1,26 @@
+package eu.catlabs.humanaity.human.api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class PositionStreamConnectionOutput {
+    @Schema(requiredMode = Schema.RequiredMode.REQUIRED)
+    private String subscriptionId;
+    @Schema(description = "sse or websocket", requiredMode = Schema.RequiredMode.REQUIRED)
+    private String transport;
+    @Schema(requiredMode = Schema.RequiredMode.REQUIRED)
+    private String format;
+
+    private boolean viewport;
+    @Schema(description = "Frames sent per second, each merging the ticks since the previous one")
+    private double framesPerSecond;
+    @Schema(description = "Messages waiting in the outbound queue")
+    private int queueDepth;
+    private int maxQueueDepth;
+    private long sentMessages;
+    @Schema(description = "Frames dropped because the client read too slowly")
+    private long droppedFrames;
+}
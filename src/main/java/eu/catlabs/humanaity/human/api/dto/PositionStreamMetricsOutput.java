@@ -0,0 +1,22 @@
+package eu.catlabs.humanaity.human.api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Map;
+
+@Getter
+@Setter
+public class PositionStreamMetricsOutput {
+    @Schema(description = "Position streams open on this server")
+    private int activeStreams;
+    private int maxStreams;
+    private int maxStreamsPerUser;
+    @Schema(description = "Open streams by city id, for cities with at least one")
+    private Map<Long, Integer> activeStreamsByCity;
+    @Schema(description = "Streams closed because the client stopped taking messages or a heartbeat failed")
+    private long reapedStreams;
+    @Schema(description = "Streams refused by the server or per-user cap")
+    private long rejectedStreams;
+}
@@ -0,0 +1,23 @@
+package eu.catlabs.humanaity.human.api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Part of a city to stream, in city coordinates (0 to 1). Either all bounds are set or none.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class ViewportInput {
+    @Schema(example = "0.25")
+    private Double minX;
+    @Schema(example = "0.25")
+    private Double minY;
+    @Schema(example = "0.5")
+    private Double maxX;
+    @Schema(example = "0.5")
+    private Double maxY;
+}
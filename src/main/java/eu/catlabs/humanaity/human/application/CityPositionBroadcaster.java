@@ -0,0 +1,449 @@
+package eu.catlabs.humanaity.human.application;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.catlabs.humanaity.common.exception.TooManyStreamsException;
+import eu.catlabs.humanaity.human.api.dto.HumanOutput;
+import eu.catlabs.humanaity.human.api.dto.PositionStreamConnectionOutput;
+import eu.catlabs.humanaity.human.api.dto.PositionStreamMetricsOutput;
+import eu.catlabs.humanaity.simulation.domain.BoundingBox;
+import eu.catlabs.humanaity.simulation.domain.CityWorld;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.socket.WebSocketSession;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * Fans position updates out to the subscribers of each city.
+ * Updates are coalesced per city, to the latest state of each human. A single thread drains each city's
+ * updates once per frame, serializes the frame once per format in use and writes those bytes to all of its
+ * subscribers, so neither threads nor serialization grow with the number of viewers.
+ * Frames of a city are sequenced and kept for replay from its first subscription on, until no stream has
+ * held the city for the idle timeout.
+ * Subscribers may restrict their stream to a viewport, grown by a small margin and snapped to whole cells
+ * so viewers of one area share its encoded frames; humans leaving it are sent once more, outside of it.
+ * Every subscriber gets a bounded queue, emptied by a pool of server-sent event writers, by asynchronous
+ * WebSocket sends or by the reactive subscriber's demand, so the broadcast never writes to a client.
+ * Quiet streams get a heartbeat so dead peers surface as failed writes, streams that stop taking messages
+ * are reaped, and concurrent streams are capped per node and per user.
+ */
+@Component
+public class CityPositionBroadcaster {
+
+    private static final Logger logger = LoggerFactory.getLogger(CityPositionBroadcaster.class);
+
+    private final Map<Long, CityPositionHub> hubs = new ConcurrentHashMap<>();
+    private final Map<String, PositionSubscription> subscriptions = new ConcurrentHashMap<>();
+    private final Map<String, Integer> streamsByOwner = new ConcurrentHashMap<>();
+    private final AtomicInteger activeStreams = new AtomicInteger();
+    private final AtomicLong reapedStreams = new AtomicLong();
+    private final AtomicLong rejectedStreams = new AtomicLong();
+    private final ObjectMapper objectMapper;
+    private final PositionFrameEncoder encoder;
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "position-broadcaster");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private ExecutorService sseWriters;
+    private final ExecutorService streamCloser = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "position-stream-closer");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${stream.frame-interval-ms:100}")
+    private long frameIntervalMs;
+
+    @Value("${stream.replay-frames:100}")
+    private int replayFrames;
+
+    @Value("${stream.viewport-margin:0.02}")
+    private double viewportMargin;
+
+    @Value("${stream.viewport-cell:0.05}")
+    private double viewportCell;
+
+    @Value("${stream.queue-capacity:16}")
+    private int queueCapacity;
+
+    @Value("${stream.slow-consumer-policy:latest}")
+    private String slowConsumerPolicy;
+
+    @Value("${stream.sse.writer-threads:4}")
+    private int sseWriterThreads;
+
+    @Value("${stream.sse.write-timeout-ms:10000}")
+    private long sseWriteTimeoutMs;
+
+    @Value("${stream.websocket.send-timeout-ms:10000}")
+    private long socketSendTimeoutMs;
+
+    @Value("${stream.heartbeat-interval-ms:15000}")
+    private long heartbeatIntervalMs;
+
+    @Value("${stream.idle-timeout-ms:60000}")
+    private long idleTimeoutMs;
+
+    @Value("${stream.max-streams:10000}")
+    private int maxStreams;
+
+    @Value("${stream.max-streams-per-user:16}")
+    private int maxStreamsPerUser;
+
+    public CityPositionBroadcaster(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+        this.encoder = new PositionFrameEncoder(objectMapper);
+    }
+
+    @PostConstruct
+    public void start() {
+        SlowConsumerPolicy.fromValue(slowConsumerPolicy);
+        if (replayFrames < 1) {
+            throw new IllegalArgumentException("stream.replay-frames must be at least 1, got " + replayFrames);
+        }
+        AtomicInteger writerCount = new AtomicInteger();
+        sseWriters = Executors.newFixedThreadPool(sseWriterThreads, runnable -> {
+            Thread thread = new Thread(runnable, "position-sse-writer-" + writerCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(this::broadcastFrame, frameIntervalMs, frameIntervalMs, TimeUnit.MILLISECONDS);
+        executor.scheduleWithFixedDelay(this::checkIdleStreams, heartbeatIntervalMs, heartbeatIntervalMs,
+                TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+        sseWriters.shutdownNow();
+        streamCloser.shutdown();
+    }
+
+    /**
+     * Subscribes to a city's stream, resuming after {@code lastEventId} when given. The emitter has no
+     * timeout; the stream ends when the client leaves or is reaped.
+     *
+     * @param owner    user the stream counts against, or null for none
+     * @param viewport part of the city to stream, or null for the whole city
+     * @param hz       maximum frames per second, or null for every frame; skipped frames are merged into the next one
+     * @param snapshot full attributes of the humans inside a box, or of the whole city for a null box;
+     *                 sent when the client cannot resume, uses a compact format or has a viewport
+     * @throws TooManyStreamsException when the node or the owner has no stream left
+     */
+    public SseEmitter subscribe(Long cityId, String owner, PositionStreamFormat format, String lastEventId,
+                                BoundingBox viewport, Double hz, Function<BoundingBox, List<HumanOutput>> snapshot) {
+        int frameStride = frameStride(hz);
+        SseEmitter emitter = new SseEmitter(0L);
+        SsePositionSubscription subscription = new SsePositionSubscription(cityId, format, emitter, streamViewport(viewport),
+                queueCapacity, SlowConsumerPolicy.fromValue(slowConsumerPolicy), sseWriters, streamCloser);
+        emitter.onCompletion(() -> close(subscription));
+        emitter.onTimeout(() -> close(subscription));
+        emitter.onError(e -> close(subscription));
+        subscription.setFrameStride(frameStride);
+        subscription.setOwner(owner);
+        register(subscription, lastEventId, snapshot);
+        return emitter;
+    }
+
+    /**
+     * Subscribes a WebSocket session to a city's stream, written through a bounded queue so a slow client
+     * never holds up the broadcast. The session must be released with {@link #unsubscribe} when it closes.
+     *
+     * @return the subscription id
+     */
+    public String subscribe(Long cityId, String owner, WebSocketSession session, PositionStreamFormat format,
+                            String lastEventId, BoundingBox viewport, Double hz,
+                            Function<BoundingBox, List<HumanOutput>> snapshot) {
+        int frameStride = frameStride(hz);
+        SocketPositionSubscription subscription = new SocketPositionSubscription(cityId, format, streamViewport(viewport),
+                session, objectMapper, queueCapacity, SlowConsumerPolicy.fromValue(slowConsumerPolicy),
+                socketSendTimeoutMs, streamCloser);
+        subscription.setFrameStride(frameStride);
+        subscription.setOwner(owner);
+        register(subscription, lastEventId, snapshot);
+        return subscription.getId();
+    }
+
+    /**
+     * Subscribes to a city's stream as a {@code Flux} of server-sent events, emitted as the subscriber
+     * requests them; the subscription is registered when the {@code Flux} is subscribed and released on cancel.
+     * Spring MVC writes event streams returned this way without a request timeout.
+     */
+    public Flux<ServerSentEvent<String>> subscribeFlux(Long cityId, String owner, PositionStreamFormat format,
+                                                       String lastEventId, BoundingBox viewport, Double hz,
+                                                       Function<BoundingBox, List<HumanOutput>> snapshot) {
+        int frameStride = frameStride(hz);
+        return Flux.create(sink -> {
+            ReactivePositionSubscription subscription = new ReactivePositionSubscription(cityId, format,
+                    streamViewport(viewport), objectMapper, queueCapacity, SlowConsumerPolicy.fromValue(slowConsumerPolicy));
+            subscription.attach(sink, () -> close(subscription));
+            subscription.setFrameStride(frameStride);
+            subscription.setOwner(owner);
+            register(subscription, lastEventId, snapshot);
+        });
+    }
+
+    public void unsubscribe(String subscriptionId) {
+        PositionSubscription subscription = subscriptions.get(subscriptionId);
+        if (subscription != null) {
+            close(subscription);
+        }
+    }
+
+    /**
+     * Moves the viewport of a subscription and sends it a snapshot of the humans now in view.
+     *
+     * @return false when the city has no such subscription
+     */
+    public boolean changeViewport(Long cityId, String subscriptionId, BoundingBox viewport,
+                                  Function<BoundingBox, List<HumanOutput>> snapshot) {
+        PositionSubscription subscription = subscriptions.get(subscriptionId);
+        CityPositionHub hub = hubs.get(cityId);
+        if (subscription == null || hub == null || !subscription.getCityId().equals(cityId)) {
+            return false;
+        }
+        try {
+            hub.changeViewport(subscription, streamViewport(viewport), snapshot, new PositionFrameEncoder(objectMapper));
+        } catch (IOException e) {
+            close(subscription);
+            subscription.fail(e);
+        }
+        return true;
+    }
+
+    /**
+     * Queues the moved slots of a city's world for its next frame; cities nobody has subscribed to are skipped.
+     * Positions are copied on the calling thread, which must hold the world monitor.
+     */
+    public void publish(Long cityId, CityWorld world, int[] slots, int count) {
+        CityPositionHub hub = hubs.get(cityId);
+        if (hub != null) {
+            hub.publish(world, slots, count);
+        }
+    }
+
+    public void forget(Long humanId) {
+        hubs.values().forEach(hub -> hub.forget(humanId));
+    }
+
+    public int getSubscriberCount(Long cityId) {
+        CityPositionHub hub = hubs.get(cityId);
+        return hub != null ? hub.getSubscriberCount() : 0;
+    }
+
+    public List<PositionStreamConnectionOutput> getConnections(Long cityId) {
+        CityPositionHub hub = hubs.get(cityId);
+        if (hub == null) {
+            return List.of();
+        }
+        return hub.getSubscriptions().stream()
+                .map(this::toConnectionOutput)
+                .toList();
+    }
+
+    boolean hasHub(Long cityId) {
+        return hubs.containsKey(cityId);
+    }
+
+    /**
+     * Open streams against the node and user caps, per city, with the streams reaped or rejected so far.
+     */
+    public PositionStreamMetricsOutput getMetrics() {
+        Map<Long, Integer> byCity = new LinkedHashMap<>();
+        hubs.forEach((cityId, hub) -> {
+            int count = hub.getSubscriberCount();
+            if (count > 0) {
+                byCity.put(cityId, count);
+            }
+        });
+        PositionStreamMetricsOutput output = new PositionStreamMetricsOutput();
+        output.setActiveStreams(activeStreams.get());
+        output.setMaxStreams(maxStreams);
+        output.setMaxStreamsPerUser(maxStreamsPerUser);
+        output.setActiveStreamsByCity(byCity);
+        output.setReapedStreams(reapedStreams.get());
+        output.setRejectedStreams(rejectedStreams.get());
+        return output;
+    }
+
+    /**
+     * Frames merged into each frame sent for a maximum rate, bounded by the frames kept for replay.
+     */
+    private int frameStride(Double hz) {
+        if (hz == null) {
+            return 1;
+        }
+        if (!(hz > 0)) {
+            throw new IllegalArgumentException("hz must be positive");
+        }
+        int stride = (int) Math.ceil(1000.0 / (hz * frameIntervalMs));
+        return Math.max(1, Math.min(stride, replayFrames));
+    }
+
+    /**
+     * Takes the stream slots first, so a rejected stream leaves no hub behind, then holds the city's hub,
+     * created if needed, until the subscription closes. A subscription failing to catch up is released at once;
+     * one failing on anything but its transport also rethrows the failure to the caller.
+     */
+    private void register(PositionSubscription subscription, String lastEventId,
+                          Function<BoundingBox, List<HumanOutput>> snapshot) {
+        reserve(subscription.getOwner());
+        CityPositionHub hub = hubs.compute(subscription.getCityId(), (cityId, current) -> {
+            CityPositionHub held = current != null ? current : new CityPositionHub(cityId, replayFrames);
+            held.retain();
+            return held;
+        });
+        subscriptions.put(subscription.getId(), subscription);
+        try {
+            hub.subscribe(subscription, lastEventId, snapshot, new PositionFrameEncoder(objectMapper));
+        } catch (IOException e) {
+            close(subscription);
+            subscription.fail(e);
+        } catch (RuntimeException e) {
+            close(subscription);
+            throw e;
+        }
+    }
+
+    private PositionStreamConnectionOutput toConnectionOutput(PositionSubscription subscription) {
+        PositionStreamConnectionOutput output = new PositionStreamConnectionOutput();
+        output.setSubscriptionId(subscription.getId());
+        output.setTransport(subscription.getTransport());
+        output.setFormat(subscription.getFormat().getValue());
+        output.setViewport(subscription.getViewport() != null);
+        output.setFramesPerSecond(1000.0 / (subscription.getFrameStride() * frameIntervalMs));
+        output.setQueueDepth(subscription.getQueueDepth());
+        output.setMaxQueueDepth(subscription.getMaxQueueDepth());
+        output.setSentMessages(subscription.getSentMessages());
+        output.setDroppedFrames(subscription.getDroppedFrames());
+        return output;
+    }
+
+    /**
+     * Viewport grown by the margin and snapped to whole cells, so nearby viewports share one region of the frame.
+     */
+    private BoundingBox streamViewport(BoundingBox viewport) {
+        return viewport != null ? viewport.expand(viewportMargin).snap(viewportCell) : null;
+    }
+
+    /**
+     * Takes a stream slot on the node and of the owner, or rejects the stream.
+     */
+    private void reserve(String owner) {
+        if (activeStreams.incrementAndGet() > maxStreams) {
+            activeStreams.decrementAndGet();
+            rejectedStreams.incrementAndGet();
+            throw new TooManyStreamsException("Too many position streams on this server");
+        }
+        if (owner == null) {
+            return;
+        }
+        boolean[] reserved = {false};
+        streamsByOwner.compute(owner, (key, count) -> {
+            int current = count != null ? count : 0;
+            if (current >= maxStreamsPerUser) {
+                return count;
+            }
+            reserved[0] = true;
+            return current + 1;
+        });
+        if (!reserved[0]) {
+            activeStreams.decrementAndGet();
+            rejectedStreams.incrementAndGet();
+            throw new TooManyStreamsException("At most " + maxStreamsPerUser + " position streams per user");
+        }
+    }
+
+    private void release(String owner) {
+        activeStreams.decrementAndGet();
+        if (owner != null) {
+            streamsByOwner.computeIfPresent(owner, (key, count) -> count > 1 ? count - 1 : null);
+        }
+    }
+
+    /**
+     * Releases a subscription once, however many of its transport's callbacks report the close. The hub
+     * cannot be replaced while the subscription holds it.
+     */
+    private void close(PositionSubscription subscription) {
+        CityPositionHub hub = hubs.get(subscription.getCityId());
+        if (hub != null) {
+            hub.unsubscribe(subscription);
+        }
+        if (subscriptions.remove(subscription.getId()) != null) {
+            if (hub != null) {
+                hub.release();
+            }
+            release(subscription.getOwner());
+        }
+    }
+
+    /**
+     * Reaps streams whose queued messages have not been taken for the idle timeout and sends a heartbeat on
+     * those quiet for a heartbeat interval; a heartbeat that cannot be written ends the stream as well.
+     */
+    private void checkIdleStreams() {
+        long now = System.nanoTime();
+        long heartbeatNanos = TimeUnit.MILLISECONDS.toNanos(heartbeatIntervalMs);
+        long idleNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMs);
+        long writeTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(sseWriteTimeoutMs);
+        for (PositionSubscription subscription : subscriptions.values()) {
+            long idle = now - subscription.getLastSentNanos();
+            try {
+                if (subscription.isWriteStalled(now, writeTimeoutNanos)) {
+                    throw new IOException("Write blocked for more than " + sseWriteTimeoutMs + " ms");
+                }
+                if (subscription.getQueueDepth() > 0 && idle > idleNanos) {
+                    throw new IOException("No message taken for " + TimeUnit.NANOSECONDS.toMillis(idle) + " ms");
+                }
+                if (idle >= heartbeatNanos) {
+                    subscription.sendHeartbeat();
+                }
+            } catch (IOException | IllegalStateException e) {
+                logger.debug("Reaping {} subscriber of city {}: {}", subscription.getTransport(),
+                        subscription.getCityId(), e.getMessage());
+                reapedStreams.incrementAndGet();
+                close(subscription);
+                subscription.fail(e);
+            }
+        }
+    }
+
+    /**
+     * Broadcasts the next frame of every city, and drops the hubs no stream has held for the idle timeout.
+     */
+    private void broadcastFrame() {
+        long now = System.nanoTime();
+        long idleNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMs);
+        hubs.forEach((cityId, hub) -> {
+            try {
+                if (hubs.computeIfPresent(cityId, (id, current) ->
+                        current == hub && hub.isAbandoned(now, idleNanos) ? null : current) != hub) {
+                    return;
+                }
+                hub.broadcastPending(encoder);
+            } catch (Exception e) {
+                logger.error("Error broadcasting positions of city {}: {}", cityId, e.getMessage(), e);
+            }
+        });
+    }
+}
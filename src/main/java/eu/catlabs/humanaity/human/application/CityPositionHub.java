@@ -0,0 +1,314 @@
+package eu.catlabs.humanaity.human.application;
+
+import eu.catlabs.humanaity.human.api.dto.HumanOutput;
+import eu.catlabs.humanaity.simulation.domain.BoundingBox;
+import eu.catlabs.humanaity.simulation.domain.CityWorld;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * Subscribers of one city's position stream, grouped by format, and the city's recent frames.
+ * Every frame carries the next sequence number as its event id, prefixed by a random epoch of the hub,
+ * and is kept in a bounded ring, so a client reconnecting with {@code Last-Event-ID} gets the frames it
+ * missed, or a fresh snapshot when they are no longer available or the id comes from another hub.
+ * Subscribers of a format without a viewport are written the same serialized frame, whatever their
+ * transport; subscribers with a viewport get the part of the frame inside it.
+ * Viewports are snapped to grid cells by the broadcaster, so each distinct region is cut once per frame and
+ * encoded once per format, however many subscribers view it.
+ * Subscribers with a frame stride above 1 only get every stride-th frame, merged from the frames since
+ * their previous one, encoded once per format and stride.
+ */
+class CityPositionHub {
+
+    private static final Logger logger = LoggerFactory.getLogger(CityPositionHub.class);
+
+    private final Long cityId;
+    private final String epoch = Integer.toHexString(ThreadLocalRandom.current().nextInt());
+    private final int replayFrames;
+    private final Map<PositionStreamFormat, List<PositionSubscription>> subscribers = new EnumMap<>(PositionStreamFormat.class);
+    private final Deque<PositionFrame> recentFrames = new ArrayDeque<>();
+    private final PendingPositions pending = new PendingPositions();
+    private long sequence;
+    private long evictedThrough;
+    private int holders;
+    private long releasedNanos = System.nanoTime();
+
+    CityPositionHub(Long cityId, int replayFrames) {
+        this.cityId = cityId;
+        this.replayFrames = replayFrames;
+        for (PositionStreamFormat format : PositionStreamFormat.values()) {
+            subscribers.put(format, new CopyOnWriteArrayList<>());
+        }
+    }
+
+    /**
+     * Registers a subscriber after bringing it up to date: the frames after {@code lastEventId} when this hub
+     * sent it and they are all still in the ring, otherwise a snapshot for reconnecting clients and compact
+     * formats. The snapshot is queried and sent outside the lock; the frames cut meanwhile are replayed under
+     * it, just before the subscriber joins the broadcast.
+     *
+     * @param snapshot humans of the city inside a box, or of the whole city for a null box
+     */
+    void subscribe(PositionSubscription subscription, String lastEventId,
+                   Function<BoundingBox, List<HumanOutput>> snapshot, PositionFrameEncoder encoder) throws IOException {
+        synchronized (subscription.getCatchUpLock()) {
+            bringUpToDate(subscription, lastEventId, snapshot, encoder);
+        }
+    }
+
+    private void bringUpToDate(PositionSubscription subscription, String lastEventId,
+                               Function<BoundingBox, List<HumanOutput>> snapshot, PositionFrameEncoder encoder) throws IOException {
+        PositionStreamFormat format = subscription.getFormat();
+        Long resumeFrom = lastEventId != null ? sequenceOf(lastEventId) : null;
+        subscription.sendSubscription();
+        long from;
+        List<PositionFrame> missed = null;
+        synchronized (this) {
+            from = sequence;
+            if (resumeFrom != null && canReplayFrom(resumeFrom)) {
+                missed = framesAfter(resumeFrom);
+            } else if (lastEventId == null && format == PositionStreamFormat.FULL && subscription.getViewport() == null) {
+                subscribers.get(format).add(subscription);
+                return;
+            }
+        }
+        if (missed != null) {
+            replay(subscription, missed, encoder);
+        } else {
+            sendSnapshot(subscription, from, snapshot);
+        }
+        catchUp(subscription, from, snapshot, encoder);
+    }
+
+    void unsubscribe(PositionSubscription subscription) {
+        subscribers.get(subscription.getFormat()).remove(subscription);
+    }
+
+    /**
+     * Moves a subscriber's viewport and sends it a snapshot of the humans now in view. The subscriber leaves
+     * the broadcast while the snapshot is queried and sent outside the lock, and rejoins it with the new
+     * viewport after a replay of the frames cut meanwhile, so no broadcast sees the viewport change.
+     */
+    void changeViewport(PositionSubscription subscription, BoundingBox viewport,
+                        Function<BoundingBox, List<HumanOutput>> snapshot, PositionFrameEncoder encoder) throws IOException {
+        synchronized (subscription.getCatchUpLock()) {
+            long from;
+            synchronized (this) {
+                if (!subscribers.get(subscription.getFormat()).remove(subscription)) {
+                    return;
+                }
+                from = sequence;
+                subscription.setViewport(viewport);
+            }
+            sendSnapshot(subscription, from, snapshot);
+            catchUp(subscription, from, snapshot, encoder);
+        }
+    }
+
+    int getSubscriberCount() {
+        return subscribers.values().stream().mapToInt(List::size).sum();
+    }
+
+    synchronized long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * Queues moved slots of a world for the next frame, copying their positions; never waits for a broadcast
+     * in progress. Must be called while holding the world monitor.
+     */
+    void publish(CityWorld world, int[] slots, int count) {
+        pending.put(world, slots, count);
+    }
+
+    void forget(Long humanId) {
+        pending.remove(humanId);
+    }
+
+    /**
+     * Broadcasts the humans published since the previous frame.
+     */
+    synchronized void broadcastPending(PositionFrameEncoder encoder) {
+        broadcast(pending, encoder);
+    }
+
+    /**
+     * Counts a stream registering on the hub, from before it subscribes until it closes.
+     */
+    synchronized void retain() {
+        holders++;
+    }
+
+    synchronized void release() {
+        holders--;
+        releasedNanos = System.nanoTime();
+    }
+
+    /**
+     * Whether no stream has held the hub for {@code idleNanos}, so its frames are no longer worth keeping
+     * for clients coming back.
+     */
+    synchronized boolean isAbandoned(long now, long idleNanos) {
+        return holders == 0 && now - releasedNanos >= idleNanos;
+    }
+
+    /**
+     * Cuts the next frame from the city's moved humans, keeps it for replay and sends it to every subscriber.
+     * A frame in which nobody moved still takes its sequence number, but is neither kept nor sent, so an idle
+     * city does not push frames out of the ring; subscribers with a stride only get their merged frame when
+     * someone moved since their previous one.
+     */
+    synchronized void broadcast(PendingPositions positions, PositionFrameEncoder encoder) {
+        PositionFrame frame = positions.drain(++sequence);
+        if (frame.size() > 0) {
+            if (recentFrames.size() == replayFrames) {
+                evictedThrough = recentFrames.removeFirst().getSequence();
+            }
+            recentFrames.addLast(frame);
+        }
+
+        Map<Integer, PositionFrame> merged = new HashMap<>();
+        Map<Integer, Map<BoundingBox, PositionFrame>> cuts = new HashMap<>();
+        subscribers.forEach((format, formatSubscribers) -> {
+            Map<Integer, Map<BoundingBox, EncodedFrame>> shared = new HashMap<>();
+            for (PositionSubscription subscription : formatSubscribers) {
+                int stride = subscription.getFrameStride();
+                if (frame.getSequence() % stride != 0) {
+                    continue;
+                }
+                PositionFrame source = stride == 1 ? frame : merged.computeIfAbsent(stride, s -> {
+                    List<PositionFrame> kept = framesAfter(frame.getSequence() - s);
+                    return kept.isEmpty() ? frame : PositionFrame.merge(kept);
+                });
+                if (source.size() == 0) {
+                    continue;
+                }
+                BoundingBox viewport = subscription.getViewport();
+                send(subscription, shared.computeIfAbsent(stride, s -> new HashMap<>()).computeIfAbsent(viewport, v -> {
+                    PositionFrame cut = v == null ? source
+                            : cuts.computeIfAbsent(stride, s -> new HashMap<>()).computeIfAbsent(v, source::within);
+                    return new EncodedFrame(format, epoch, cut, encoder);
+                }));
+            }
+        });
+    }
+
+    /**
+     * Current subscribers of every format.
+     */
+    List<PositionSubscription> getSubscriptions() {
+        List<PositionSubscription> all = new ArrayList<>();
+        subscribers.values().forEach(all::addAll);
+        return all;
+    }
+
+    /**
+     * Replays the frames cut since {@code from} and adds the subscriber to the broadcast; when the ring has
+     * moved past {@code from}, sends a newer snapshot outside the lock and tries again.
+     */
+    private void catchUp(PositionSubscription subscription, long from,
+                         Function<BoundingBox, List<HumanOutput>> snapshot, PositionFrameEncoder encoder) throws IOException {
+        while (true) {
+            synchronized (this) {
+                if (canReplayFrom(from)) {
+                    replay(subscription, framesAfter(from), encoder);
+                    subscribers.get(subscription.getFormat()).add(subscription);
+                    return;
+                }
+                from = sequence;
+            }
+            sendSnapshot(subscription, from, snapshot);
+        }
+    }
+
+    /**
+     * Sends frames of the ring, merged into one for a subscriber with a frame stride.
+     *
+     * @param newestFirst frames from the newest to the oldest
+     */
+    private void replay(PositionSubscription subscription, List<PositionFrame> newestFirst,
+                        PositionFrameEncoder encoder) throws IOException {
+        PositionStreamFormat format = subscription.getFormat();
+        List<PositionFrame> frames = subscription.getFrameStride() > 1 && newestFirst.size() > 1
+                ? List.of(PositionFrame.merge(newestFirst)) : newestFirst;
+        for (int i = frames.size() - 1; i >= 0; i--) {
+            PositionFrame frame = frames.get(i);
+            subscription.replay(new EncodedFrame(format, epoch, visiblePart(frame, subscription), encoder));
+        }
+    }
+
+    private void sendSnapshot(PositionSubscription subscription, long from,
+                              Function<BoundingBox, List<HumanOutput>> snapshot) throws IOException {
+        subscription.sendSnapshot(eventId(from), snapshot.apply(subscription.getViewport()));
+    }
+
+    private String eventId(long sequence) {
+        return epoch + "-" + sequence;
+    }
+
+    /**
+     * Sequence number of an event id sent by this hub, or null for ids of another server or an earlier run.
+     */
+    private Long sequenceOf(String eventId) {
+        if (!eventId.startsWith(epoch + "-")) {
+            return null;
+        }
+        try {
+            return Long.parseLong(eventId.substring(epoch.length() + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static PositionFrame visiblePart(PositionFrame frame, PositionSubscription subscription) {
+        BoundingBox viewport = subscription.getViewport();
+        return viewport == null ? frame : frame.within(viewport);
+    }
+
+    /**
+     * Frames of the ring newer than {@code sequence}, from the newest to the oldest.
+     */
+    private List<PositionFrame> framesAfter(long sequence) {
+        List<PositionFrame> frames = new ArrayList<>();
+        Iterator<PositionFrame> iterator = recentFrames.descendingIterator();
+        while (iterator.hasNext()) {
+            PositionFrame frame = iterator.next();
+            if (frame.getSequence() <= sequence) {
+                break;
+            }
+            frames.add(frame);
+        }
+        return frames;
+    }
+
+    /**
+     * Whether every frame kept since {@code lastEventId} is still in the ring; frames in which nobody moved
+     * were never kept, so only evicted frames stop a replay.
+     */
+    private boolean canReplayFrom(long lastEventId) {
+        return lastEventId <= sequence && lastEventId >= evictedThrough;
+    }
+
+    private void send(PositionSubscription subscription, EncodedFrame frame) {
+        try {
+            subscription.send(frame);
+        } catch (IOException | IllegalStateException e) {
+            logger.debug("Dropping subscriber of city {}: {}", cityId, e.getMessage());
+            unsubscribe(subscription);
+            subscription.fail(e);
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package eu.catlabs.humanaity.human.application;
+
+import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * A frame serialized in one format, wrapped for each transport on first use so subscribers of the
+ * same format and transport share one message. Shared frames are only wrapped on the broadcasting thread.
+ */
+class EncodedFrame {
+
+    private final PositionStreamFormat format;
+    private final String epoch;
+    private final String id;
+    private final long sequence;
+    private final PositionFrame frame;
+    private final PositionFrameEncoder encoder;
+    private final byte[] payload;
+    private Set<DataWithMediaType> sseEvent;
+    private WebSocketMessage<?> socketMessage;
+    private ServerSentEvent<String> reactiveEvent;
+
+    /**
+     * Encodes a frame; the encoder is kept to re-encode the frame when an older one is merged into it.
+     *
+     * @param epoch prefix of the event id, which ends with the sequence of the frame
+     */
+    EncodedFrame(PositionStreamFormat format, String epoch, PositionFrame frame, PositionFrameEncoder encoder) {
+        this.format = format;
+        this.epoch = epoch;
+        this.id = epoch + "-" + frame.getSequence();
+        this.sequence = frame.getSequence();
+        this.frame = frame;
+        this.encoder = encoder;
+        this.payload = encoder.encode(format, frame);
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    /**
+     * This frame merged with an older one dropped from a queue, holding the latest state of the humans moved
+     * in either. Frames are only merged on the broadcasting thread, which owns the encoder of the frames it cuts.
+     */
+    EncodedFrame absorb(EncodedFrame older) {
+        return new EncodedFrame(format, epoch, PositionFrame.merge(List.of(frame, older.frame)), encoder);
+    }
+
+    /**
+     * Event with the epoch and sequence as id: unnamed for {@code full}, {@code delta} for the compact formats,
+     * whose binary records are base64 encoded.
+     */
+    Set<DataWithMediaType> sseEvent() {
+        if (sseEvent == null) {
+            SseEmitter.SseEventBuilder event = SseEmitter.event().id(id);
+            if (format == PositionStreamFormat.FULL) {
+                event.data(payload, MediaType.APPLICATION_JSON);
+            } else if (format == PositionStreamFormat.BINARY) {
+                event.name("delta").data(Base64.getEncoder().encode(payload), MediaType.TEXT_PLAIN);
+            } else {
+                event.name("delta").data(payload, MediaType.APPLICATION_JSON);
+            }
+            sseEvent = event.build();
+        }
+        return sseEvent;
+    }
+
+    /**
+     * The same event as {@link #sseEvent()}, for streams returned as a {@code Flux}.
+     */
+    ServerSentEvent<String> reactiveEvent() {
+        if (reactiveEvent == null) {
+            ServerSentEvent.Builder<String> event = ServerSentEvent.<String>builder().id(id);
+            if (format == PositionStreamFormat.FULL) {
+                event.data(new String(payload, StandardCharsets.UTF_8));
+            } else if (format == PositionStreamFormat.BINARY) {
+                event.event("delta").data(Base64.getEncoder().encodeToString(payload));
+            } else {
+                event.event("delta").data(new String(payload, StandardCharsets.UTF_8));
+            }
+            reactiveEvent = event.build();
+        }
+        return reactiveEvent;
+    }
+
+    /**
+     * Text message {@code {"event":..,"id":..,"data":..}} with the same event names as the server-sent
+     * events, or for {@code binary} a binary message of the int64 sequence followed by the records, whose
+     * epoch is the one of the snapshot.
+     */
+    WebSocketMessage<?> socketMessage() {
+        if (socketMessage == null) {
+            if (format == PositionStreamFormat.BINARY) {
+                ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES + payload.length);
+                buffer.putLong(sequence).put(payload).flip();
+                socketMessage = new BinaryMessage(buffer.asReadOnlyBuffer());
+            } else {
+                String event = format == PositionStreamFormat.FULL ? "message" : "delta";
+                socketMessage = new TextMessage("{\"event\":\"" + event + "\",\"id\":\"" + id + "\",\"data\":"
+                        + new String(payload, StandardCharsets.UTF_8) + "}");
+            }
+        }
+        return socketMessage;
+    }
+}
@@ -1,45 +1,225 @@
 package eu.catlabs.humanaity.human.application;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.catlabs.humanaity.common.exception.TooManyStreamsException;
 import eu.catlabs.humanaity.human.api.dto.HumanInput;
 import eu.catlabs.humanaity.human.api.dto.HumanOutput;
+import eu.catlabs.humanaity.human.api.dto.HumanPositionOutput;
+import eu.catlabs.humanaity.human.api.dto.PositionStreamConnectionOutput;
+import eu.catlabs.humanaity.human.api.dto.PositionStreamMetricsOutput;
+import eu.catlabs.humanaity.human.api.dto.ViewportInput;
 import eu.catlabs.humanaity.human.domain.Human;
 import eu.catlabs.humanaity.human.domain.Personality;
 import eu.catlabs.humanaity.human.infrastructure.persistence.HumanRepository;
 import eu.catlabs.humanaity.city.domain.City;
 import eu.catlabs.humanaity.city.infrastructure.persistence.CityRepository;
+import eu.catlabs.humanaity.simulation.application.CityWorldRegistry;
+import eu.catlabs.humanaity.simulation.domain.BoundingBox;
+import eu.catlabs.humanaity.simulation.domain.CityWorld;
+import jakarta.persistence.EntityManager;
 import jakarta.persistence.EntityNotFoundException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.socket.WebSocketSession;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
 import java.io.IOException;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.io.OutputStream;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
-import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 @Service
 public class HumanApplicationService {
+
+    private static final int STREAM_PAGE_SIZE = 500;
+    private static final int EXPORT_PAGE_SIZE = 1000;
+
     private final HumanRepository humanRepository;
     private final CityRepository cityRepository;
+    private final CityWorldRegistry worldRegistry;
+    private final CityPositionBroadcaster positionBroadcaster;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+
+    @Value("${humans.page.default-limit:500}")
+    private int defaultPageLimit;
+
+    @Value("${humans.page.max-limit:5000}")
+    private int maxPageLimit;
+
+    @Value("${spring.jpa.properties.hibernate.jdbc.batch_size:500}")
+    private int insertBatchSize;
 
-    private final ConcurrentHashMap<Long, Human> lastPositions = new ConcurrentHashMap<>();
+    @Value("${humans.export.max-concurrent:4}")
+    private int maxConcurrentExports;
 
-    public HumanApplicationService(HumanRepository humanRepository, CityRepository cityRepository) {
+    private final AtomicInteger activeExports = new AtomicInteger();
+
+    public HumanApplicationService(HumanRepository humanRepository,
+                                   CityRepository cityRepository,
+                                   CityWorldRegistry worldRegistry,
+                                   CityPositionBroadcaster positionBroadcaster,
+                                   ObjectMapper objectMapper,
+                                   EntityManager entityManager) {
         this.humanRepository = humanRepository;
         this.cityRepository = cityRepository;
+        this.worldRegistry = worldRegistry;
+        this.positionBroadcaster = positionBroadcaster;
+        this.objectMapper = objectMapper;
+        this.entityManager = entityManager;
     }
 
     public Optional<HumanOutput> getHumanById(Long id) {
         return humanRepository.findById(id)
-                .map(this::toHumanOutput);
+                .map(human -> worldRegistry.findLiveHuman(human).orElse(human))
+                .map(HumanApplicationService::toHumanOutput);
     }
 
     public List<HumanOutput> getHumansByCityId(String cityId) {
-        return humanRepository.findByCityId(Long.parseLong(cityId)).stream()
-                .map(this::toHumanOutput)
-                .toList();
+        Long id = Long.parseLong(cityId);
+        return worldRegistry.find(id)
+                .map(world -> world.snapshot().stream()
+                        .map(HumanApplicationService::toHumanOutput)
+                        .toList())
+                .orElseGet(() -> humanRepository.findOutputsByCityIdAfter(id, 0L, Pageable.unpaged()).getContent());
+    }
+
+    /**
+     * One page of a city's humans by ascending id, starting after the id {@code after}; the next page starts
+     * after the last id of this one. A running city is read from its world, otherwise the page is read
+     * straight into outputs.
+     *
+     * @param limit humans per page, or null for the default
+     */
+    public Slice<HumanOutput> getHumanPage(Long cityId, Long after, Integer limit) {
+        return humanPage(cityId, after != null ? after : 0L, PageRequest.of(0, pageLimit(limit)));
+    }
+
+    private Slice<HumanOutput> humanPage(Long cityId, long afterId, Pageable page) {
+        return worldRegistry.find(cityId)
+                .map(world -> toSlice(world.snapshotAfter(afterId, page.getPageSize() + 1), page,
+                        HumanApplicationService::toHumanOutput))
+                .orElseGet(() -> humanRepository.findOutputsByCityIdAfter(cityId, afterId, page));
+    }
+
+    /**
+     * Like {@link #getHumanPage}, with only the id, position and busy flag of each human.
+     */
+    public Slice<HumanPositionOutput> getHumanPositionPage(Long cityId, Long after, Integer limit) {
+        Pageable page = PageRequest.of(0, pageLimit(limit));
+        long afterId = after != null ? after : 0L;
+        return worldRegistry.find(cityId)
+                .map(world -> toSlice(world.snapshotAfter(afterId, page.getPageSize() + 1), page,
+                        human -> new HumanPositionOutput(human.getId(), human.getX(), human.getY(), human.isBusy())))
+                .orElseGet(() -> humanRepository.findPositionsByCityIdAfter(cityId, afterId, page));
+    }
+
+    /**
+     * Humans of a city, emitted as the subscriber requests them. Keyset pages are read like {@link #getHumanPage},
+     * one at a time, off the request thread, as demand reaches them, each starting after the last id of the
+     * previous one: from the world of a running city, otherwise from the database. The city is never read whole.
+     */
+    public Flux<HumanOutput> streamHumansByCityId(Long cityId) {
+        return streamPage(cityId, 0L)
+                .expand(slice -> slice.hasNext()
+                        ? streamPage(cityId, slice.getContent().get(slice.getNumberOfElements() - 1).getId())
+                        : Mono.empty())
+                .concatMapIterable(Slice::getContent)
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    private Mono<Slice<HumanOutput>> streamPage(Long cityId, Long afterId) {
+        return Mono.fromCallable(() -> humanPage(cityId, afterId, PageRequest.of(0, STREAM_PAGE_SIZE)));
+    }
+
+    /**
+     * Takes one of the export slots of the node. An export may hold a database connection until its response
+     * is sent, so their number is capped.
+     *
+     * @return releases the slot; only the first run counts, so every way the export can end may run it
+     * @throws TooManyStreamsException when every slot is taken
+     */
+    public Runnable reserveExport() {
+        if (activeExports.incrementAndGet() > maxConcurrentExports) {
+            activeExports.decrementAndGet();
+            throw new TooManyStreamsException("At most " + maxConcurrentExports + " exports at a time");
+        }
+        AtomicBoolean released = new AtomicBoolean();
+        return () -> {
+            if (released.compareAndSet(false, true)) {
+                activeExports.decrementAndGet();
+            }
+        };
+    }
+
+    /**
+     * Writes every human of a city to {@code out} as one JSON array, in keyset pages of {@value #EXPORT_PAGE_SIZE}
+     * by ascending id, so memory stays flat whatever the size of the city. A running city is read from its world
+     * through one id cursor, each page a binary search of its sorted ids, so the world lock is only held for
+     * the copy of one page and never for a scan of the world; otherwise each page is read in its own short query.
+     * Output is flushed after the opening bracket and every page, so the client starts receiving before the
+     * last page is read.
+     */
+    public void exportHumansByCityId(Long cityId, OutputStream out) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator(out)
+                .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+            generator.writeStartArray();
+            generator.flush();
+            Optional<CityWorld> world = worldRegistry.find(cityId);
+            if (world.isPresent()) {
+                exportWorld(world.get(), generator);
+            } else {
+                exportStored(cityId, generator);
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    private void exportWorld(CityWorld world, JsonGenerator generator) throws IOException {
+        long afterId = 0L;
+        List<Human> page;
+        do {
+            page = world.snapshotAfter(afterId, EXPORT_PAGE_SIZE);
+            for (Human human : page) {
+                generator.writeObject(toHumanOutput(human));
+            }
+            generator.flush();
+            if (!page.isEmpty()) {
+                afterId = page.get(page.size() - 1).getId();
+            }
+        } while (page.size() == EXPORT_PAGE_SIZE);
+    }
+
+    private void exportStored(Long cityId, JsonGenerator generator) throws IOException {
+        Pageable pageable = PageRequest.of(0, EXPORT_PAGE_SIZE);
+        Slice<HumanOutput> page = humanRepository.findOutputsByCityIdAfter(cityId, 0L, pageable);
+        while (true) {
+            for (HumanOutput human : page) {
+                generator.writeObject(human);
+            }
+            generator.flush();
+            if (!page.hasNext()) {
+                return;
+            }
+            page = humanRepository.findOutputsByCityIdAfter(cityId,
+                    page.getContent().get(page.getNumberOfElements() - 1).getId(), pageable);
+        }
     }
 
     public HumanOutput createHuman(HumanInput input) {
@@ -47,10 +227,66 @@ public class HumanApplicationService {
         updateHumanFields(human, input);
         setHumanCity(human, input.getCityId());
         Human savedHuman = humanRepository.save(human);
+        worldRegistry.onHumanSaved(savedHuman);
         return toHumanOutput(savedHuman);
     }
 
-    private HumanOutput toHumanOutput(Human human) {
+    /**
+     * Creates humans of one city in bulk: the city is read once, ids come from the pooled human sequence and
+     * inserts go out in JDBC batches. The humans of every batch are detached once flushed, so memory stays
+     * bounded however many humans are created, while the entities the caller holds in the same persistence
+     * context stay managed. A running world of the city gets the humans once the transaction commits, so a
+     * rollback leaves it without rows that were never written; only their ids are kept until then.
+     *
+     * @return the number of humans created
+     */
+    @Transactional
+    public int createHumans(Long cityId, List<HumanInput> inputs) {
+        requireCity(cityId);
+        City city = entityManager.getReference(City.class, cityId);
+        long[] ids = new long[inputs.size()];
+        List<Human> batch = new ArrayList<>(Math.min(insertBatchSize, inputs.size()));
+        for (int i = 0; i < inputs.size(); i++) {
+            Human human = new Human();
+            updateHumanFields(human, inputs.get(i));
+            human.setCity(city);
+            entityManager.persist(human);
+            ids[i] = human.getId();
+            batch.add(human);
+            if (batch.size() == insertBatchSize || i == inputs.size() - 1) {
+                entityManager.flush();
+                batch.forEach(entityManager::detach);
+                batch.clear();
+            }
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                // looked up now, since the city may have started or stopped while the transaction ran
+                worldRegistry.find(cityId).ifPresent(world -> addToWorld(world, ids));
+            }
+        });
+        return inputs.size();
+    }
+
+    /**
+     * Reads the created humans back a batch at a time for a running world, skipping those it loaded itself.
+     */
+    private void addToWorld(CityWorld world, long[] ids) {
+        for (int from = 0; from < ids.length; from += insertBatchSize) {
+            List<Long> chunk = new ArrayList<>(insertBatchSize);
+            for (int i = from; i < Math.min(from + insertBatchSize, ids.length); i++) {
+                chunk.add(ids[i]);
+            }
+            for (Human human : humanRepository.findAllById(chunk)) {
+                if (world.find(human.getId()).isEmpty()) {
+                    world.put(human);
+                }
+            }
+        }
+    }
+
+    static HumanOutput toHumanOutput(Human human) {
         HumanOutput output = new HumanOutput();
         output.setId(human.getId());
         output.setBusy(human.isBusy());
@@ -78,11 +314,13 @@ public class HumanApplicationService {
         updateHumanFields(human, input);
         setHumanCity(human, input.getCityId());
         Human updatedHuman = humanRepository.save(human);
+        worldRegistry.onHumanSaved(updatedHuman);
         return toHumanOutput(updatedHuman);
     }
 
     public boolean deleteHuman(Long id) {
         try {
+            worldRegistry.onHumanDeleted(id);
             humanRepository.deleteById(id);
             removeHumanFromSubscriptions(id);
             return true;
@@ -105,45 +343,129 @@ public class HumanApplicationService {
 
     private void setHumanCity(Human human, Long cityId) {
         if (cityId != null) {
-            Optional<City> city = cityRepository.findById(cityId);
-            if (city.isPresent()) {
-                human.setCity(city.get());
-            } else {
-                throw new IllegalArgumentException("City not found with id: " + cityId);
-            }
+            requireCity(cityId);
+            human.setCity(entityManager.getReference(City.class, cityId));
         }
     }
 
-    public void publishHumanUpdates(List<Human> humans) {
-        humans.forEach(human -> lastPositions.put(human.getId(), human));
-    }
-
-    public SseEmitter getCityPositionsStream(Long cityId) {
-        SseEmitter emitter = new SseEmitter(Long.MAX_VALUE);
-        ScheduledExecutorService executor = Executors.newScheduledThreadPool(1);
-        
-        executor.scheduleAtFixedRate(() -> {
-            try {
-                List<HumanOutput> changes = lastPositions.values().stream()
-                        .filter(human -> human.getCity() != null && human.getCity().getId().equals(cityId))
-                        .map(this::toHumanOutput)
-                        .toList();
-                lastPositions.clear();
-                emitter.send(SseEmitter.event().data(changes));
-            } catch (IOException e) {
-                emitter.completeWithError(e);
-                executor.shutdown();
-            }
-        }, 0, 100, TimeUnit.MILLISECONDS);
-        
-        emitter.onCompletion(() -> executor.shutdown());
-        emitter.onTimeout(() -> executor.shutdown());
-        
-        return emitter;
+    /**
+     * Publishes the slots of a world moved by a tick to the city's position streams, while holding the world monitor.
+     */
+    public void publishHumanUpdates(Long cityId, CityWorld world, int[] slots, int count) {
+        positionBroadcaster.publish(cityId, world, slots, count);
+    }
+
+    /**
+     * Opens a position stream, resuming after {@code lastEventId} when the missed frames are still available.
+     * With {@code hz}, at most that many frames are sent per second, each merging the ticks since the previous one.
+     * The stream counts against the caps of the node and of {@code username}.
+     */
+    public SseEmitter getCityPositionsStream(Long cityId, String username, String format, String lastEventId,
+                                            ViewportInput viewport, Double hz) {
+        requireCity(cityId);
+        return positionBroadcaster.subscribe(cityId, username, PositionStreamFormat.fromValue(format), lastEventId,
+                toBoundingBox(viewport), hz, box -> getHumansWithin(cityId, box));
+    }
+
+    /**
+     * Reactive variant of {@link #getCityPositionsStream}, holding no thread while the client is idle.
+     */
+    public Flux<ServerSentEvent<String>> getCityPositionsFlux(Long cityId, String username, String format,
+                                                              String lastEventId, ViewportInput viewport, Double hz) {
+        requireCity(cityId);
+        return positionBroadcaster.subscribeFlux(cityId, username, PositionStreamFormat.fromValue(format), lastEventId,
+                toBoundingBox(viewport), hz, box -> getHumansWithin(cityId, box));
+    }
+
+    /**
+     * Opens a position stream on a WebSocket session.
+     *
+     * @return the subscription id, to release with {@link #closePositionSocket} when the session closes
+     */
+    public String openPositionSocket(Long cityId, String username, WebSocketSession session, String format,
+                                     String lastEventId, ViewportInput viewport, Double hz) {
+        requireCity(cityId);
+        return positionBroadcaster.subscribe(cityId, username, session, PositionStreamFormat.fromValue(format), lastEventId,
+                toBoundingBox(viewport), hz, box -> getHumansWithin(cityId, box));
+    }
+
+    /**
+     * Checks the city against its cached summary; streams are only opened for cities that exist, so unknown
+     * ids get no hub on the broadcaster.
+     */
+    private void requireCity(Long cityId) {
+        if (cityRepository.findSummaryById(cityId).isEmpty()) {
+            throw new IllegalArgumentException("City not found with id: " + cityId);
+        }
+    }
+
+    public void closePositionSocket(String subscriptionId) {
+        positionBroadcaster.unsubscribe(subscriptionId);
+    }
+
+    public List<PositionStreamConnectionOutput> getPositionStreamConnections(Long cityId) {
+        return positionBroadcaster.getConnections(cityId);
+    }
+
+    public PositionStreamMetricsOutput getPositionStreamMetrics() {
+        return positionBroadcaster.getMetrics();
+    }
+
+    /**
+     * Moves the viewport of an open position stream; a null viewport streams the whole city again.
+     */
+    public boolean changeStreamViewport(Long cityId, String subscriptionId, ViewportInput viewport) {
+        return positionBroadcaster.changeViewport(cityId, subscriptionId, toBoundingBox(viewport),
+                box -> getHumansWithin(cityId, box));
+    }
+
+    private List<HumanOutput> getHumansWithin(Long cityId, BoundingBox box) {
+        if (box == null) {
+            return getHumansByCityId(cityId.toString());
+        }
+        return worldRegistry.find(cityId)
+                .map(world -> world.snapshotWithin(box).stream()
+                        .map(HumanApplicationService::toHumanOutput)
+                        .toList())
+                .orElseGet(() -> humanRepository.findOutputsByCityIdWithin(cityId, box.getMinX(), box.getMaxX(),
+                        box.getMinY(), box.getMaxY()));
+    }
+
+    private int pageLimit(Integer limit) {
+        if (limit == null) {
+            return defaultPageLimit;
+        }
+        if (limit < 1 || limit > maxPageLimit) {
+            throw new IllegalArgumentException("limit must be between 1 and " + maxPageLimit);
+        }
+        return limit;
+    }
+
+    /**
+     * Slice of the first {@code page.getPageSize()} humans, which has a next page when one more was read.
+     */
+    private static <T> Slice<T> toSlice(List<Human> humans, Pageable page, Function<Human, T> mapper) {
+        List<T> content = humans.stream()
+                .limit(page.getPageSize())
+                .map(mapper)
+                .toList();
+        return new SliceImpl<>(content, page, humans.size() > page.getPageSize());
+    }
+
+    private static BoundingBox toBoundingBox(ViewportInput viewport) {
+        if (viewport == null || (viewport.getMinX() == null && viewport.getMinY() == null
+                && viewport.getMaxX() == null && viewport.getMaxY() == null)) {
+            return null;
+        }
+        if (viewport.getMinX() == null || viewport.getMinY() == null
+                || viewport.getMaxX() == null || viewport.getMaxY() == null) {
+            throw new IllegalArgumentException("A viewport needs minX, minY, maxX and maxY");
+        }
+        return new BoundingBox(viewport.getMinX(), viewport.getMinY(), viewport.getMaxX(), viewport.getMaxY());
     }
 
     public void removeHumanFromSubscriptions(Long humanId) {
-        lastPositions.remove(humanId);
+        positionBroadcaster.forget(humanId);
     }
 
     public Personality derivePersonality(double creativity, double intellect, double sociability, double practicality) {
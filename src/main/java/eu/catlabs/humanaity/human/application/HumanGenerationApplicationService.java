@@ -16,6 +16,8 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 import java.util.Random;
 import java.util.concurrent.CompletableFuture;
@@ -27,6 +29,7 @@ import java.util.concurrent.TimeoutException;
 public class HumanGenerationApplicationService {
 
     private static final Logger logger = LoggerFactory.getLogger(HumanGenerationApplicationService.class);
+    private static final int FALLBACK_POPULATION = 5;
 
     private final AiGenerationService aiGenerationService;
     private final HumanGenerationPrompt promptBuilder;
@@ -43,20 +46,29 @@ public class HumanGenerationApplicationService {
         this.humanApplicationService = humanApplicationService;
     }
 
+    /**
+     * Generates the humans of a new city and inserts them in one bulk batch.
+     *
+     * @param population humans to generate locally, or null to ask the AI service for a handful
+     */
     @Transactional
-    public void generateHumansForCity(City city) {
+    public void generateHumansForCity(City city, Integer population) {
         if (city == null || city.getId() == null) {
             throw new IllegalArgumentException("City must be saved before generating humans");
         }
         
         try {
             JsonNode humans;
-            try {
-                humans = generateHumansWithAiAsync();
-                logger.info("Successfully generated humans using AI service for city {}", city.getId());
-            } catch (Exception e) {
-                logger.warn("OpenAI service unavailable, creating test data manually: {}", e.getMessage());
-                humans = createHumansManually();
+            if (population != null) {
+                humans = createHumansManually(population);
+            } else {
+                try {
+                    humans = generateHumansWithAiAsync();
+                    logger.info("Successfully generated humans using AI service for city {}", city.getId());
+                } catch (Exception e) {
+                    logger.warn("OpenAI service unavailable, creating test data manually: {}", e.getMessage());
+                    humans = createHumansManually(FALLBACK_POPULATION);
+                }
             }
 
             if (humans == null || !humans.isArray()) {
@@ -64,7 +76,7 @@ public class HumanGenerationApplicationService {
                 throw new RuntimeException("Invalid humans data structure");
             }
 
-            int createdCount = 0;
+            List<HumanInput> inputs = new ArrayList<>(humans.size());
             for (JsonNode node : humans) {
                 try {
                     HumanInput humanInput = new HumanInput();
@@ -83,12 +95,12 @@ public class HumanGenerationApplicationService {
                     ));
                     humanInput.setX(faker.number().randomDouble(3, 0, 1));
                     humanInput.setY(faker.number().randomDouble(3, 0, 1));
-                    this.humanApplicationService.createHuman(humanInput);
-                    createdCount++;
+                    inputs.add(humanInput);
                 } catch (Exception e) {
                     logger.error("Error creating human for city {}: {}", city.getId(), e.getMessage(), e);
                 }
             }
+            int createdCount = this.humanApplicationService.createHumans(city.getId(), inputs);
             
             if (createdCount == 0) {
                 throw new RuntimeException("Failed to create any humans for city " + city.getId());
@@ -137,10 +149,10 @@ public class HumanGenerationApplicationService {
         }
     }
 
-    private JsonNode createHumansManually() throws JsonProcessingException {
+    private JsonNode createHumansManually(int population) {
         com.fasterxml.jackson.databind.node.ArrayNode arrayNode = objectMapper.createArrayNode();
         
-        for (int i = 0; i < 5; i++) {
+        for (int i = 0; i < population; i++) {
             double creativity = random.nextDouble();
             double intellect = random.nextDouble();
             double sociability = random.nextDouble();
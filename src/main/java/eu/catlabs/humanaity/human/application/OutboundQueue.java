@@ -0,0 +1,141 @@
+package eu.catlabs.humanaity.human.application;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.function.Function;
+
+/**
+ * Bounded queue of the messages a stream client has not taken yet, applying the slow consumer policy
+ * when it is full. Only frames and heartbeats are droppable: subscription, snapshot and replayed messages
+ * are always queued, so the client state stays consistent up to a gap in sequence numbers. A dropped frame
+ * is merged into the next queued frame, or into the frame being queued, so the humans it moved still reach
+ * the client with their latest state.
+ * Callers synchronize on the subscription owning the queue.
+ */
+class OutboundQueue<T> {
+
+    private final Deque<Entry<T>> messages = new ArrayDeque<>();
+    private final int capacity;
+    private final SlowConsumerPolicy policy;
+    private final Function<EncodedFrame, T> wrap;
+    private int maxDepth;
+    private long dropped;
+
+    /**
+     * @param wrap message of the transport for a frame
+     */
+    OutboundQueue(int capacity, SlowConsumerPolicy policy, Function<EncodedFrame, T> wrap) {
+        this.capacity = capacity;
+        this.policy = policy;
+        this.wrap = wrap;
+    }
+
+    /**
+     * Queues a message other than a frame; a droppable one, a heartbeat, is discarded when the queue is full.
+     */
+    boolean offer(T message, boolean droppable) {
+        if (droppable && messages.size() >= capacity) {
+            return true;
+        }
+        add(new Entry<>(message, droppable, null));
+        return true;
+    }
+
+    /**
+     * Queues a frame, making room by dropping the oldest droppable message when the queue is full.
+     *
+     * @return false when the client has to be disconnected instead
+     */
+    boolean offer(EncodedFrame frame) {
+        Entry<T> entry = new Entry<>(wrap.apply(frame), true, frame);
+        if (messages.size() >= capacity) {
+            if (policy == SlowConsumerPolicy.DISCONNECT) {
+                dropped++;
+                return false;
+            }
+            dropOldest(entry);
+        }
+        add(entry);
+        return true;
+    }
+
+    T poll() {
+        Entry<T> entry = messages.pollFirst();
+        return entry != null ? entry.message : null;
+    }
+
+    boolean isEmpty() {
+        return messages.isEmpty();
+    }
+
+    void clear() {
+        messages.clear();
+    }
+
+    int size() {
+        return messages.size();
+    }
+
+    int getMaxDepth() {
+        return maxDepth;
+    }
+
+    /**
+     * Frames dropped from the queue, merged into a later frame under the {@code latest} policy.
+     */
+    long getDropped() {
+        return dropped;
+    }
+
+    private void add(Entry<T> entry) {
+        messages.addLast(entry);
+        maxDepth = Math.max(maxDepth, messages.size());
+    }
+
+    /**
+     * Drops the oldest droppable message; a frame is merged into the next queued frame, or into
+     * {@code incoming} when none is left. A queue holding only messages that cannot be dropped grows instead.
+     */
+    private void dropOldest(Entry<T> incoming) {
+        Entry<T> oldest = null;
+        Iterator<Entry<T>> iterator = messages.iterator();
+        while (iterator.hasNext()) {
+            Entry<T> entry = iterator.next();
+            if (oldest == null) {
+                if (entry.droppable) {
+                    oldest = entry;
+                    iterator.remove();
+                    if (entry.frame == null) {
+                        return;
+                    }
+                    dropped++;
+                }
+            } else if (entry.frame != null) {
+                entry.absorb(oldest.frame, wrap);
+                return;
+            }
+        }
+        if (oldest != null) {
+            incoming.absorb(oldest.frame, wrap);
+        }
+    }
+
+    private static final class Entry<T> {
+
+        private T message;
+        private final boolean droppable;
+        private EncodedFrame frame;
+
+        private Entry(T message, boolean droppable, EncodedFrame frame) {
+            this.message = message;
+            this.droppable = droppable;
+            this.frame = frame;
+        }
+
+        private void absorb(EncodedFrame older, Function<EncodedFrame, T> wrap) {
+            frame = frame.absorb(older);
+            message = wrap.apply(frame);
+        }
+    }
+}
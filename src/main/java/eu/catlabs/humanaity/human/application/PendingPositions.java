@@ -0,0 +1,194 @@
+package eu.catlabs.humanaity.human.application;
+
+import eu.catlabs.humanaity.human.domain.Human;
+import eu.catlabs.humanaity.simulation.domain.CityWorld;
+
+import java.util.Arrays;
+
+/**
+ * Moved humans of one city waiting for the next frame, coalesced to the latest state per human.
+ * Hot fields are copied into primitive arrays when they are published, so a frame holds the state of that
+ * moment; the humans are only kept for their cold attributes. Updates are coalesced through an open-addressing
+ * index by id, so publishing allocates nothing once the buffers have grown to the city's moved humans.
+ * Publishing and draining only touch this city's updates; a drain swaps the buffer out under the lock,
+ * so each update lands in exactly one frame. Only one thread drains at a time, and it alone keeps the
+ * positions sent so far, which frames carry as each human's previous position.
+ */
+class PendingPositions {
+
+    private Buffer latest = new Buffer();
+    private Buffer spare = new Buffer();
+    private final Buffer sent = new Buffer();
+
+    /**
+     * Copies the hot fields of the given slots; must be called while holding the world monitor.
+     */
+    synchronized void put(CityWorld world, int[] slots, int count) {
+        for (int i = 0; i < count; i++) {
+            int slot = slots[i];
+            latest.put(world.id(slot), world.human(slot), world.x(slot), world.y(slot), world.isBusy(slot));
+        }
+    }
+
+    synchronized void put(long id, Human human, double x, double y, boolean busy) {
+        latest.put(id, human, x, y, busy);
+    }
+
+    synchronized void remove(long humanId) {
+        latest.remove(humanId);
+    }
+
+    /**
+     * Cuts a frame from the updates published since the last drain.
+     */
+    PositionFrame drain(long sequence) {
+        Buffer drained;
+        synchronized (this) {
+            drained = latest;
+            latest = spare;
+        }
+        PositionFrame frame = drained.toFrame(sequence, sent);
+        drained.clear();
+        synchronized (this) {
+            spare = drained;
+        }
+        return frame;
+    }
+
+    private static final class Buffer {
+
+        private static final int EMPTY = 0;
+
+        private long[] keys = new long[64];
+        private int[] entries = new int[64];
+        private long[] ids = new long[32];
+        private Human[] humans = new Human[32];
+        private double[] x = new double[32];
+        private double[] y = new double[32];
+        private boolean[] busy = new boolean[32];
+        private int size;
+        private int removed;
+
+        void put(long id, Human human, double newX, double newY, boolean newBusy) {
+            int index = indexOf(id);
+            if (index == -1) {
+                index = append(id);
+            } else if (humans[index] == null) {
+                removed--;
+            }
+            humans[index] = human;
+            x[index] = newX;
+            y[index] = newY;
+            busy[index] = newBusy;
+        }
+
+        /**
+         * Leaves an entry without its human, so it is skipped when the frame is cut and the human's position
+         * sent so far is forgotten.
+         */
+        void remove(long id) {
+            int index = indexOf(id);
+            if (index == -1) {
+                index = append(id);
+            } else if (humans[index] == null) {
+                return;
+            }
+            humans[index] = null;
+            removed++;
+        }
+
+        /**
+         * Cuts the frame and records its positions in {@code sent}, taking the previous ones from it.
+         */
+        PositionFrame toFrame(long sequence, Buffer sent) {
+            int count = size - removed;
+            Human[] frameHumans = new Human[count];
+            long[] frameIds = new long[count];
+            double[] frameX = new double[count];
+            double[] frameY = new double[count];
+            boolean[] frameBusy = new boolean[count];
+            double[] framePreviousX = new double[count];
+            double[] framePreviousY = new double[count];
+            int k = 0;
+            for (int i = 0; i < size; i++) {
+                if (humans[i] == null) {
+                    sent.remove(ids[i]);
+                    continue;
+                }
+                int previous = sent.indexOf(ids[i]);
+                boolean known = previous != -1 && sent.humans[previous] != null;
+                frameHumans[k] = humans[i];
+                frameIds[k] = ids[i];
+                frameX[k] = x[i];
+                frameY[k] = y[i];
+                frameBusy[k] = busy[i];
+                framePreviousX[k] = known ? sent.x[previous] : Double.NaN;
+                framePreviousY[k] = known ? sent.y[previous] : Double.NaN;
+                sent.put(ids[i], humans[i], x[i], y[i], busy[i]);
+                k++;
+            }
+            return new PositionFrame(sequence, Arrays.asList(frameHumans), frameIds, frameX, frameY, frameBusy,
+                    framePreviousX, framePreviousY);
+        }
+
+        void clear() {
+            if (size > 0) {
+                Arrays.fill(entries, EMPTY);
+                Arrays.fill(humans, 0, size, null);
+            }
+            size = 0;
+            removed = 0;
+        }
+
+        /**
+         * Index of the id's entry, or -1 when it has none.
+         */
+        private int indexOf(long id) {
+            return entries[bucketOf(id)] - 1;
+        }
+
+        private int append(long id) {
+            if (size == ids.length) {
+                grow();
+            }
+            int bucket = bucketOf(id);
+            keys[bucket] = id;
+            entries[bucket] = size + 1;
+            ids[size] = id;
+            return size++;
+        }
+
+        /**
+         * Bucket holding the id, or the empty bucket where it belongs; the index is kept at most half full.
+         */
+        private int bucketOf(long id) {
+            int mask = keys.length - 1;
+            int bucket = (int) (mix(id) & mask);
+            while (entries[bucket] != EMPTY && keys[bucket] != id) {
+                bucket = (bucket + 1) & mask;
+            }
+            return bucket;
+        }
+
+        private void grow() {
+            int capacity = ids.length * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            humans = Arrays.copyOf(humans, capacity);
+            x = Arrays.copyOf(x, capacity);
+            y = Arrays.copyOf(y, capacity);
+            busy = Arrays.copyOf(busy, capacity);
+            keys = new long[capacity * 2];
+            entries = new int[capacity * 2];
+            for (int i = 0; i < size; i++) {
+                int bucket = bucketOf(ids[i]);
+                keys[bucket] = ids[i];
+                entries[bucket] = i + 1;
+            }
+        }
+
+        private static long mix(long id) {
+            long h = id * 0x9E3779B97F4A7C15L;
+            return h ^ (h >>> 32);
+        }
+    }
+}
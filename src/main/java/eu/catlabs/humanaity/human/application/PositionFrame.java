@@ -0,0 +1,209 @@
+package eu.catlabs.humanaity.human.application;
+
+import eu.catlabs.humanaity.human.domain.Human;
+import eu.catlabs.humanaity.simulation.domain.BoundingBox;
+import eu.catlabs.humanaity.simulation.domain.SpatialGrid;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One sequenced frame of a city stream. Hot fields come from the positions copied when the humans were
+ * published, so replaying it later sends the positions of that moment; the humans are only kept for their
+ * cold attributes.
+ * Each human also carries the position last sent for it, NaN when none was, so a viewport cut keeps the humans
+ * leaving the box as well as those inside it, and clients learn they left.
+ * Viewport subsets are cut through a spatial grid over the frame, built on first use, and consecutive
+ * frames can be merged for subscribers with a lower frame rate. Frames do not change once cut, apart from
+ * the grid, which is built under the frame's lock since replays read frames outside their hub's lock.
+ */
+class PositionFrame {
+
+    private static final double INDEX_CELL_SIZE = 0.05;
+
+    private final long sequence;
+    private final List<Human> humans;
+    private final long[] ids;
+    private final double[] x;
+    private final double[] y;
+    private final boolean[] busy;
+    private final double[] previousX;
+    private final double[] previousY;
+    private SpatialGrid index;
+    private int[] unplaced;
+
+    PositionFrame(long sequence, List<Human> humans, long[] ids, double[] x, double[] y, boolean[] busy,
+                  double[] previousX, double[] previousY) {
+        this.sequence = sequence;
+        this.humans = humans;
+        this.ids = ids;
+        this.x = x;
+        this.y = y;
+        this.busy = busy;
+        this.previousX = previousX;
+        this.previousY = previousY;
+    }
+
+    /**
+     * One frame holding the latest state of every human moved in the given frames, with the sequence
+     * number of the newest one and the previous position from the oldest one.
+     *
+     * @param newestFirst frames, from the newest to the oldest
+     */
+    static PositionFrame merge(List<PositionFrame> newestFirst) {
+        if (newestFirst.size() == 1) {
+            return newestFirst.get(0);
+        }
+        int capacity = 0;
+        for (PositionFrame frame : newestFirst) {
+            capacity += frame.size();
+        }
+        Map<Long, Integer> seen = new HashMap<>(capacity * 2);
+        List<Human> mergedHumans = new ArrayList<>(capacity);
+        long[] mergedIds = new long[capacity];
+        double[] mergedX = new double[capacity];
+        double[] mergedY = new double[capacity];
+        boolean[] mergedBusy = new boolean[capacity];
+        double[] mergedPreviousX = new double[capacity];
+        double[] mergedPreviousY = new double[capacity];
+        int size = 0;
+        for (PositionFrame frame : newestFirst) {
+            for (int i = 0; i < frame.size(); i++) {
+                Integer merged = seen.putIfAbsent(frame.ids[i], size);
+                if (merged == null) {
+                    mergedHumans.add(frame.humans.get(i));
+                    mergedIds[size] = frame.ids[i];
+                    mergedX[size] = frame.x[i];
+                    mergedY[size] = frame.y[i];
+                    mergedBusy[size] = frame.busy[i];
+                    merged = size++;
+                }
+                mergedPreviousX[merged] = frame.previousX[i];
+                mergedPreviousY[merged] = frame.previousY[i];
+            }
+        }
+        return new PositionFrame(newestFirst.get(0).sequence, mergedHumans, Arrays.copyOf(mergedIds, size),
+                Arrays.copyOf(mergedX, size), Arrays.copyOf(mergedY, size), Arrays.copyOf(mergedBusy, size),
+                Arrays.copyOf(mergedPreviousX, size), Arrays.copyOf(mergedPreviousY, size));
+    }
+
+    /**
+     * The part of this frame seen from the box, with the same sequence number: the humans inside it, and those
+     * whose previous position was inside it, or is unknown, so clients see them leave.
+     */
+    PositionFrame within(BoundingBox box) {
+        SpatialGrid index = index();
+        int count = ids.length;
+        int[] matches = new int[Math.min(count, 64)];
+        int size = 0;
+        int lastColumn = index.column(box.getMaxX());
+        int lastRow = index.row(box.getMaxY());
+        for (int row = index.row(box.getMinY()); row <= lastRow; row++) {
+            for (int column = index.column(box.getMinX()); column <= lastColumn; column++) {
+                for (int entry = index.first(column, row); entry != -1; entry = index.next(entry)) {
+                    boolean matched = entry < count
+                            ? box.contains(x[entry], y[entry]) && !Double.isNaN(previousX[entry])
+                            : box.contains(previousX[entry - count], previousY[entry - count])
+                            && !box.contains(x[entry - count], y[entry - count]);
+                    if (matched) {
+                        if (size == matches.length) {
+                            matches = Arrays.copyOf(matches, size * 2);
+                        }
+                        matches[size++] = entry < count ? entry : entry - count;
+                    }
+                }
+            }
+        }
+        if (unplaced.length > 0) {
+            matches = Arrays.copyOf(matches, size + unplaced.length);
+            for (int i : unplaced) {
+                matches[size++] = i;
+            }
+        }
+        List<Human> subsetHumans = new ArrayList<>(size);
+        long[] subsetIds = new long[size];
+        double[] subsetX = new double[size];
+        double[] subsetY = new double[size];
+        boolean[] subsetBusy = new boolean[size];
+        double[] subsetPreviousX = new double[size];
+        double[] subsetPreviousY = new double[size];
+        for (int k = 0; k < size; k++) {
+            int i = matches[k];
+            subsetHumans.add(humans.get(i));
+            subsetIds[k] = ids[i];
+            subsetX[k] = x[i];
+            subsetY[k] = y[i];
+            subsetBusy[k] = busy[i];
+            subsetPreviousX[k] = previousX[i];
+            subsetPreviousY[k] = previousY[i];
+        }
+        return new PositionFrame(sequence, subsetHumans, subsetIds, subsetX, subsetY, subsetBusy,
+                subsetPreviousX, subsetPreviousY);
+    }
+
+    /**
+     * Grid over the new positions, as entries {@code 0..size-1}, and the known previous positions, as entries
+     * {@code size..2*size-1}; humans without a previous position are kept aside and go to every cut.
+     */
+    private synchronized SpatialGrid index() {
+        if (index == null) {
+            int count = ids.length;
+            SpatialGrid grid = new SpatialGrid(INDEX_CELL_SIZE, count * 2);
+            int[] withoutPrevious = new int[count];
+            int unknown = 0;
+            for (int i = 0; i < count; i++) {
+                grid.insert(i, x[i], y[i]);
+                if (Double.isNaN(previousX[i])) {
+                    withoutPrevious[unknown++] = i;
+                } else {
+                    grid.insert(count + i, previousX[i], previousY[i]);
+                }
+            }
+            unplaced = Arrays.copyOf(withoutPrevious, unknown);
+            index = grid;
+        }
+        return index;
+    }
+
+    long getSequence() {
+        return sequence;
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    Human human(int index) {
+        return humans.get(index);
+    }
+
+    long id(int index) {
+        return ids[index];
+    }
+
+    double x(int index) {
+        return x[index];
+    }
+
+    double y(int index) {
+        return y[index];
+    }
+
+    boolean isBusy(int index) {
+        return busy[index];
+    }
+
+    /**
+     * Position last sent for the human before this frame, NaN when none was.
+     */
+    double previousX(int index) {
+        return previousX[index];
+    }
+
+    double previousY(int index) {
+        return previousY[index];
+    }
+}
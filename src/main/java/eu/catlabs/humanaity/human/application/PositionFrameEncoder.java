@@ -0,0 +1,98 @@
+package eu.catlabs.humanaity.human.application;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.catlabs.humanaity.human.api.dto.HumanOutput;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Serializes position frames into a reused buffer, in any {@link PositionStreamFormat}.
+ * Binary records are returned raw; transports encode them as they need.
+ * Not thread-safe; each thread encoding frames needs its own instance.
+ */
+class PositionFrameEncoder {
+
+    static final int QUANTIZATION_SCALE = 65535;
+    private static final int BINARY_RECORD_BYTES = Long.BYTES + 2 * Short.BYTES + 1;
+
+    private final ObjectMapper objectMapper;
+    private final ByteArrayOutputStream buffer = new ByteArrayOutputStream(8192);
+    private ByteBuffer records = ByteBuffer.allocate(BINARY_RECORD_BYTES * 64);
+
+    PositionFrameEncoder(ObjectMapper objectMapper) {
+        this.objectMapper = objectMapper;
+    }
+
+    byte[] encode(PositionStreamFormat format, PositionFrame frame) {
+        buffer.reset();
+        try {
+            switch (format) {
+                case FULL -> objectMapper.writeValue(buffer, toHumanOutputs(frame));
+                case DELTA -> writeRows(frame, false);
+                case QUANTIZED -> writeRows(frame, true);
+                case BINARY -> writeBinary(frame);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return buffer.toByteArray();
+    }
+
+    private List<HumanOutput> toHumanOutputs(PositionFrame frame) {
+        List<HumanOutput> outputs = new ArrayList<>(frame.size());
+        for (int i = 0; i < frame.size(); i++) {
+            HumanOutput output = HumanApplicationService.toHumanOutput(frame.human(i));
+            output.setX(frame.x(i));
+            output.setY(frame.y(i));
+            output.setBusy(frame.isBusy(i));
+            outputs.add(output);
+        }
+        return outputs;
+    }
+
+    private void writeRows(PositionFrame frame, boolean quantized) throws IOException {
+        try (JsonGenerator generator = objectMapper.getFactory().createGenerator((OutputStream) buffer)) {
+            generator.writeStartArray();
+            for (int i = 0; i < frame.size(); i++) {
+                generator.writeStartArray();
+                generator.writeNumber(frame.id(i));
+                if (quantized) {
+                    generator.writeNumber(quantize(frame.x(i)));
+                    generator.writeNumber(quantize(frame.y(i)));
+                } else {
+                    generator.writeNumber(frame.x(i));
+                    generator.writeNumber(frame.y(i));
+                }
+                generator.writeNumber(frame.isBusy(i) ? 1 : 0);
+                generator.writeEndArray();
+            }
+            generator.writeEndArray();
+        }
+    }
+
+    private void writeBinary(PositionFrame frame) {
+        int size = frame.size() * BINARY_RECORD_BYTES;
+        if (records.capacity() < size) {
+            records = ByteBuffer.allocate(Math.max(size, records.capacity() * 2));
+        }
+        records.clear();
+        for (int i = 0; i < frame.size(); i++) {
+            records.putLong(frame.id(i));
+            records.putShort((short) quantize(frame.x(i)));
+            records.putShort((short) quantize(frame.y(i)));
+            records.put((byte) (frame.isBusy(i) ? 1 : 0));
+        }
+        buffer.write(records.array(), 0, records.position());
+    }
+
+    static int quantize(double value) {
+        return (int) Math.round(Math.max(0, Math.min(1, value)) * QUANTIZATION_SCALE);
+    }
+}
@@ -0,0 +1,43 @@
+package eu.catlabs.humanaity.human.application;
+
+import java.util.Arrays;
+
+/**
+ * Wire formats of the city position stream.
+ * {@code full} sends every moved human as a {@code HumanOutput} list. The compact formats first send a
+ * {@code snapshot} event with the full attributes of the city, then {@code delta} events holding only
+ * {@code [id, x, y, busy]} of the moved humans.
+ */
+public enum PositionStreamFormat {
+    /** List of {@code HumanOutput}, as the stream always sent. */
+    FULL("full"),
+    /** JSON rows {@code [id, x, y, busy]} with double coordinates and busy as 0 or 1. */
+    DELTA("delta"),
+    /** Like {@link #DELTA}, with coordinates as 16-bit fixed point ({@code round(x * 65535)}). */
+    QUANTIZED("quantized"),
+    /**
+     * 13-byte big-endian records: int64 id, uint16 x, uint16 y, uint8 busy. Base64 encoded in server-sent
+     * events; WebSocket binary messages carry them raw after the int64 sequence.
+     */
+    BINARY("binary");
+
+    private final String value;
+
+    PositionStreamFormat(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public static PositionStreamFormat fromValue(String value) {
+        if (value == null) {
+            return FULL;
+        }
+        return Arrays.stream(values())
+                .filter(format -> format.value.equalsIgnoreCase(value))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown stream format: " + value));
+    }
+}
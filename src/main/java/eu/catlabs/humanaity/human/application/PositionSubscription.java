@@ -0,0 +1,151 @@
+package eu.catlabs.humanaity.human.application;
+
+import eu.catlabs.humanaity.human.api.dto.HumanOutput;
+import eu.catlabs.humanaity.simulation.domain.BoundingBox;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * One client of a city stream: its format, optional viewport, frame rate and the transport its events are written to.
+ */
+abstract class PositionSubscription {
+
+    private final String id = UUID.randomUUID().toString();
+    private final Long cityId;
+    private final PositionStreamFormat format;
+    private volatile BoundingBox viewport;
+    private int frameStride = 1;
+    private String owner;
+    private volatile long lastSentNanos = System.nanoTime();
+    private final Object catchUpLock = new Object();
+
+    PositionSubscription(Long cityId, PositionStreamFormat format, BoundingBox viewport) {
+        this.cityId = cityId;
+        this.format = format;
+        this.viewport = viewport;
+    }
+
+    String getId() {
+        return id;
+    }
+
+    Long getCityId() {
+        return cityId;
+    }
+
+    PositionStreamFormat getFormat() {
+        return format;
+    }
+
+    /**
+     * Viewport grown by the stream margin, or null for the whole city.
+     */
+    BoundingBox getViewport() {
+        return viewport;
+    }
+
+    void setViewport(BoundingBox viewport) {
+        this.viewport = viewport;
+    }
+
+    /**
+     * Held while the subscriber is brought up to date outside its hub's lock, when it subscribes or moves its
+     * viewport, so those never interleave.
+     */
+    Object getCatchUpLock() {
+        return catchUpLock;
+    }
+
+    /**
+     * Number of frames merged into each frame sent, 1 for every frame.
+     */
+    int getFrameStride() {
+        return frameStride;
+    }
+
+    /**
+     * Set before the subscription is registered.
+     */
+    void setFrameStride(int frameStride) {
+        this.frameStride = frameStride;
+    }
+
+    /**
+     * User the stream counts against, set before the subscription is registered.
+     */
+    String getOwner() {
+        return owner;
+    }
+
+    void setOwner(String owner) {
+        this.owner = owner;
+    }
+
+    /**
+     * When the client last took a message: written out for server-sent events, completed or requested otherwise.
+     */
+    long getLastSentNanos() {
+        return lastSentNanos;
+    }
+
+    void markSent() {
+        lastSentNanos = System.nanoTime();
+    }
+
+    abstract String getTransport();
+
+    /**
+     * Frames waiting to be written to the client.
+     */
+    int getQueueDepth() {
+        return 0;
+    }
+
+    int getMaxQueueDepth() {
+        return 0;
+    }
+
+    long getSentMessages() {
+        return 0;
+    }
+
+    long getDroppedFrames() {
+        return 0;
+    }
+
+    /**
+     * Whether a write to the client has been blocked for longer than {@code timeoutNanos}, for transports
+     * whose writes block.
+     */
+    boolean isWriteStalled(long now, long timeoutNanos) {
+        return false;
+    }
+
+    /**
+     * Sends the {@code subscription} event carrying the id of this subscription.
+     */
+    abstract void sendSubscription() throws IOException;
+
+    abstract void sendSnapshot(String eventId, List<HumanOutput> humans) throws IOException;
+
+    abstract void send(EncodedFrame frame) throws IOException;
+
+    /**
+     * Sends a frame missed by a resuming client, which must not be dropped.
+     */
+    void replay(EncodedFrame frame) throws IOException {
+        send(frame);
+    }
+
+    /**
+     * Sends a keep-alive on a quiet stream, so a dead peer shows up as a failed write.
+     */
+    abstract void sendHeartbeat() throws IOException;
+
+    /**
+     * Ends the stream after a failed send.
+     */
+    abstract void fail(Exception cause);
+}
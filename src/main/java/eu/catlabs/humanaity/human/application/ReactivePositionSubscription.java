@@ -0,0 +1,155 @@
+package eu.catlabs.humanaity.human.application;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.catlabs.humanaity.human.api.dto.HumanOutput;
+import eu.catlabs.humanaity.simulation.domain.BoundingBox;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.FluxSink;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Subscription emitted through a {@code Flux} of server-sent events, driven by the subscriber's demand.
+ * Events go to the sink only while the subscriber has requested them; the rest wait in a bounded queue
+ * under the slow consumer policy, so the broadcast never blocks and an idle connection holds no thread.
+ */
+class ReactivePositionSubscription extends PositionSubscription {
+
+    private static final ServerSentEvent<String> HEARTBEAT = ServerSentEvent.<String>builder().comment("heartbeat").build();
+
+    private final ObjectMapper objectMapper;
+    private final OutboundQueue<ServerSentEvent<String>> queue;
+    private FluxSink<ServerSentEvent<String>> sink;
+    private boolean closed;
+    private long sentMessages;
+
+    ReactivePositionSubscription(Long cityId, PositionStreamFormat format, BoundingBox viewport,
+                                 ObjectMapper objectMapper, int queueCapacity, SlowConsumerPolicy policy) {
+        super(cityId, format, viewport);
+        this.objectMapper = objectMapper;
+        this.queue = new OutboundQueue<>(queueCapacity, policy, EncodedFrame::reactiveEvent);
+    }
+
+    /**
+     * Attaches the sink of the subscribed {@code Flux}; {@code onClose} runs when the subscriber cancels.
+     */
+    synchronized void attach(FluxSink<ServerSentEvent<String>> sink, Runnable onClose) {
+        this.sink = sink;
+        sink.onRequest(requested -> drain());
+        sink.onDispose(() -> {
+            synchronized (this) {
+                closed = true;
+                queue.clear();
+            }
+            onClose.run();
+        });
+    }
+
+    @Override
+    String getTransport() {
+        return "reactive";
+    }
+
+    @Override
+    synchronized int getQueueDepth() {
+        return queue.size();
+    }
+
+    @Override
+    synchronized int getMaxQueueDepth() {
+        return queue.getMaxDepth();
+    }
+
+    @Override
+    synchronized long getSentMessages() {
+        return sentMessages;
+    }
+
+    @Override
+    synchronized long getDroppedFrames() {
+        return queue.getDropped();
+    }
+
+    @Override
+    void sendSubscription() throws IOException {
+        enqueue(ServerSentEvent.builder(getId()).event("subscription").build(), false);
+    }
+
+    @Override
+    void sendSnapshot(String eventId, List<HumanOutput> humans) throws IOException {
+        enqueue(ServerSentEvent.builder(objectMapper.writeValueAsString(humans))
+                .event("snapshot")
+                .id(eventId)
+                .build(), false);
+    }
+
+    @Override
+    synchronized void send(EncodedFrame frame) throws IOException {
+        if (!emitNow(frame.reactiveEvent())) {
+            offered(queue.offer(frame));
+        }
+    }
+
+    @Override
+    void replay(EncodedFrame frame) throws IOException {
+        enqueue(frame.reactiveEvent(), false);
+    }
+
+    @Override
+    void sendHeartbeat() throws IOException {
+        enqueue(HEARTBEAT, true);
+    }
+
+    @Override
+    synchronized void fail(Exception cause) {
+        if (!closed) {
+            closed = true;
+            queue.clear();
+            sink.error(cause);
+        }
+    }
+
+    private synchronized void enqueue(ServerSentEvent<String> event, boolean droppable) throws IOException {
+        if (!emitNow(event)) {
+            offered(queue.offer(event, droppable));
+        }
+    }
+
+    /**
+     * Emits the event right away when the subscriber has requested it and nothing is queued before it.
+     *
+     * @return false when the event has to be queued
+     */
+    private synchronized boolean emitNow(ServerSentEvent<String> event) throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        if (queue.isEmpty() && sink.requestedFromDownstream() > 0) {
+            emit(event);
+            return true;
+        }
+        return false;
+    }
+
+    private void offered(boolean queued) throws IOException {
+        if (!queued) {
+            closed = true;
+            queue.clear();
+            sink.complete();
+            throw new IOException("Slow consumer disconnected");
+        }
+    }
+
+    private synchronized void drain() {
+        while (!closed && sink.requestedFromDownstream() > 0 && !queue.isEmpty()) {
+            emit(queue.poll());
+        }
+    }
+
+    private void emit(ServerSentEvent<String> event) {
+        sentMessages++;
+        markSent();
+        sink.next(event);
+    }
+}
@@ -0,0 +1,30 @@
+package eu.catlabs.humanaity.human.application;
+
+import java.util.Arrays;
+
+/**
+ * What a position stream does when its client falls behind and the outbound queue is full.
+ */
+public enum SlowConsumerPolicy {
+    /** Drops the oldest queued frames, merged into the next one, so the client catches up without losing moves. */
+    LATEST("latest"),
+    /** Closes the connection with status 1013, so the client reconnects and resumes from its last frame. */
+    DISCONNECT("disconnect");
+
+    private final String value;
+
+    SlowConsumerPolicy(String value) {
+        this.value = value;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public static SlowConsumerPolicy fromValue(String value) {
+        return Arrays.stream(values())
+                .filter(policy -> policy.value.equalsIgnoreCase(value))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unknown slow consumer policy: " + value));
+    }
+}
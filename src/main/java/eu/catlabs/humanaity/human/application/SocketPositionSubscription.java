@@ -0,0 +1,202 @@
+package eu.catlabs.humanaity.human.application;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.catlabs.humanaity.human.api.dto.HumanOutput;
+import eu.catlabs.humanaity.simulation.domain.BoundingBox;
+import jakarta.websocket.RemoteEndpoint;
+import jakarta.websocket.SendResult;
+import jakarta.websocket.Session;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.adapter.NativeWebSocketSession;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.Executor;
+
+/**
+ * Subscription written to a WebSocket through a bounded outbound queue.
+ * Sends never block the caller: one message is in flight on the container's asynchronous endpoint and
+ * the next one is taken from the queue when it completes. When the queue is full the slow consumer
+ * policy either drops the oldest queued frame or disconnects the client.
+ */
+class SocketPositionSubscription extends PositionSubscription {
+
+    private static final Logger logger = LoggerFactory.getLogger(SocketPositionSubscription.class);
+
+    private static final TextMessage HEARTBEAT = new TextMessage("{\"event\":\"heartbeat\"}");
+
+    private final WebSocketSession session;
+    private final RemoteEndpoint.Async remote;
+    private final ObjectMapper objectMapper;
+    private final Executor closer;
+    private final OutboundQueue<WebSocketMessage<?>> queue;
+    private boolean writing;
+    private boolean closed;
+    private long sentMessages;
+
+    SocketPositionSubscription(Long cityId, PositionStreamFormat format, BoundingBox viewport, WebSocketSession session,
+                               ObjectMapper objectMapper, int queueCapacity, SlowConsumerPolicy policy,
+                               long sendTimeoutMs, Executor closer) {
+        super(cityId, format, viewport);
+        Session nativeSession = WebSocketSessionDecorator.unwrap(session) instanceof NativeWebSocketSession standard
+                ? standard.getNativeSession(Session.class) : null;
+        if (nativeSession == null) {
+            throw new IllegalStateException("Position streams need a standard WebSocket session");
+        }
+        this.session = session;
+        this.remote = nativeSession.getAsyncRemote();
+        this.remote.setSendTimeout(sendTimeoutMs);
+        this.objectMapper = objectMapper;
+        this.queue = new OutboundQueue<>(queueCapacity, policy, EncodedFrame::socketMessage);
+        this.closer = closer;
+    }
+
+    String getSessionId() {
+        return session.getId();
+    }
+
+    @Override
+    String getTransport() {
+        return "websocket";
+    }
+
+    @Override
+    synchronized int getQueueDepth() {
+        return queue.size();
+    }
+
+    @Override
+    synchronized int getMaxQueueDepth() {
+        return queue.getMaxDepth();
+    }
+
+    @Override
+    synchronized long getSentMessages() {
+        return sentMessages;
+    }
+
+    @Override
+    synchronized long getDroppedFrames() {
+        return queue.getDropped();
+    }
+
+    @Override
+    void sendSubscription() throws IOException {
+        enqueue(new TextMessage("{\"event\":\"subscription\",\"data\":\"" + getId() + "\"}"), false);
+    }
+
+    @Override
+    void sendSnapshot(String eventId, List<HumanOutput> humans) throws IOException {
+        enqueue(new TextMessage("{\"event\":\"snapshot\",\"id\":\"" + eventId + "\",\"data\":"
+                + objectMapper.writeValueAsString(humans) + "}"), false);
+    }
+
+    @Override
+    synchronized void send(EncodedFrame frame) throws IOException {
+        if (!startWriting(frame.socketMessage())) {
+            offered(queue.offer(frame));
+        }
+    }
+
+    @Override
+    void replay(EncodedFrame frame) throws IOException {
+        enqueue(frame.socketMessage(), false);
+    }
+
+    @Override
+    void sendHeartbeat() throws IOException {
+        enqueue(HEARTBEAT, true);
+    }
+
+    @Override
+    void fail(Exception cause) {
+        close(CloseStatus.SERVER_ERROR);
+    }
+
+    private synchronized void enqueue(WebSocketMessage<?> message, boolean droppable) throws IOException {
+        if (!startWriting(message)) {
+            offered(queue.offer(message, droppable));
+        }
+    }
+
+    /**
+     * Writes the message right away when none is in flight.
+     *
+     * @return false when the message has to be queued
+     */
+    private synchronized boolean startWriting(WebSocketMessage<?> message) throws IOException {
+        if (closed) {
+            throw new IOException("Connection closed");
+        }
+        if (writing) {
+            return false;
+        }
+        writing = true;
+        write(message);
+        return true;
+    }
+
+    private void offered(boolean queued) throws IOException {
+        if (!queued) {
+            close(CloseStatus.SERVICE_OVERLOAD.withReason("Slow consumer"));
+            throw new IOException("Slow consumer disconnected");
+        }
+    }
+
+    private void write(WebSocketMessage<?> message) {
+        try {
+            if (message instanceof BinaryMessage binary) {
+                remote.sendBinary(binary.getPayload().duplicate(), this::onSent);
+            } else {
+                remote.sendText(((TextMessage) message).getPayload(), this::onSent);
+            }
+        } catch (RuntimeException e) {
+            onSent(new SendResult(e));
+        }
+    }
+
+    private void onSent(SendResult result) {
+        WebSocketMessage<?> next;
+        synchronized (this) {
+            if (!result.isOK()) {
+                logger.debug("Dropping socket subscriber of city {}: {}", getCityId(), result.getException().getMessage());
+                writing = false;
+                close(CloseStatus.SESSION_NOT_RELIABLE);
+                return;
+            }
+            sentMessages++;
+            markSent();
+            next = queue.poll();
+            if (next == null || closed) {
+                writing = false;
+                return;
+            }
+        }
+        write(next);
+    }
+
+    /**
+     * Closes the session off the calling thread, since closing writes a close frame to a client that may not read.
+     */
+    private synchronized void close(CloseStatus status) {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        queue.clear();
+        closer.execute(() -> {
+            try {
+                session.close(status);
+            } catch (IOException e) {
+                logger.debug("Error closing socket subscriber of city {}: {}", getCityId(), e.getMessage());
+            }
+        });
+    }
+}
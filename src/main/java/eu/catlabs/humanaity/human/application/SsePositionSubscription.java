@@ -0,0 +1,201 @@
+package eu.catlabs.humanaity.human.application;
+
+import eu.catlabs.humanaity.human.api.dto.HumanOutput;
+import eu.catlabs.humanaity.simulation.domain.BoundingBox;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Executor;
+
+/**
+ * Subscription written as server-sent events through a bounded outbound queue.
+ * Callers only queue events; a writer thread empties the queue into the emitter, one drain in flight per
+ * subscription, so a client that reads slowly blocks a writer rather than the broadcast. When the queue
+ * is full the slow consumer policy either drops the oldest queued frame or ends the stream.
+ * The emitter is locked while a write blocks, so a stream failed meanwhile is completed by its writer once
+ * the write returns, and otherwise by the closer; no other thread ever waits on a blocked client.
+ */
+class SsePositionSubscription extends PositionSubscription {
+
+    private static final Logger logger = LoggerFactory.getLogger(SsePositionSubscription.class);
+
+    private static final Set<DataWithMediaType> HEARTBEAT = SseEmitter.event().comment("heartbeat").build();
+
+    private final SseEmitter emitter;
+    private final Executor writer;
+    private final Executor closer;
+    private final OutboundQueue<Set<DataWithMediaType>> queue;
+    private boolean writing;
+    private boolean sending;
+    private long sendStartedNanos;
+    private boolean closed;
+    private Exception failure;
+    private long sentMessages;
+
+    SsePositionSubscription(Long cityId, PositionStreamFormat format, SseEmitter emitter, BoundingBox viewport,
+                            int queueCapacity, SlowConsumerPolicy policy, Executor writer, Executor closer) {
+        super(cityId, format, viewport);
+        this.emitter = emitter;
+        this.writer = writer;
+        this.closer = closer;
+        this.queue = new OutboundQueue<>(queueCapacity, policy, EncodedFrame::sseEvent);
+    }
+
+    SseEmitter getEmitter() {
+        return emitter;
+    }
+
+    @Override
+    String getTransport() {
+        return "sse";
+    }
+
+    @Override
+    synchronized int getQueueDepth() {
+        return queue.size();
+    }
+
+    @Override
+    synchronized int getMaxQueueDepth() {
+        return queue.getMaxDepth();
+    }
+
+    @Override
+    synchronized long getSentMessages() {
+        return sentMessages;
+    }
+
+    @Override
+    synchronized long getDroppedFrames() {
+        return queue.getDropped();
+    }
+
+    @Override
+    synchronized boolean isWriteStalled(long now, long timeoutNanos) {
+        return sending && now - sendStartedNanos > timeoutNanos;
+    }
+
+    @Override
+    void sendSubscription() throws IOException {
+        enqueue(SseEmitter.event().name("subscription").data(getId(), MediaType.TEXT_PLAIN).build(), false);
+    }
+
+    @Override
+    void sendSnapshot(String eventId, List<HumanOutput> humans) throws IOException {
+        enqueue(SseEmitter.event()
+                .name("snapshot")
+                .id(eventId)
+                .data(humans)
+                .build(), false);
+    }
+
+    @Override
+    synchronized void send(EncodedFrame frame) throws IOException {
+        ensureOpen();
+        offered(queue.offer(frame));
+    }
+
+    @Override
+    void replay(EncodedFrame frame) throws IOException {
+        enqueue(frame.sseEvent(), false);
+    }
+
+    @Override
+    void sendHeartbeat() throws IOException {
+        enqueue(HEARTBEAT, true);
+    }
+
+    /**
+     * Completes the emitter on the closer, or leaves it to the writer while a write is blocked.
+     */
+    @Override
+    void fail(Exception cause) {
+        synchronized (this) {
+            if (failure != null) {
+                return;
+            }
+            closed = true;
+            queue.clear();
+            failure = cause;
+            if (sending) {
+                return;
+            }
+        }
+        closer.execute(() -> emitter.completeWithError(cause));
+    }
+
+    private synchronized void enqueue(Set<DataWithMediaType> event, boolean droppable) throws IOException {
+        ensureOpen();
+        offered(queue.offer(event, droppable));
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+    }
+
+    /**
+     * Starts a drain for a queued event, unless one is running.
+     */
+    private void offered(boolean queued) throws IOException {
+        if (!queued) {
+            closed = true;
+            queue.clear();
+            throw new IOException("Slow consumer disconnected");
+        }
+        if (!writing) {
+            writing = true;
+            writer.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        while (true) {
+            Set<DataWithMediaType> next;
+            synchronized (this) {
+                next = closed ? null : queue.poll();
+                if (next == null) {
+                    writing = false;
+                    return;
+                }
+                sending = true;
+                sendStartedNanos = System.nanoTime();
+            }
+            Exception error = null;
+            try {
+                emitter.send(next);
+            } catch (IOException | IllegalStateException e) {
+                logger.debug("Dropping SSE subscriber of city {}: {}", getCityId(), e.getMessage());
+                error = e;
+            }
+            Exception completion = null;
+            synchronized (this) {
+                sending = false;
+                if (error == null) {
+                    sentMessages++;
+                } else if (failure == null) {
+                    failure = error;
+                    closed = true;
+                    queue.clear();
+                }
+                if (failure != null) {
+                    // failed by this write, or failed by the broadcaster while it was blocked
+                    writing = false;
+                    completion = failure;
+                }
+            }
+            if (completion != null) {
+                emitter.completeWithError(completion);
+                return;
+            }
+            markSent();
+        }
+    }
+}
@@ -7,13 +7,22 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
+// Composite indexes for the per-city reads: busy humans of a city, and a city's humans in id order
 @Entity
+@Table(indexes = {
+        @Index(name = "idx_human_city_busy", columnList = "city_id, busy"),
+        @Index(name = "idx_human_city_id", columnList = "city_id, id")
+})
 @Data
 @NoArgsConstructor
 @AllArgsConstructor
 public class Human {
+    public static final int ID_BLOCK_SIZE = 500;
+
+    // Pooled sequence: one round trip per block of ids, so bulk inserts can be batched
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "human_seq")
+    @SequenceGenerator(name = "human_seq", sequenceName = "human_seq", allocationSize = Human.ID_BLOCK_SIZE)
     private Long id;
 
     private boolean busy;
@@ -1,7 +1,13 @@
 package eu.catlabs.humanaity.human.infrastructure.persistence;
 
+import eu.catlabs.humanaity.human.api.dto.HumanOutput;
+import eu.catlabs.humanaity.human.api.dto.HumanPositionOutput;
 import eu.catlabs.humanaity.human.domain.Human;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Slice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.util.List;
@@ -9,5 +15,37 @@ import java.util.List;
 @Repository
 public interface HumanRepository extends JpaRepository<Human, Long> {
     List<Human> findByCityId(Long cityId);
+    List<Human> findByCityIdOrderByIdAsc(Long cityId);
     List<Human> findByCityIdAndBusyTrue(Long cityId);
+
+    /**
+     * Humans of a city with an id above {@code afterId}, by ascending id, read straight into outputs
+     * without loading entities or their city. Pass page 0: the id bound replaces the offset.
+     * Ordering by the city as well lets the {@code (city_id, id)} index deliver rows already sorted.
+     */
+    @Query("select new eu.catlabs.humanaity.human.api.dto.HumanOutput(h.id, h.busy, h.name, h.x, h.y, "
+            + "h.creativity, h.intellect, h.sociability, h.practicality, h.personality, "
+            + "h.scienceSkill, h.cultureSkill, h.socialSkill, "
+            + "h.totalScienceContributed, h.totalCultureContributed, h.totalSocialContributed) "
+            + "from Human h where h.city.id = :cityId and h.id > :afterId order by h.city.id, h.id")
+    Slice<HumanOutput> findOutputsByCityIdAfter(@Param("cityId") Long cityId, @Param("afterId") Long afterId,
+                                                Pageable pageable);
+
+    /**
+     * Humans of a city inside a box, bounds included, by ascending id, read straight into outputs.
+     */
+    @Query("select new eu.catlabs.humanaity.human.api.dto.HumanOutput(h.id, h.busy, h.name, h.x, h.y, "
+            + "h.creativity, h.intellect, h.sociability, h.practicality, h.personality, "
+            + "h.scienceSkill, h.cultureSkill, h.socialSkill, "
+            + "h.totalScienceContributed, h.totalCultureContributed, h.totalSocialContributed) "
+            + "from Human h where h.city.id = :cityId "
+            + "and h.x between :minX and :maxX and h.y between :minY and :maxY order by h.city.id, h.id")
+    List<HumanOutput> findOutputsByCityIdWithin(@Param("cityId") Long cityId,
+                                                @Param("minX") double minX, @Param("maxX") double maxX,
+                                                @Param("minY") double minY, @Param("maxY") double maxY);
+
+    @Query("select new eu.catlabs.humanaity.human.api.dto.HumanPositionOutput(h.id, h.x, h.y, h.busy) "
+            + "from Human h where h.city.id = :cityId and h.id > :afterId order by h.city.id, h.id")
+    Slice<HumanPositionOutput> findPositionsByCityIdAfter(@Param("cityId") Long cityId,
+                                                         @Param("afterId") Long afterId, Pageable pageable);
 }
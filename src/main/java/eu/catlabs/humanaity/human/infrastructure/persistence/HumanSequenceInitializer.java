@@ -0,0 +1,51 @@
+package eu.catlabs.humanaity.human.infrastructure.persistence;
+
+import eu.catlabs.humanaity.human.domain.Human;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.DependsOn;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Moves {@code human_seq} past the ids already in {@code human}, which databases created while humans used
+ * identity columns hold. Runs once the entity manager factory has updated the schema, before any insert.
+ * The sequence is only peeked at, so a server starting on an aligned database takes no ids from it.
+ * <p>
+ * Peeking through {@code INFORMATION_SCHEMA.SEQUENCES.BASE_VALUE} and {@code ALTER SEQUENCE ... RESTART WITH}
+ * are H2 syntax, like the configured database; another database needs its own statements here.
+ * <p>
+ * Reading the highest id and restarting the sequence are not atomic: an insert by another process sharing
+ * the database between the two could take an id the restart hands out again. Start this server before
+ * others write humans to a database being migrated; once the sequence is past the existing ids the check
+ * does nothing.
+ */
+@Component
+@DependsOn("entityManagerFactory")
+public class HumanSequenceInitializer {
+
+    private static final Logger logger = LoggerFactory.getLogger(HumanSequenceInitializer.class);
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public HumanSequenceInitializer(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @PostConstruct
+    public void alignSequence() {
+        Long maxId = jdbcTemplate.queryForObject("SELECT COALESCE(MAX(id), 0) FROM human", Long.class);
+        if (maxId == null || maxId == 0) {
+            return;
+        }
+        Long next = jdbcTemplate.queryForObject(
+                "SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = 'HUMAN_SEQ'", Long.class);
+        // the pooled optimizer hands out the block of ids just below each sequence value
+        if (next != null && next - Human.ID_BLOCK_SIZE < maxId) {
+            long restart = maxId + Human.ID_BLOCK_SIZE + 1;
+            jdbcTemplate.execute("ALTER SEQUENCE human_seq RESTART WITH " + restart);
+            logger.info("Restarted human_seq at {} past existing human ids", restart);
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package eu.catlabs.humanaity.infrastructure.config;
+
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCache;
+import org.springframework.cache.support.SimpleCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * In-memory caches of the cities and users read on every city-scoped request. Each cache is bounded in size,
+ * expires entries a while after loading them and records hit and miss counts. Caches are transaction aware:
+ * entries written or evicted inside a transaction change only once it commits, so a rolled back update
+ * leaves the cache alone.
+ */
+@Configuration
+@EnableCaching
+public class CacheConfig {
+
+    /** Summaries of cities by id */
+    public static final String CITIES = "cities";
+    /** Summaries of users by email */
+    public static final String USERS = "users";
+
+    @Value("${cache.cities.max-size:10000}")
+    private long citiesMaxSize;
+
+    @Value("${cache.cities.ttl-seconds:600}")
+    private long citiesTtlSeconds;
+
+    @Value("${cache.users.max-size:10000}")
+    private long usersMaxSize;
+
+    @Value("${cache.users.ttl-seconds:600}")
+    private long usersTtlSeconds;
+
+    @Bean
+    public CacheManager cacheManager() {
+        SimpleCacheManager cacheManager = new SimpleCacheManager();
+        cacheManager.setCaches(List.of(
+                cache(CITIES, citiesMaxSize, citiesTtlSeconds),
+                cache(USERS, usersMaxSize, usersTtlSeconds)));
+        cacheManager.initializeCaches();
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+
+    private static CaffeineCache cache(String name, long maxSize, long ttlSeconds) {
+        return new CaffeineCache(name, Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(Duration.ofSeconds(ttlSeconds))
+                .recordStats()
+                .build());
+    }
+}
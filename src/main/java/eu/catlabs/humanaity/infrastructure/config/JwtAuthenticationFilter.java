@@ -30,16 +30,9 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
         
-        String authHeader = request.getHeader("Authorization");
-        
-        if (authHeader == null || !authHeader.startsWith("Bearer ")) {
-            filterChain.doFilter(request, response);
-            return;
-        }
-        
-        String token = authHeader.substring(7);
+        String token = resolveToken(request);
         
-        if (!jwtService.validateToken(token)) {
+        if (token == null || !jwtService.validateToken(token)) {
             filterChain.doFilter(request, response);
             return;
         }
@@ -57,5 +50,20 @@ public class JwtAuthenticationFilter extends OncePerRequestFilter {
         
         filterChain.doFilter(request, response);
     }
+
+    /**
+     * Bearer token of the request; WebSocket handshakes may pass it as {@code access_token}, since browsers
+     * cannot set headers on them.
+     */
+    private String resolveToken(HttpServletRequest request) {
+        String authHeader = request.getHeader("Authorization");
+        if (authHeader != null && authHeader.startsWith("Bearer ")) {
+            return authHeader.substring(7);
+        }
+        if ("websocket".equalsIgnoreCase(request.getHeader("Upgrade"))) {
+            return request.getParameter("access_token");
+        }
+        return null;
+    }
 }
 
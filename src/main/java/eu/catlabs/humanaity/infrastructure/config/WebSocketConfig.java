@@ -0,0 +1,24 @@
+package eu.catlabs.humanaity.infrastructure.config;
+
+import eu.catlabs.humanaity.human.api.CityPositionSocketHandler;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.socket.config.annotation.EnableWebSocket;
+import org.springframework.web.socket.config.annotation.WebSocketConfigurer;
+import org.springframework.web.socket.config.annotation.WebSocketHandlerRegistry;
+
+@Configuration
+@EnableWebSocket
+public class WebSocketConfig implements WebSocketConfigurer {
+
+    private final CityPositionSocketHandler cityPositionSocketHandler;
+
+    public WebSocketConfig(CityPositionSocketHandler cityPositionSocketHandler) {
+        this.cityPositionSocketHandler = cityPositionSocketHandler;
+    }
+
+    @Override
+    public void registerWebSocketHandlers(WebSocketHandlerRegistry registry) {
+        registry.addHandler(cityPositionSocketHandler, CityPositionSocketHandler.PATH)
+                .setAllowedOrigins("http://localhost:4200");
+    }
+}
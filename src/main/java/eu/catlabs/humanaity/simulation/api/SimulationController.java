@@ -1,5 +1,9 @@
 package eu.catlabs.humanaity.simulation.api;
 
+import eu.catlabs.humanaity.simulation.api.dto.PersistenceMetricsOutput;
+import eu.catlabs.humanaity.simulation.api.dto.SimulationMetricsOutput;
+import eu.catlabs.humanaity.simulation.api.dto.SimulationSettingsInput;
+import eu.catlabs.humanaity.simulation.api.dto.SimulationSettingsOutput;
 import eu.catlabs.humanaity.simulation.application.SimulationApplicationService;
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.tags.Tag;
@@ -21,8 +25,10 @@ public class SimulationController {
 
     @PostMapping("/{cityId}/start")
     @Operation(summary = "Start simulation for a city")
-    public ResponseEntity<Map<String, String>> startSimulation(@PathVariable Long cityId) {
-        String message = simulationApplicationService.startSimulation(cityId);
+    public ResponseEntity<Map<String, String>> startSimulation(@PathVariable Long cityId,
+                                                               @RequestParam(required = false) Long seed,
+                                                               @RequestBody(required = false) SimulationSettingsInput settings) {
+        String message = simulationApplicationService.startSimulation(cityId, seed, settings);
         return ResponseEntity.ok(Map.of("message", message));
     }
 
@@ -39,4 +45,35 @@ public class SimulationController {
         boolean isRunning = simulationApplicationService.isRunning(cityId);
         return ResponseEntity.ok(Map.of("running", isRunning));
     }
+
+    @GetMapping("/{cityId}/settings")
+    @Operation(summary = "Get the settings of a running simulation")
+    public ResponseEntity<SimulationSettingsOutput> getSimulationSettings(@PathVariable Long cityId) {
+        return simulationApplicationService.getSettings(cityId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PatchMapping("/{cityId}/settings")
+    @Operation(summary = "Change the settings of a running simulation")
+    public ResponseEntity<SimulationSettingsOutput> updateSimulationSettings(@PathVariable Long cityId,
+                                                                             @RequestBody SimulationSettingsInput settings) {
+        return simulationApplicationService.updateSettings(cityId, settings)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/{cityId}/metrics")
+    @Operation(summary = "Get tick timing metrics of a running simulation")
+    public ResponseEntity<SimulationMetricsOutput> getSimulationMetrics(@PathVariable Long cityId) {
+        return simulationApplicationService.getMetrics(cityId)
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping("/persistence/metrics")
+    @Operation(summary = "Get write-behind persistence metrics of running simulations")
+    public ResponseEntity<PersistenceMetricsOutput> getPersistenceMetrics() {
+        return ResponseEntity.ok(simulationApplicationService.getPersistenceMetrics());
+    }
 }
@@ -0,0 +1,20 @@
+package eu.catlabs.humanaity.simulation.api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class PersistenceMetricsOutput {
+    @Schema(requiredMode = Schema.RequiredMode.REQUIRED)
+    private String mode;
+
+    private long flushes;
+    private long rowsWritten;
+    private long interactionsWritten;
+    private long lastFlushRows;
+    private double lastFlushMillis;
+    @Schema(description = "Rows written per second of time spent writing")
+    private double rowsPerSecond;
+}
@@ -0,0 +1,28 @@
+package eu.catlabs.humanaity.simulation.api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class SimulationMetricsOutput {
+    @Schema(requiredMode = Schema.RequiredMode.REQUIRED)
+    private Long cityId;
+    @Schema(description = "Seed of the city's random stream; starting with it again replays the same trajectory")
+    private long seed;
+
+    private double budgetMillis;
+    private long ticks;
+    private long overruns;
+    private long skippedTicks;
+    private double lastTickMillis;
+    private double meanTickMillis;
+    private double maxTickMillis;
+    private double maxLagMillis;
+    private int activeInteractions;
+    @Schema(description = "Number of humans moved by the last tick")
+    private int humansPerTick;
+    @Schema(description = "Error that stopped the ticks of the city, absent while it ticks")
+    private String failure;
+}
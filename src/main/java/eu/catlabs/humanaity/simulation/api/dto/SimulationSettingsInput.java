@@ -0,0 +1,23 @@
+package eu.catlabs.humanaity.simulation.api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Partial settings update; fields left null keep their current value.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SimulationSettingsInput {
+    @Schema(description = "Fixed number of humans moved per tick; replaces any sample fraction")
+    private Integer sampleCount;
+    @Schema(description = "Fraction of the city moved per tick, in (0, 1]; replaces any sample count")
+    private Double sampleFraction;
+    private Long tickPeriodMs;
+    private Integer maxHumansPerTick;
+    @Schema(description = "Scale the sample to the tick time measured in previous ticks")
+    private Boolean adaptive;
+}
@@ -0,0 +1,20 @@
+package eu.catlabs.humanaity.simulation.api.dto;
+
+import io.swagger.v3.oas.annotations.media.Schema;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class SimulationSettingsOutput {
+    @Schema(requiredMode = Schema.RequiredMode.REQUIRED)
+    private Long cityId;
+
+    private Integer sampleCount;
+    private Double sampleFraction;
+    private long tickPeriodMs;
+    private int maxHumansPerTick;
+    private boolean adaptive;
+    @Schema(description = "Number of humans moved by the last tick")
+    private int humansPerTick;
+}
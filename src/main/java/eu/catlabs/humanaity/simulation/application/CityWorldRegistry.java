@@ -0,0 +1,65 @@
+package eu.catlabs.humanaity.simulation.application;
+
+import eu.catlabs.humanaity.human.domain.Human;
+import eu.catlabs.humanaity.human.infrastructure.persistence.HumanRepository;
+import eu.catlabs.humanaity.simulation.domain.CityWorld;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Holds the in-memory worlds of the cities currently being simulated.
+ */
+@Component
+public class CityWorldRegistry {
+
+    private final Map<Long, CityWorld> worlds = new ConcurrentHashMap<>();
+    private final HumanRepository humanRepository;
+
+    public CityWorldRegistry(HumanRepository humanRepository) {
+        this.humanRepository = humanRepository;
+    }
+
+    /**
+     * Loads a city's humans in id order, so a seeded run always starts from the same slot layout.
+     */
+    public CityWorld load(Long cityId) {
+        return worlds.computeIfAbsent(cityId, id -> new CityWorld(id, humanRepository.findByCityIdOrderByIdAsc(id)));
+    }
+
+    public Optional<CityWorld> find(Long cityId) {
+        return cityId == null ? Optional.empty() : Optional.ofNullable(worlds.get(cityId));
+    }
+
+    public Optional<CityWorld> remove(Long cityId) {
+        return Optional.ofNullable(worlds.remove(cityId));
+    }
+
+    public Collection<CityWorld> getWorlds() {
+        return worlds.values();
+    }
+
+    public Optional<Human> findLiveHuman(Human human) {
+        if (human.getCity() == null) {
+            return Optional.empty();
+        }
+        return find(human.getCity().getId()).flatMap(world -> world.find(human.getId()));
+    }
+
+    public void onHumanSaved(Human human) {
+        Long cityId = human.getCity() != null ? human.getCity().getId() : null;
+        worlds.forEach((id, world) -> {
+            if (!id.equals(cityId)) {
+                world.remove(human.getId());
+            }
+        });
+        find(cityId).ifPresent(world -> world.put(human));
+    }
+
+    public void onHumanDeleted(Long humanId) {
+        worlds.values().forEach(world -> world.remove(humanId));
+    }
+}
@@ -0,0 +1,100 @@
+package eu.catlabs.humanaity.simulation.application;
+
+import eu.catlabs.humanaity.simulation.domain.AdaptiveSampler;
+import eu.catlabs.humanaity.simulation.domain.CityWorld;
+import eu.catlabs.humanaity.simulation.domain.SimulationSettings;
+import eu.catlabs.humanaity.simulation.infrastructure.scheduling.TickHandle;
+
+import java.util.SplittableRandom;
+import java.util.random.RandomGenerator;
+
+/**
+ * Per-city state of a running simulation: its world, its own seeded random stream, its settings and its tick handle.
+ * Only the city's tick thread uses the random stream, sampler and sample buffer; settings may be replaced at any time.
+ * The tick handle is set by the starting thread once scheduled, so the first ticks may run before it is.
+ */
+class RunningSimulation {
+
+    private final CityWorld world;
+    private final long seed;
+    private final RandomGenerator random;
+    private final AdaptiveSampler sampler = new AdaptiveSampler();
+    private volatile SimulationSettings settings;
+    private volatile int lastSampleSize;
+    private int[] sampled = new int[0];
+    private volatile TickHandle tickHandle;
+
+    RunningSimulation(CityWorld world, long seed, SimulationSettings settings) {
+        this.world = world;
+        this.seed = seed;
+        this.random = new SplittableRandom(seed);
+        this.settings = settings;
+    }
+
+    Long getCityId() {
+        return world.getCityId();
+    }
+
+    CityWorld getWorld() {
+        return world;
+    }
+
+    long getSeed() {
+        return seed;
+    }
+
+    RandomGenerator getRandom() {
+        return random;
+    }
+
+    SimulationSettings getSettings() {
+        return settings;
+    }
+
+    void setSettings(SimulationSettings settings) {
+        this.settings = settings;
+    }
+
+    int getLastSampleSize() {
+        return lastSampleSize;
+    }
+
+    void setLastSampleSize(int lastSampleSize) {
+        this.lastSampleSize = lastSampleSize;
+    }
+
+    /**
+     * Number of humans the next tick should move, following the measured cost of the previous tick in adaptive mode.
+     * Until the tick handle is set there is no measured cost, and the configured sample is used.
+     */
+    int nextSampleSize(double targetLoad) {
+        SimulationSettings current = settings;
+        int citySize = world.size();
+        if (!current.isAdaptive()) {
+            return Math.min(citySize, current.sampleSize(citySize));
+        }
+        long targetNanos = (long) (current.getTickPeriodMillis() * 1_000_000L * targetLoad);
+        int limit = Math.min(citySize, current.getMaxHumansPerTick());
+        TickHandle handle = tickHandle;
+        long lastTickNanos = handle != null ? handle.getStats().getLastTickNanos() : 0;
+        return sampler.next(lastSampleSize, lastTickNanos, targetNanos, current.sampleSize(citySize), limit);
+    }
+
+    /**
+     * Sample buffer holding at least {@code size} slots, grown on demand.
+     */
+    int[] getSampled(int size) {
+        if (sampled.length < size) {
+            sampled = new int[Math.max(size, sampled.length * 2)];
+        }
+        return sampled;
+    }
+
+    TickHandle getTickHandle() {
+        return tickHandle;
+    }
+
+    void setTickHandle(TickHandle tickHandle) {
+        this.tickHandle = tickHandle;
+    }
+}
@@ -1,10 +1,20 @@
 package eu.catlabs.humanaity.simulation.application;
 
-import eu.catlabs.humanaity.human.domain.Human;
-import eu.catlabs.humanaity.human.infrastructure.persistence.HumanRepository;
 import eu.catlabs.humanaity.human.application.HumanApplicationService;
+import eu.catlabs.humanaity.simulation.api.dto.PersistenceMetricsOutput;
+import eu.catlabs.humanaity.simulation.api.dto.SimulationMetricsOutput;
+import eu.catlabs.humanaity.simulation.api.dto.SimulationSettingsInput;
+import eu.catlabs.humanaity.simulation.api.dto.SimulationSettingsOutput;
+import eu.catlabs.humanaity.simulation.domain.CitySimulator;
+import eu.catlabs.humanaity.simulation.domain.CityWorld;
+import eu.catlabs.humanaity.simulation.domain.SimulationSettings;
+import eu.catlabs.humanaity.simulation.domain.TickStats;
+import eu.catlabs.humanaity.simulation.infrastructure.scheduling.TickHandle;
+import eu.catlabs.humanaity.simulation.infrastructure.scheduling.TickScheduler;
+import jakarta.annotation.PreDestroy;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
@@ -14,113 +24,204 @@ import java.util.concurrent.*;
 public class SimulationApplicationService {
 
     private static final Logger logger = LoggerFactory.getLogger(SimulationApplicationService.class);
-    private static final double COLLISION_DISTANCE = 0.02;
-    private final ScheduledExecutorService executor = Executors.newScheduledThreadPool(4);
-    private final Map<Long, ScheduledFuture<?>> runningTasks = new ConcurrentHashMap<>();
-    private final HumanRepository humanRepository;
+    private final Map<Long, RunningSimulation> runningSimulations = new ConcurrentHashMap<>();
+    private final TickScheduler tickScheduler;
+    private final CityWorldRegistry worldRegistry;
+    private final WorldPersistenceService worldPersistenceService;
     private final HumanApplicationService humanApplicationService;
-    private final Random random = new Random();
-
-    public SimulationApplicationService(HumanRepository humanRepository, HumanApplicationService humanApplicationService) {
-        this.humanRepository = humanRepository;
+    private final ForkJoinPool parallelTickPool;
+    private final CitySimulator simulator;
+    private final SplittableRandom seedSource = new SplittableRandom();
+
+    @Value("${simulation.tick-period-ms:100}")
+    private long tickPeriodMillis;
+
+    @Value("${simulation.humans-per-tick:10}")
+    private int humansPerTick;
+
+    @Value("${simulation.max-humans-per-tick:100000}")
+    private int maxHumansPerTick;
+
+    @Value("${simulation.adaptive.target-load:0.5}")
+    private double adaptiveTargetLoad;
+
+    public SimulationApplicationService(TickScheduler tickScheduler,
+                                        CityWorldRegistry worldRegistry,
+                                        WorldPersistenceService worldPersistenceService,
+                                        HumanApplicationService humanApplicationService,
+                                        @Value("${simulation.parallel.threshold:4096}") int parallelThreshold,
+                                        @Value("${simulation.parallel.regions-per-side:4}") int regionsPerSide,
+                                        @Value("${simulation.parallel.parallelism:0}") int parallelism,
+                                        @Value("${simulation.interaction.min-ticks:20}") int minInteractionTicks,
+                                        @Value("${simulation.interaction.max-ticks:100}") int maxInteractionTicks) {
+        this.tickScheduler = tickScheduler;
+        this.worldRegistry = worldRegistry;
+        this.worldPersistenceService = worldPersistenceService;
         this.humanApplicationService = humanApplicationService;
+        this.parallelTickPool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+        this.simulator = new CitySimulator(parallelTickPool, parallelThreshold, regionsPerSide,
+                minInteractionTicks, maxInteractionTicks);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        parallelTickPool.shutdownNow();
     }
 
-    public synchronized String startSimulation(Long cityId) {
-        if (runningTasks.containsKey(cityId)) {
-            return "Simulation already running for city " + cityId;
+    public synchronized String startSimulation(Long cityId, Long seed, SimulationSettingsInput settingsInput) {
+        RunningSimulation current = runningSimulations.get(cityId);
+        if (current != null) {
+            return hasFailed(current)
+                    ? "Simulation of city " + cityId + " stopped on an error; stop it before starting it again"
+                    : "Simulation already running for city " + cityId;
         }
 
-        ScheduledFuture<?> task = executor.scheduleAtFixedRate(
-                () -> simulateCity(cityId),
-                0, 100, TimeUnit.MILLISECONDS
-        );
+        SimulationSettings defaults = new SimulationSettings(humansPerTick, null, tickPeriodMillis, maxHumansPerTick, false);
+        SimulationSettings settings = settingsInput != null ? merge(defaults, settingsInput) : defaults;
+        long citySeed = seed != null ? seed : seedSource.nextLong();
+        RunningSimulation simulation = new RunningSimulation(worldRegistry.load(cityId), citySeed, settings);
+        synchronized (simulation.getWorld()) {
+            simulator.resume(simulation.getWorld(), simulation.getRandom());
+        }
+        simulation.setTickHandle(tickScheduler.schedule(cityId, settings.getTickPeriodMillis(), () -> simulateCity(simulation)));
 
-        runningTasks.put(cityId, task);
-        return "Simulation started for city " + cityId;
+        runningSimulations.put(cityId, simulation);
+        return "Simulation started for city " + cityId + " with seed " + citySeed;
     }
 
     public synchronized String stopSimulation(Long cityId) {
-        ScheduledFuture<?> task = runningTasks.get(cityId);
-        if (task == null) {
+        RunningSimulation simulation = runningSimulations.remove(cityId);
+        if (simulation == null) {
             return "No simulation running for city " + cityId;
         }
 
-        task.cancel(true);
-        runningTasks.remove(cityId);
+        simulation.getTickHandle().cancel();
+        worldRegistry.remove(cityId).ifPresent(world -> {
+            world.close();
+            worldPersistenceService.flush(world);
+        });
         return "Simulation stopped for city " + cityId;
     }
 
-    public boolean isRunning(Long cityId) {
-        return runningTasks.containsKey(cityId);
+    public Optional<SimulationSettingsOutput> getSettings(Long cityId) {
+        return Optional.ofNullable(runningSimulations.get(cityId))
+                .map(this::toSettingsOutput);
     }
 
-    private void simulateCity(Long cityId) {
-        try {
-            List<Human> allHumans = humanRepository.findByCityId(cityId);
-            Collections.shuffle(allHumans);
-            List<Human> randomHumans = allHumans.stream().limit(10).toList();
+    /**
+     * Applies a partial settings update to a running simulation; the new tick period applies from the next tick.
+     */
+    public synchronized Optional<SimulationSettingsOutput> updateSettings(Long cityId, SimulationSettingsInput input) {
+        RunningSimulation simulation = runningSimulations.get(cityId);
+        if (simulation == null) {
+            return Optional.empty();
+        }
+        SimulationSettings settings = merge(simulation.getSettings(), input);
+        simulation.setSettings(settings);
+        simulation.getTickHandle().setPeriodMillis(settings.getTickPeriodMillis());
+        return Optional.of(toSettingsOutput(simulation));
+    }
 
-            if (randomHumans.isEmpty()) {
-                logger.debug("No humans found in city {}", cityId);
-                return;
-            }
+    /**
+     * Whether the city is ticking; a simulation stopped by an error in its tick is not, until it is stopped
+     * and started again.
+     */
+    public boolean isRunning(Long cityId) {
+        RunningSimulation simulation = runningSimulations.get(cityId);
+        return simulation != null && !hasFailed(simulation);
+    }
 
-            Set<Human> changedHumans = new HashSet<>();
+    public Optional<SimulationMetricsOutput> getMetrics(Long cityId) {
+        return Optional.ofNullable(runningSimulations.get(cityId))
+                .map(this::toMetricsOutput);
+    }
 
-            for (Human human : randomHumans) {
-                if (!human.isBusy()) {
-                    boolean hadCollision = checkCollisions(human, allHumans, changedHumans);
-                    if (!hadCollision) {
-                        updateHumanPosition(human);
-                        changedHumans.add(human);
-                    }
-                }
-            }
-            if (!changedHumans.isEmpty()) {
-                humanRepository.saveAll(changedHumans);
-            }
-            this.humanApplicationService.publishHumanUpdates(randomHumans);
+    public PersistenceMetricsOutput getPersistenceMetrics() {
+        return worldPersistenceService.getMetrics();
+    }
 
-        } catch (Exception e) {
-            logger.error("Error simulating city {}: {}", cityId, e.getMessage(), e);
+    private SimulationMetricsOutput toMetricsOutput(RunningSimulation simulation) {
+        TickHandle task = simulation.getTickHandle();
+        TickStats stats = task.getStats();
+        SimulationMetricsOutput output = new SimulationMetricsOutput();
+        output.setCityId(simulation.getCityId());
+        output.setSeed(simulation.getSeed());
+        output.setActiveInteractions(simulation.getWorld().getInteractions().getActive());
+        output.setHumansPerTick(simulation.getLastSampleSize());
+        output.setBudgetMillis(toMillis(task.getBudgetNanos()));
+        output.setTicks(stats.getTicks());
+        output.setOverruns(stats.getOverruns());
+        output.setSkippedTicks(stats.getSkippedTicks());
+        output.setLastTickMillis(toMillis(stats.getLastTickNanos()));
+        output.setMeanTickMillis(toMillis(stats.getMeanTickNanos()));
+        output.setMaxTickMillis(toMillis(stats.getMaxTickNanos()));
+        output.setMaxLagMillis(toMillis(stats.getMaxLagNanos()));
+        if (task.getFailure() != null) {
+            output.setFailure(task.getFailure().toString());
         }
+        return output;
     }
 
-    private boolean checkCollisions(Human currentHuman, List<Human> allHumans, Set<Human> changedHumans) {
-        for (Human otherHuman : allHumans) {
-            if (currentHuman.getId().equals(otherHuman.getId())) {
-                continue;
-            }
+    private static boolean hasFailed(RunningSimulation simulation) {
+        TickHandle task = simulation.getTickHandle();
+        return task != null && task.getFailure() != null;
+    }
 
-            if (areHumansColliding(currentHuman, otherHuman)) {
-                currentHuman.setBusy(true);
-                otherHuman.setBusy(true);
+    private SimulationSettingsOutput toSettingsOutput(RunningSimulation simulation) {
+        SimulationSettings settings = simulation.getSettings();
+        SimulationSettingsOutput output = new SimulationSettingsOutput();
+        output.setCityId(simulation.getCityId());
+        output.setSampleCount(settings.getSampleCount());
+        output.setSampleFraction(settings.getSampleFraction());
+        output.setTickPeriodMs(settings.getTickPeriodMillis());
+        output.setMaxHumansPerTick(settings.getMaxHumansPerTick());
+        output.setAdaptive(settings.isAdaptive());
+        output.setHumansPerTick(simulation.getLastSampleSize());
+        return output;
+    }
 
-                changedHumans.add(currentHuman);
-                changedHumans.add(otherHuman);
-                return true;
-            }
+    private static SimulationSettings merge(SimulationSettings current, SimulationSettingsInput input) {
+        Integer sampleCount = current.getSampleCount();
+        Double sampleFraction = current.getSampleFraction();
+        if (input.getSampleCount() != null || input.getSampleFraction() != null) {
+            sampleCount = input.getSampleCount();
+            sampleFraction = input.getSampleFraction();
         }
-        return false;
+        return new SimulationSettings(
+                sampleCount,
+                sampleFraction,
+                input.getTickPeriodMs() != null ? input.getTickPeriodMs() : current.getTickPeriodMillis(),
+                input.getMaxHumansPerTick() != null ? input.getMaxHumansPerTick() : current.getMaxHumansPerTick(),
+                input.getAdaptive() != null ? input.getAdaptive() : current.isAdaptive());
     }
 
-    private boolean areHumansColliding(Human human1, Human human2) {
-        double distance = Math.sqrt(
-                Math.pow(human1.getX() - human2.getX(), 2) +
-                        Math.pow(human1.getY() - human2.getY(), 2)
-        );
-        return distance < COLLISION_DISTANCE;
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
     }
 
-    private void updateHumanPosition(Human human) {
-        double deltaX = (random.nextDouble() - 0.5) * 0.1;
-        double deltaY = (random.nextDouble() - 0.5) * 0.1;
+    private void simulateCity(RunningSimulation simulation) {
+        CityWorld world = simulation.getWorld();
+        Long cityId = world.getCityId();
+        try {
+            synchronized (world) {
+                if (world.isClosed()) {
+                    return;
+                }
 
-        double newX = Math.max(0, Math.min(1, human.getX() + deltaX));
-        double newY = Math.max(0, Math.min(1, human.getY() + deltaY));
+                int sampleSize = simulation.nextSampleSize(adaptiveTargetLoad);
+                int[] sampled = simulation.getSampled(sampleSize);
+                int count = simulator.tick(world, simulation.getRandom(), sampled, sampleSize);
+                simulation.setLastSampleSize(count);
+                if (count == 0) {
+                    logger.debug("No humans found in city {}", cityId);
+                    return;
+                }
+                // published under the world lock, which guards the slot arrays the positions are copied from
+                this.humanApplicationService.publishHumanUpdates(cityId, world, sampled, count);
+            }
 
-        human.setX(newX);
-        human.setY(newY);
+        } catch (Exception e) {
+            logger.error("Error simulating city {}: {}", cityId, e.getMessage(), e);
+        }
     }
 }
@@ -0,0 +1,156 @@
+package eu.catlabs.humanaity.simulation.application;
+
+import eu.catlabs.humanaity.human.domain.Human;
+import eu.catlabs.humanaity.human.infrastructure.persistence.HumanRepository;
+import eu.catlabs.humanaity.simulation.api.dto.PersistenceMetricsOutput;
+import eu.catlabs.humanaity.simulation.domain.CityWorld;
+import eu.catlabs.humanaity.simulation.domain.InteractionBatch;
+import eu.catlabs.humanaity.simulation.domain.PositionBatch;
+import eu.catlabs.humanaity.simulation.infrastructure.persistence.HumanPositionRepository;
+import eu.catlabs.humanaity.simulation.infrastructure.persistence.InteractionLogRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Write-behind persistence of running city worlds.
+ * Dirty humans are flushed on a fixed interval and when a simulation stops. In {@code batch} mode
+ * only x, y and busy are written, as one JDBC batch per city and flush; {@code entity} mode keeps
+ * the former full-entity {@code saveAll} for comparison. Finished interactions are appended in the same pass.
+ */
+@Service
+public class WorldPersistenceService {
+
+    private static final Logger logger = LoggerFactory.getLogger(WorldPersistenceService.class);
+
+    private final ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor();
+    private final CityWorldRegistry worldRegistry;
+    private final HumanRepository humanRepository;
+    private final HumanPositionRepository humanPositionRepository;
+    private final InteractionLogRepository interactionLogRepository;
+    private final PositionBatch batch = new PositionBatch();
+    private final InteractionBatch interactions = new InteractionBatch();
+    private long flushes;
+    private long rowsWritten;
+    private long interactionsWritten;
+    private long writeNanos;
+    private long lastFlushRows;
+    private long lastFlushNanos;
+
+    @Value("${simulation.persistence.flush-interval-ms:1000}")
+    private long flushIntervalMs;
+
+    @Value("${simulation.persistence.mode:batch}")
+    private String mode;
+
+    public WorldPersistenceService(CityWorldRegistry worldRegistry,
+                                   HumanRepository humanRepository,
+                                   HumanPositionRepository humanPositionRepository,
+                                   InteractionLogRepository interactionLogRepository) {
+        this.worldRegistry = worldRegistry;
+        this.humanRepository = humanRepository;
+        this.humanPositionRepository = humanPositionRepository;
+        this.interactionLogRepository = interactionLogRepository;
+    }
+
+    @PostConstruct
+    public void start() {
+        executor.scheduleWithFixedDelay(this::flushAll, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+        flushAll();
+    }
+
+    public void flushAll() {
+        worldRegistry.getWorlds().forEach(this::flush);
+    }
+
+    public synchronized void flush(CityWorld world) {
+        long start = System.nanoTime();
+        int rows = "entity".equals(mode) ? flushEntities(world) : flushPositions(world);
+        if (rows > 0) {
+            recordFlush(rows, System.nanoTime() - start);
+        }
+        flushInteractions(world);
+    }
+
+    public synchronized PersistenceMetricsOutput getMetrics() {
+        PersistenceMetricsOutput output = new PersistenceMetricsOutput();
+        output.setMode(mode);
+        output.setFlushes(flushes);
+        output.setRowsWritten(rowsWritten);
+        output.setInteractionsWritten(interactionsWritten);
+        output.setLastFlushRows(lastFlushRows);
+        output.setLastFlushMillis(lastFlushNanos / 1_000_000.0);
+        output.setRowsPerSecond(writeNanos == 0 ? 0 : rowsWritten * 1_000_000_000.0 / writeNanos);
+        return output;
+    }
+
+    private int flushPositions(CityWorld world) {
+        batch.clear();
+        world.drainDirty(batch);
+        if (batch.size() == 0) {
+            return 0;
+        }
+        try {
+            humanPositionRepository.updatePositions(batch);
+            return batch.size();
+        } catch (Exception e) {
+            logger.error("Error flushing city {}: {}", world.getCityId(), e.getMessage(), e);
+            for (int i = 0; i < batch.size(); i++) {
+                world.markDirty(batch.id(i));
+            }
+            return 0;
+        }
+    }
+
+    private void flushInteractions(CityWorld world) {
+        interactions.clear();
+        world.getInteractions().drainFinished(interactions);
+        if (interactions.size() == 0) {
+            return;
+        }
+        try {
+            interactionLogRepository.insertAll(world.getCityId(), interactions);
+            interactionsWritten += interactions.size();
+        } catch (Exception e) {
+            logger.error("Error recording {} interactions of city {}: {}", interactions.size(), world.getCityId(), e.getMessage(), e);
+            world.getInteractions().requeueFinished(interactions);
+        }
+    }
+
+    private int flushEntities(CityWorld world) {
+        List<Human> dirtyHumans = world.drainDirty();
+        if (dirtyHumans.isEmpty()) {
+            return 0;
+        }
+        try {
+            humanRepository.saveAll(dirtyHumans);
+            return dirtyHumans.size();
+        } catch (Exception e) {
+            logger.error("Error flushing city {}: {}", world.getCityId(), e.getMessage(), e);
+            dirtyHumans.forEach(human -> world.markDirty(human.getId()));
+            return 0;
+        }
+    }
+
+    private void recordFlush(int rows, long nanos) {
+        flushes++;
+        rowsWritten += rows;
+        writeNanos += nanos;
+        lastFlushRows = rows;
+        lastFlushNanos = nanos;
+        logger.debug("Flushed {} rows in {} ms", rows, TimeUnit.NANOSECONDS.toMillis(nanos));
+    }
+}
@@ -0,0 +1,33 @@
+package eu.catlabs.humanaity.simulation.domain;
+
+/**
+ * Sizes a city's tick sample from the measured cost of its previous ticks, so a tick uses about
+ * a target share of its period. The per-human cost is smoothed and the sample at most halves or
+ * doubles from one tick to the next. Used from the city's tick thread only.
+ */
+public class AdaptiveSampler {
+
+    private static final double SMOOTHING = 0.2;
+
+    private double nanosPerHuman;
+
+    /**
+     * @param lastSize      humans moved by the previous tick, or 0 before the first one
+     * @param lastTickNanos measured duration of the previous tick
+     * @param targetNanos   tick duration to aim for
+     * @param initialSize   size to use until a tick has been measured
+     * @param limit         largest allowed sample
+     */
+    public int next(int lastSize, long lastTickNanos, long targetNanos, int initialSize, int limit) {
+        if (lastSize > 0 && lastTickNanos > 0) {
+            double cost = (double) lastTickNanos / lastSize;
+            nanosPerHuman = nanosPerHuman == 0 ? cost : nanosPerHuman + SMOOTHING * (cost - nanosPerHuman);
+        }
+        if (nanosPerHuman == 0 || lastSize == 0) {
+            return Math.max(1, Math.min(initialSize, limit));
+        }
+        long size = (long) (targetNanos / nanosPerHuman);
+        size = Math.max(lastSize / 2, Math.min(size, 2L * lastSize));
+        return (int) Math.max(1, Math.min(size, limit));
+    }
+}
@@ -0,0 +1,84 @@
+package eu.catlabs.humanaity.simulation.domain;
+
+import java.util.Objects;
+
+/**
+ * Axis-aligned box within the unit square of a city, bounds included.
+ */
+public final class BoundingBox {
+
+    private final double minX;
+    private final double minY;
+    private final double maxX;
+    private final double maxY;
+
+    public BoundingBox(double minX, double minY, double maxX, double maxY) {
+        if (minX > maxX || minY > maxY) {
+            throw new IllegalArgumentException("Bounding box minimum must not exceed its maximum");
+        }
+        this.minX = minX;
+        this.minY = minY;
+        this.maxX = maxX;
+        this.maxY = maxY;
+    }
+
+    public double getMinX() {
+        return minX;
+    }
+
+    public double getMinY() {
+        return minY;
+    }
+
+    public double getMaxX() {
+        return maxX;
+    }
+
+    public double getMaxY() {
+        return maxY;
+    }
+
+    public boolean contains(double x, double y) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY;
+    }
+
+    /**
+     * This box clipped to the unit square, then grown by {@code margin} on every side within it; a box lying
+     * outside the square shrinks to the edge it is past.
+     */
+    public BoundingBox expand(double margin) {
+        return new BoundingBox(clip(clip(minX) - margin), clip(clip(minY) - margin),
+                clip(clip(maxX) + margin), clip(clip(maxY) + margin));
+    }
+
+    /**
+     * Smallest box made of whole cells of {@code cellSize} that holds this one, clipped to the unit square.
+     * Boxes snapped to the same cells are equal.
+     */
+    public BoundingBox snap(double cellSize) {
+        return new BoundingBox(clip(Math.floor(clip(minX) / cellSize) * cellSize),
+                clip(Math.floor(clip(minY) / cellSize) * cellSize),
+                clip(Math.ceil(clip(maxX) / cellSize) * cellSize),
+                clip(Math.ceil(clip(maxY) / cellSize) * cellSize));
+    }
+
+    private static double clip(double coordinate) {
+        return Math.max(0, Math.min(1, coordinate));
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof BoundingBox other)) {
+            return false;
+        }
+        return minX == other.minX && minY == other.minY && maxX == other.maxX && maxY == other.maxY;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(minX, minY, maxX, maxY);
+    }
+}
@@ -0,0 +1,233 @@
+package eu.catlabs.humanaity.simulation.domain;
+
+import java.util.BitSet;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.random.RandomGenerator;
+
+/**
+ * Movement and collision rules applied to a city world on every tick.
+ * Small ticks run sequentially on world slots without allocating. Ticks moving at least
+ * {@code parallelThreshold} humans split the movers into spatial regions whose collision
+ * queries run on a {@link ForkJoinPool}; the results are then committed in sample order,
+ * so a pair straddling two regions is only ever marked busy once and runs stay reproducible.
+ * A partner found on the pre-tick state is checked again when committed: one that has moved out
+ * of range or become busy during the tick is replaced by a fresh query, as the sequential path would.
+ * Colliding humans start an interaction lasting a random number of ticks, after which the
+ * world's {@link InteractionEngine} releases them.
+ */
+public class CitySimulator {
+
+    private static final double MAX_STEP = 0.1;
+    private static final int LINEAR_SAMPLE_LIMIT = 32;
+    private static final int NO_COLLISION = -1;
+
+    private static final int DEFAULT_MIN_INTERACTION_TICKS = 20;
+    private static final int DEFAULT_MAX_INTERACTION_TICKS = 100;
+
+    private final ForkJoinPool pool;
+    private final int parallelThreshold;
+    private final int regionsPerSide;
+    private final int minInteractionTicks;
+    private final int maxInteractionTicks;
+    // the simulator is shared by the tick threads of all cities, so each thread keeps its own scratch set
+    private final ThreadLocal<BitSet> picked = ThreadLocal.withInitial(BitSet::new);
+
+    public CitySimulator() {
+        this(null, Integer.MAX_VALUE, 1, DEFAULT_MIN_INTERACTION_TICKS, DEFAULT_MAX_INTERACTION_TICKS);
+    }
+
+    public CitySimulator(ForkJoinPool pool, int parallelThreshold, int regionsPerSide,
+                         int minInteractionTicks, int maxInteractionTicks) {
+        this.pool = pool;
+        this.parallelThreshold = parallelThreshold;
+        this.regionsPerSide = regionsPerSide;
+        this.minInteractionTicks = minInteractionTicks;
+        this.maxInteractionTicks = Math.max(minInteractionTicks, maxInteractionTicks);
+    }
+
+    /**
+     * Schedules the release of humans that were already busy when the world was loaded.
+     * The caller must hold the world monitor.
+     */
+    public void resume(CityWorld world, RandomGenerator random) {
+        for (int slot = 0; slot < world.size(); slot++) {
+            if (world.isBusy(slot)) {
+                world.getInteractions().hold(world, slot, interactionTicks(random));
+            }
+        }
+    }
+
+    /**
+     * Moves a random sample of idle humans, marking colliding pairs as busy.
+     * The caller must hold the world monitor.
+     *
+     * @param sampled    receives the sampled slots, whether they moved or not; at least {@code sampleSize} long
+     * @param sampleSize number of humans to move
+     * @return the number of sampled slots
+     */
+    public int tick(CityWorld world, RandomGenerator random, int[] sampled, int sampleSize) {
+        world.getInteractions().advance(world);
+        int count = sample(world.size(), sampleSize, random, sampled);
+        if (pool != null && count >= parallelThreshold) {
+            tickParallel(world, random, sampled, count);
+        } else {
+            tickSequential(world, random, sampled, count);
+        }
+        return count;
+    }
+
+    private void tickSequential(CityWorld world, RandomGenerator random, int[] sampled, int count) {
+        for (int i = 0; i < count; i++) {
+            int slot = sampled[i];
+            if (!world.isBusy(slot)) {
+                int other = world.findCollision(slot);
+                if (other != NO_COLLISION) {
+                    world.getInteractions().begin(world, slot, other, interactionTicks(random));
+                } else {
+                    updateHumanPosition(world, slot, random);
+                }
+            }
+        }
+    }
+
+    private void tickParallel(CityWorld world, RandomGenerator random, int[] sampled, int count) {
+        double[] deltaX = new double[count];
+        double[] deltaY = new double[count];
+        for (int i = 0; i < count; i++) {
+            deltaX[i] = (random.nextDouble() - 0.5) * MAX_STEP;
+            deltaY[i] = (random.nextDouble() - 0.5) * MAX_STEP;
+        }
+
+        int regions = regionsPerSide * regionsPerSide;
+        int[] regionStart = new int[regions + 1];
+        int[] regionOf = new int[count];
+        for (int i = 0; i < count; i++) {
+            int slot = sampled[i];
+            int column = Math.min(regionsPerSide - 1, (int) (world.x(slot) * regionsPerSide));
+            int row = Math.min(regionsPerSide - 1, (int) (world.y(slot) * regionsPerSide));
+            regionOf[i] = row * regionsPerSide + column;
+            regionStart[regionOf[i] + 1]++;
+        }
+        for (int region = 0; region < regions; region++) {
+            regionStart[region + 1] += regionStart[region];
+        }
+        int[] byRegion = new int[count];
+        int[] fill = regionStart.clone();
+        for (int i = 0; i < count; i++) {
+            byRegion[fill[regionOf[i]]++] = i;
+        }
+
+        int[] partner = new int[count];
+        pool.invoke(new RegionTask(world, sampled, byRegion, regionStart, partner, 0, regions));
+
+        for (int i = 0; i < count; i++) {
+            int slot = sampled[i];
+            if (world.isBusy(slot)) {
+                continue;
+            }
+            int other = partner[i];
+            if (other != NO_COLLISION && (world.isBusy(other) || !world.collides(slot, other))) {
+                other = world.findCollision(slot);
+            }
+            if (other != NO_COLLISION) {
+                world.getInteractions().begin(world, slot, other, interactionTicks(random));
+            } else {
+                world.move(slot, clamp(world.x(slot) + deltaX[i]), clamp(world.y(slot) + deltaY[i]));
+            }
+        }
+    }
+
+    /**
+     * Picks up to {@code count} distinct slots (Floyd's algorithm), without copying or shuffling the whole city.
+     * Large samples track the picked slots in the thread's scratch set, cleared again slot by slot.
+     */
+    private int sample(int size, int count, RandomGenerator random, int[] sampled) {
+        if (size <= count) {
+            for (int slot = 0; slot < size; slot++) {
+                sampled[slot] = slot;
+            }
+            return size;
+        }
+        BitSet picked = count > LINEAR_SAMPLE_LIMIT ? this.picked.get() : null;
+        for (int j = size - count, i = 0; j < size; j++, i++) {
+            int slot = random.nextInt(j + 1);
+            boolean taken = picked != null ? picked.get(slot) : contains(sampled, i, slot);
+            sampled[i] = taken ? j : slot;
+            if (picked != null) {
+                picked.set(sampled[i]);
+            }
+        }
+        if (picked != null) {
+            for (int i = 0; i < count; i++) {
+                picked.clear(sampled[i]);
+            }
+        }
+        return count;
+    }
+
+    private boolean contains(int[] slots, int length, int slot) {
+        for (int i = 0; i < length; i++) {
+            if (slots[i] == slot) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void updateHumanPosition(CityWorld world, int slot, RandomGenerator random) {
+        double deltaX = (random.nextDouble() - 0.5) * MAX_STEP;
+        double deltaY = (random.nextDouble() - 0.5) * MAX_STEP;
+
+        world.move(slot, clamp(world.x(slot) + deltaX), clamp(world.y(slot) + deltaY));
+    }
+
+    private int interactionTicks(RandomGenerator random) {
+        return minInteractionTicks + random.nextInt(maxInteractionTicks - minInteractionTicks + 1);
+    }
+
+    private static double clamp(double coordinate) {
+        return Math.max(0, Math.min(1, coordinate));
+    }
+
+    /**
+     * Read-only collision pass over a range of regions; only writes the partner of its own movers.
+     */
+    private static final class RegionTask extends RecursiveAction {
+
+        private final CityWorld world;
+        private final int[] sampled;
+        private final int[] byRegion;
+        private final int[] regionStart;
+        private final int[] partner;
+        private final int fromRegion;
+        private final int toRegion;
+
+        private RegionTask(CityWorld world, int[] sampled, int[] byRegion, int[] regionStart, int[] partner,
+                           int fromRegion, int toRegion) {
+            this.world = world;
+            this.sampled = sampled;
+            this.byRegion = byRegion;
+            this.regionStart = regionStart;
+            this.partner = partner;
+            this.fromRegion = fromRegion;
+            this.toRegion = toRegion;
+        }
+
+        @Override
+        protected void compute() {
+            if (toRegion - fromRegion > 1) {
+                int middle = (fromRegion + toRegion) >>> 1;
+                invokeAll(
+                        new RegionTask(world, sampled, byRegion, regionStart, partner, fromRegion, middle),
+                        new RegionTask(world, sampled, byRegion, regionStart, partner, middle, toRegion));
+                return;
+            }
+            for (int k = regionStart[fromRegion]; k < regionStart[toRegion]; k++) {
+                int i = byRegion[k];
+                int slot = sampled[i];
+                partner[i] = world.isBusy(slot) ? NO_COLLISION : world.findCollision(slot);
+            }
+        }
+    }
+}
@@ -0,0 +1,345 @@
+package eu.catlabs.humanaity.simulation.domain;
+
+import eu.catlabs.humanaity.human.domain.Human;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * In-memory authoritative state of a city while its simulation is running.
+ * Hot state (position, busy flag) lives in primitive arrays indexed by slot; the {@link Human} entities
+ * only hold the cold attributes and are never written by the world. Humans leaving the world, for persistence
+ * or the API, are copies carrying the current hot state, so callers may use them outside the lock.
+ * Slots are found by id through a sorted array of the ids, kept beside the slot arrays.
+ * Slot accessors are unsynchronized and must be called while holding the world monitor.
+ */
+public class CityWorld {
+
+    public static final double COLLISION_DISTANCE = 0.02;
+    /** Interaction serial of a human no interaction is scheduled for */
+    public static final long NO_INTERACTION = 0;
+    private static final double COLLISION_DISTANCE_SQUARED = COLLISION_DISTANCE * COLLISION_DISTANCE;
+    private static final int INITIAL_CAPACITY = 16;
+
+    private final Long cityId;
+    private final BitSet busy = new BitSet();
+    private final BitSet dirty = new BitSet();
+    private final SpatialGrid grid;
+    private final InteractionEngine interactions = new InteractionEngine();
+    private Human[] humans;
+    private long[] ids;
+    private long[] sortedIds;
+    private int[] sortedSlots;
+    private long[] interaction;
+    private double[] x;
+    private double[] y;
+    private int size;
+    private boolean closed;
+
+    public CityWorld(Long cityId, List<Human> humans) {
+        int capacity = Math.max(INITIAL_CAPACITY, humans.size());
+        this.cityId = cityId;
+        this.grid = new SpatialGrid(COLLISION_DISTANCE, capacity);
+        this.humans = new Human[capacity];
+        this.ids = new long[capacity];
+        this.sortedIds = new long[capacity];
+        this.sortedSlots = new int[capacity];
+        this.interaction = new long[capacity];
+        this.x = new double[capacity];
+        this.y = new double[capacity];
+        humans.forEach(this::add);
+    }
+
+    public Long getCityId() {
+        return cityId;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public InteractionEngine getInteractions() {
+        return interactions;
+    }
+
+    /**
+     * Slot of a human, or -1 when it is not part of this world.
+     */
+    public int slotOf(long humanId) {
+        int index = indexOf(humanId);
+        return index >= 0 ? sortedSlots[index] : -1;
+    }
+
+    public long id(int slot) {
+        return ids[slot];
+    }
+
+    /**
+     * Entity of a slot, for its cold attributes only: its position and busy flag are those it was loaded or last saved with.
+     */
+    public Human human(int slot) {
+        return humans[slot];
+    }
+
+    public double x(int slot) {
+        return x[slot];
+    }
+
+    public double y(int slot) {
+        return y[slot];
+    }
+
+    public boolean isBusy(int slot) {
+        return busy.get(slot);
+    }
+
+    public void setBusy(int slot, boolean value) {
+        busy.set(slot, value);
+        dirty.set(slot);
+    }
+
+    /**
+     * Serial of the interaction whose end releases this slot, set by the {@link InteractionEngine}.
+     */
+    public long interaction(int slot) {
+        return interaction[slot];
+    }
+
+    public void setInteraction(int slot, long serial) {
+        interaction[slot] = serial;
+    }
+
+    public void move(int slot, double newX, double newY) {
+        x[slot] = newX;
+        y[slot] = newY;
+        grid.move(slot, newX, newY);
+        dirty.set(slot);
+    }
+
+    /**
+     * Returns a slot closer than {@link #COLLISION_DISTANCE} to the given one, looking only at
+     * neighbouring cells, or -1 when there is none.
+     */
+    public int findCollision(int slot) {
+        double slotX = x[slot];
+        double slotY = y[slot];
+        int column = grid.column(slotX);
+        int row = grid.row(slotY);
+        int lastCell = grid.getCellsPerSide() - 1;
+
+        for (int r = Math.max(0, row - 1); r <= Math.min(lastCell, row + 1); r++) {
+            for (int c = Math.max(0, column - 1); c <= Math.min(lastCell, column + 1); c++) {
+                for (int other = grid.first(c, r); other != -1; other = grid.next(other)) {
+                    if (other == slot) {
+                        continue;
+                    }
+                    if (collides(slot, other)) {
+                        return other;
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Whether two slots are closer than {@link #COLLISION_DISTANCE}.
+     */
+    public boolean collides(int slot, int other) {
+        double dx = x[slot] - x[other];
+        double dy = y[slot] - y[other];
+        return dx * dx + dy * dy < COLLISION_DISTANCE_SQUARED;
+    }
+
+    public synchronized List<Human> snapshot() {
+        List<Human> snapshot = new ArrayList<>(size);
+        for (int slot = 0; slot < size; slot++) {
+            snapshot.add(toHuman(slot));
+        }
+        return snapshot;
+    }
+
+    /**
+     * Humans inside the box, found through the spatial grid.
+     */
+    public synchronized List<Human> snapshotWithin(BoundingBox box) {
+        List<Human> within = new ArrayList<>();
+        grid.query(box, slot -> {
+            if (box.contains(x[slot], y[slot])) {
+                within.add(toHuman(slot));
+            }
+        });
+        return within;
+    }
+
+    /**
+     * Up to {@code limit} humans with an id above {@code afterId}, by ascending id, for keyset pages.
+     * The page starts from a binary search of the sorted ids, so it costs O(log N + limit) whatever its position.
+     */
+    public synchronized List<Human> snapshotAfter(long afterId, int limit) {
+        int index = indexOf(afterId);
+        int from = index >= 0 ? index + 1 : -index - 1;
+        int to = (int) Math.min(size, (long) from + limit);
+        List<Human> page = new ArrayList<>(Math.max(0, to - from));
+        for (int i = from; i < to; i++) {
+            page.add(toHuman(sortedSlots[i]));
+        }
+        return page;
+    }
+
+    public synchronized Optional<Human> find(Long humanId) {
+        int slot = slotOf(humanId);
+        return slot < 0 ? Optional.empty() : Optional.of(toHuman(slot));
+    }
+
+    /**
+     * Takes over a human saved outside the simulation. The slot is left dirty so the next flush writes
+     * the world's state again, over whatever a flush drained before this call and wrote after the save.
+     */
+    public synchronized void put(Human human) {
+        int slot = slotOf(human.getId());
+        if (slot < 0) {
+            add(human);
+            dirty.set(size - 1);
+            return;
+        }
+        humans[slot] = human;
+        x[slot] = coordinate(human.getX());
+        y[slot] = coordinate(human.getY());
+        busy.set(slot, human.isBusy());
+        dirty.set(slot);
+        grid.move(slot, x[slot], y[slot]);
+    }
+
+    public synchronized boolean remove(Long humanId) {
+        int index = indexOf(humanId);
+        if (index < 0) {
+            return false;
+        }
+        int slot = sortedSlots[index];
+        interactions.discard(interaction[slot]);
+        System.arraycopy(sortedIds, index + 1, sortedIds, index, size - index - 1);
+        System.arraycopy(sortedSlots, index + 1, sortedSlots, index, size - index - 1);
+        int last = --size;
+        grid.remove(slot);
+        if (slot != last) {
+            humans[slot] = humans[last];
+            ids[slot] = ids[last];
+            interaction[slot] = interaction[last];
+            x[slot] = x[last];
+            y[slot] = y[last];
+            busy.set(slot, busy.get(last));
+            dirty.set(slot, dirty.get(last));
+            sortedSlots[indexOf(ids[slot])] = slot;
+            grid.relocate(last, slot);
+        }
+        humans[last] = null;
+        interaction[last] = NO_INTERACTION;
+        busy.clear(last);
+        dirty.clear(last);
+        return true;
+    }
+
+    public synchronized void markDirty(Long humanId) {
+        int slot = slotOf(humanId);
+        if (slot >= 0) {
+            dirty.set(slot);
+        }
+    }
+
+    /**
+     * Returns copies of the humans changed since the last drain and resets the dirty set.
+     */
+    public synchronized List<Human> drainDirty() {
+        List<Human> changed = new ArrayList<>(dirty.cardinality());
+        for (int slot = dirty.nextSetBit(0); slot >= 0; slot = dirty.nextSetBit(slot + 1)) {
+            changed.add(toHuman(slot));
+        }
+        dirty.clear();
+        return changed;
+    }
+
+    /**
+     * Appends the hot fields of the humans changed since the last drain to the batch and resets the dirty set.
+     */
+    public synchronized void drainDirty(PositionBatch batch) {
+        for (int slot = dirty.nextSetBit(0); slot >= 0; slot = dirty.nextSetBit(slot + 1)) {
+            batch.add(ids[slot], x[slot], y[slot], busy.get(slot));
+        }
+        dirty.clear();
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    public synchronized void close() {
+        closed = true;
+    }
+
+    /**
+     * Copy of a slot's entity with its current hot state.
+     */
+    private Human toHuman(int slot) {
+        Human entity = humans[slot];
+        Human human = new Human();
+        human.setId(entity.getId());
+        human.setName(entity.getName());
+        human.setBusy(busy.get(slot));
+        human.setX(x[slot]);
+        human.setY(y[slot]);
+        human.setCreativity(entity.getCreativity());
+        human.setIntellect(entity.getIntellect());
+        human.setSociability(entity.getSociability());
+        human.setPracticality(entity.getPracticality());
+        human.setPersonality(entity.getPersonality());
+        human.setScienceSkill(entity.getScienceSkill());
+        human.setCultureSkill(entity.getCultureSkill());
+        human.setSocialSkill(entity.getSocialSkill());
+        human.setTotalScienceContributed(entity.getTotalScienceContributed());
+        human.setTotalCultureContributed(entity.getTotalCultureContributed());
+        human.setTotalSocialContributed(entity.getTotalSocialContributed());
+        human.setCity(entity.getCity());
+        return human;
+    }
+
+    private void add(Human human) {
+        if (size == humans.length) {
+            int capacity = size * 2;
+            humans = Arrays.copyOf(humans, capacity);
+            ids = Arrays.copyOf(ids, capacity);
+            sortedIds = Arrays.copyOf(sortedIds, capacity);
+            sortedSlots = Arrays.copyOf(sortedSlots, capacity);
+            interaction = Arrays.copyOf(interaction, capacity);
+            x = Arrays.copyOf(x, capacity);
+            y = Arrays.copyOf(y, capacity);
+        }
+        int slot = size++;
+        humans[slot] = human;
+        ids[slot] = human.getId();
+        x[slot] = coordinate(human.getX());
+        y[slot] = coordinate(human.getY());
+        busy.set(slot, human.isBusy());
+        grid.insert(slot, x[slot], y[slot]);
+        // humans mostly arrive in id order, from the load or new sequence values, so this is usually an append
+        int index = -Arrays.binarySearch(sortedIds, 0, slot, ids[slot]) - 1;
+        System.arraycopy(sortedIds, index, sortedIds, index + 1, slot - index);
+        System.arraycopy(sortedSlots, index, sortedSlots, index + 1, slot - index);
+        sortedIds[index] = ids[slot];
+        sortedSlots[index] = slot;
+    }
+
+    /**
+     * Position of an id in the sorted ids, or {@code -(insertion point) - 1} when it is not in the world.
+     */
+    private int indexOf(long humanId) {
+        return Arrays.binarySearch(sortedIds, 0, size, humanId);
+    }
+
+    private static double coordinate(Double value) {
+        return value != null ? value : 0.0;
+    }
+}
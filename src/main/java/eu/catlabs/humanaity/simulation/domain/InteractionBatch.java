@@ -0,0 +1,60 @@
+package eu.catlabs.humanaity.simulation.domain;
+
+import java.util.Arrays;
+
+/**
+ * Reusable buffer of finished interactions waiting to be persisted.
+ */
+public class InteractionBatch {
+
+    private long[] firstHumanIds = new long[16];
+    private long[] secondHumanIds = new long[16];
+    private long[] startedAt = new long[16];
+    private long[] endedAt = new long[16];
+    private int size;
+
+    public void add(long firstHumanId, long secondHumanId, long startedAtMillis, long endedAtMillis) {
+        if (size == firstHumanIds.length) {
+            int capacity = size * 2;
+            firstHumanIds = Arrays.copyOf(firstHumanIds, capacity);
+            secondHumanIds = Arrays.copyOf(secondHumanIds, capacity);
+            startedAt = Arrays.copyOf(startedAt, capacity);
+            endedAt = Arrays.copyOf(endedAt, capacity);
+        }
+        firstHumanIds[size] = firstHumanId;
+        secondHumanIds[size] = secondHumanId;
+        startedAt[size] = startedAtMillis;
+        endedAt[size] = endedAtMillis;
+        size++;
+    }
+
+    public void addAll(InteractionBatch other) {
+        for (int i = 0; i < other.size; i++) {
+            add(other.firstHumanIds[i], other.secondHumanIds[i], other.startedAt[i], other.endedAt[i]);
+        }
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long firstHumanId(int index) {
+        return firstHumanIds[index];
+    }
+
+    public long secondHumanId(int index) {
+        return secondHumanIds[index];
+    }
+
+    public long startedAt(int index) {
+        return startedAt[index];
+    }
+
+    public long endedAt(int index) {
+        return endedAt[index];
+    }
+}
@@ -0,0 +1,148 @@
+package eu.catlabs.humanaity.simulation.domain;
+
+import java.util.Arrays;
+
+/**
+ * Lifecycle of the interactions of one city: busy humans are released when their interaction ends.
+ * Expiries live in a hashed timing wheel indexed by tick, so starting an interaction is O(1) and a
+ * tick only visits the bucket that is due. Each human has its own expiry entry, keyed by id so it
+ * survives slot compaction; the entry of the human that started the interaction also logs it.
+ * Every entry carries a serial that the world keeps for the human's current interaction, so an entry
+ * left behind by a human that was removed, or that has since started another interaction, releases nobody.
+ * Serials of the entry that started an interaction are odd, so the count of active interactions goes up once
+ * per interaction and down once, when that entry releases its human or is superseded or its human removed.
+ * {@link #begin}, {@link #hold}, {@link #advance} and {@link #discard} must be called while holding the world monitor.
+ */
+public class InteractionEngine {
+
+    private static final int WHEEL_SIZE = 512;
+    private static final int MASK = WHEEL_SIZE - 1;
+    private static final int STRIDE = 5;
+    private static final long NO_PARTNER = -1;
+
+    private final long[][] buckets = new long[WHEEL_SIZE][];
+    private final int[] bucketSizes = new int[WHEEL_SIZE];
+    private final InteractionBatch finished = new InteractionBatch();
+    private long tick;
+    private long lastSerial;
+    private volatile int active;
+
+    /**
+     * Interactions started and not over yet, counted once per pair.
+     */
+    public int getActive() {
+        return active;
+    }
+
+    /**
+     * Starts an interaction between two slots, both staying busy for {@code durationTicks}.
+     * A partner that is already busy keeps its own expiry.
+     */
+    public void begin(CityWorld world, int slot, int partner, int durationTicks) {
+        long startedAt = System.currentTimeMillis();
+        if (!world.isBusy(partner)) {
+            world.setBusy(partner, true);
+            schedule(world, partner, NO_PARTNER, startedAt, durationTicks);
+        }
+        world.setBusy(slot, true);
+        schedule(world, slot, world.id(partner), startedAt, durationTicks);
+    }
+
+    /**
+     * Schedules the release of a human that is already busy without a known interaction, e.g. when a world is loaded.
+     */
+    public void hold(CityWorld world, int slot, int durationTicks) {
+        schedule(world, slot, NO_PARTNER, System.currentTimeMillis(), durationTicks);
+    }
+
+    /**
+     * Moves the wheel one tick forward and releases the humans whose interaction ends on it.
+     */
+    public void advance(CityWorld world) {
+        tick++;
+        int bucket = (int) (tick & MASK);
+        long[] entries = buckets[bucket];
+        int size = bucketSizes[bucket];
+        int kept = 0;
+        long now = 0;
+        for (int i = 0; i < size; i += STRIDE) {
+            if (entries[i + 3] > 0) {
+                entries[i + 3]--;
+                System.arraycopy(entries, i, entries, kept, STRIDE);
+                kept += STRIDE;
+                continue;
+            }
+            if (now == 0) {
+                now = System.currentTimeMillis();
+            }
+            release(world, entries[i], entries[i + 1], entries[i + 2], entries[i + 4], now);
+        }
+        bucketSizes[bucket] = kept;
+    }
+
+    /**
+     * Forgets the interaction a human leaving the world was held by, whose entry will release nobody.
+     */
+    public void discard(long serial) {
+        if (startsInteraction(serial)) {
+            active--;
+        }
+    }
+
+    /**
+     * Moves the interactions finished since the last drain into the target batch.
+     */
+    public synchronized void drainFinished(InteractionBatch target) {
+        target.addAll(finished);
+        finished.clear();
+    }
+
+    /**
+     * Puts back finished interactions that could not be persisted, so the next drain retries them.
+     */
+    public synchronized void requeueFinished(InteractionBatch batch) {
+        finished.addAll(batch);
+    }
+
+    private void release(CityWorld world, long humanId, long partnerId, long startedAt, long serial, long now) {
+        int slot = world.slotOf(humanId);
+        if (slot >= 0 && world.interaction(slot) == serial) {
+            world.setInteraction(slot, CityWorld.NO_INTERACTION);
+            world.setBusy(slot, false);
+            discard(serial);
+        }
+        if (partnerId != NO_PARTNER) {
+            synchronized (this) {
+                finished.add(humanId, partnerId, startedAt, now);
+            }
+        }
+    }
+
+    private void schedule(CityWorld world, int slot, long partnerId, long startedAt, int durationTicks) {
+        long serial = (++lastSerial << 1) | (partnerId != NO_PARTNER ? 1 : 0);
+        discard(world.interaction(slot));
+        world.setInteraction(slot, serial);
+        if (startsInteraction(serial)) {
+            active++;
+        }
+        int delay = Math.max(1, durationTicks);
+        int bucket = (int) ((tick + delay) & MASK);
+        long[] entries = buckets[bucket];
+        int size = bucketSizes[bucket];
+        if (entries == null) {
+            entries = buckets[bucket] = new long[STRIDE * 4];
+        } else if (size == entries.length) {
+            entries = buckets[bucket] = Arrays.copyOf(entries, size * 2);
+        }
+        entries[size] = world.id(slot);
+        entries[size + 1] = partnerId;
+        entries[size + 2] = startedAt;
+        entries[size + 3] = (delay - 1) / WHEEL_SIZE;
+        entries[size + 4] = serial;
+        bucketSizes[bucket] = size + STRIDE;
+    }
+
+    private static boolean startsInteraction(long serial) {
+        return (serial & 1) == 1;
+    }
+}
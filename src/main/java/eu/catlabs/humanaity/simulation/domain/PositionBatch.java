@@ -0,0 +1,54 @@
+package eu.catlabs.humanaity.simulation.domain;
+
+import java.util.Arrays;
+
+/**
+ * Reusable buffer of the hot fields (position, busy flag) of changed humans, keyed by human id.
+ */
+public class PositionBatch {
+
+    private long[] ids = new long[64];
+    private double[] x = new double[64];
+    private double[] y = new double[64];
+    private boolean[] busy = new boolean[64];
+    private int size;
+
+    public void add(long id, double newX, double newY, boolean newBusy) {
+        if (size == ids.length) {
+            int capacity = size * 2;
+            ids = Arrays.copyOf(ids, capacity);
+            x = Arrays.copyOf(x, capacity);
+            y = Arrays.copyOf(y, capacity);
+            busy = Arrays.copyOf(busy, capacity);
+        }
+        ids[size] = id;
+        x[size] = newX;
+        y[size] = newY;
+        busy[size] = newBusy;
+        size++;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long id(int index) {
+        return ids[index];
+    }
+
+    public double x(int index) {
+        return x[index];
+    }
+
+    public double y(int index) {
+        return y[index];
+    }
+
+    public boolean isBusy(int index) {
+        return busy[index];
+    }
+}
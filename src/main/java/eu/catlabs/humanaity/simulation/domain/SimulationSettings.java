@@ -0,0 +1,70 @@
+package eu.catlabs.humanaity.simulation.domain;
+
+/**
+ * Tuning of one running city: how many humans move per tick and how often it ticks.
+ * The sample is either a fixed count or a fraction of the city, always capped by {@code maxHumansPerTick}.
+ * In adaptive mode the configured sample is only the starting point; it then follows the measured tick cost.
+ */
+public final class SimulationSettings {
+
+    private final Integer sampleCount;
+    private final Double sampleFraction;
+    private final long tickPeriodMillis;
+    private final int maxHumansPerTick;
+    private final boolean adaptive;
+
+    public SimulationSettings(Integer sampleCount, Double sampleFraction, long tickPeriodMillis,
+                              int maxHumansPerTick, boolean adaptive) {
+        if (sampleCount != null && sampleFraction != null) {
+            throw new IllegalArgumentException("Set either a sample count or a sample fraction, not both");
+        }
+        if (sampleCount == null && sampleFraction == null) {
+            throw new IllegalArgumentException("A sample count or a sample fraction is required");
+        }
+        if (sampleCount != null && sampleCount < 1) {
+            throw new IllegalArgumentException("Sample count must be at least 1");
+        }
+        if (sampleFraction != null && (sampleFraction <= 0 || sampleFraction > 1)) {
+            throw new IllegalArgumentException("Sample fraction must be in (0, 1]");
+        }
+        if (tickPeriodMillis < 1) {
+            throw new IllegalArgumentException("Tick period must be at least 1 ms");
+        }
+        if (maxHumansPerTick < 1) {
+            throw new IllegalArgumentException("Max humans per tick must be at least 1");
+        }
+        this.sampleCount = sampleCount;
+        this.sampleFraction = sampleFraction;
+        this.tickPeriodMillis = tickPeriodMillis;
+        this.maxHumansPerTick = maxHumansPerTick;
+        this.adaptive = adaptive;
+    }
+
+    public Integer getSampleCount() {
+        return sampleCount;
+    }
+
+    public Double getSampleFraction() {
+        return sampleFraction;
+    }
+
+    public long getTickPeriodMillis() {
+        return tickPeriodMillis;
+    }
+
+    public int getMaxHumansPerTick() {
+        return maxHumansPerTick;
+    }
+
+    public boolean isAdaptive() {
+        return adaptive;
+    }
+
+    /**
+     * Configured number of humans to move per tick in a city of the given size.
+     */
+    public int sampleSize(int citySize) {
+        int size = sampleCount != null ? sampleCount : (int) Math.ceil(sampleFraction * citySize);
+        return Math.max(1, Math.min(size, maxHumansPerTick));
+    }
+}
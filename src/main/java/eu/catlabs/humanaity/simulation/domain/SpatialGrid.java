@@ -0,0 +1,141 @@
+package eu.catlabs.humanaity.simulation.domain;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * Uniform hash grid over the unit square, indexing world slots by cell.
+ * Each cell is an intrusive doubly-linked list of slots so moves never allocate.
+ */
+public class SpatialGrid {
+
+    private static final int NONE = -1;
+
+    private final double cellSize;
+    private final int cellsPerSide;
+    private final int[] cellHead;
+    private int[] cellOfSlot;
+    private int[] next;
+    private int[] prev;
+
+    public SpatialGrid(double cellSize, int capacity) {
+        this.cellSize = cellSize;
+        this.cellsPerSide = (int) Math.ceil(1.0 / cellSize);
+        this.cellHead = new int[cellsPerSide * cellsPerSide];
+        Arrays.fill(cellHead, NONE);
+        this.cellOfSlot = new int[Math.max(capacity, 16)];
+        this.next = new int[cellOfSlot.length];
+        this.prev = new int[cellOfSlot.length];
+        Arrays.fill(cellOfSlot, NONE);
+    }
+
+    public int getCellsPerSide() {
+        return cellsPerSide;
+    }
+
+    public int column(double x) {
+        return clamp((int) (x / cellSize));
+    }
+
+    public int row(double y) {
+        return clamp((int) (y / cellSize));
+    }
+
+    /**
+     * First slot of the given cell, or -1 when the cell is empty.
+     */
+    public int first(int column, int row) {
+        return cellHead[row * cellsPerSide + column];
+    }
+
+    /**
+     * Next slot in the same cell, or -1 at the end of the cell.
+     */
+    public int next(int slot) {
+        return next[slot];
+    }
+
+    /**
+     * Visits the slots of every cell overlapping the box; callers still check exact coordinates.
+     */
+    public void query(BoundingBox box, IntConsumer action) {
+        int lastColumn = column(box.getMaxX());
+        int lastRow = row(box.getMaxY());
+        for (int r = row(box.getMinY()); r <= lastRow; r++) {
+            for (int c = column(box.getMinX()); c <= lastColumn; c++) {
+                for (int slot = first(c, r); slot != NONE; slot = next[slot]) {
+                    action.accept(slot);
+                }
+            }
+        }
+    }
+
+    public void insert(int slot, double x, double y) {
+        ensureCapacity(slot + 1);
+        link(slot, row(y) * cellsPerSide + column(x));
+    }
+
+    public void move(int slot, double x, double y) {
+        int cell = row(y) * cellsPerSide + column(x);
+        if (cellOfSlot[slot] != cell) {
+            unlink(slot);
+            link(slot, cell);
+        }
+    }
+
+    public void remove(int slot) {
+        unlink(slot);
+    }
+
+    /**
+     * Re-keys an indexed slot, used when the world compacts its storage.
+     */
+    public void relocate(int from, int to) {
+        int cell = cellOfSlot[from];
+        unlink(from);
+        link(to, cell);
+    }
+
+    private void link(int slot, int cell) {
+        int head = cellHead[cell];
+        next[slot] = head;
+        prev[slot] = NONE;
+        if (head != NONE) {
+            prev[head] = slot;
+        }
+        cellHead[cell] = slot;
+        cellOfSlot[slot] = cell;
+    }
+
+    private void unlink(int slot) {
+        int cell = cellOfSlot[slot];
+        if (cell == NONE) {
+            return;
+        }
+        if (prev[slot] != NONE) {
+            next[prev[slot]] = next[slot];
+        } else {
+            cellHead[cell] = next[slot];
+        }
+        if (next[slot] != NONE) {
+            prev[next[slot]] = prev[slot];
+        }
+        cellOfSlot[slot] = NONE;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= cellOfSlot.length) {
+            return;
+        }
+        int newLength = Math.max(capacity, cellOfSlot.length * 2);
+        int oldLength = cellOfSlot.length;
+        cellOfSlot = Arrays.copyOf(cellOfSlot, newLength);
+        next = Arrays.copyOf(next, newLength);
+        prev = Arrays.copyOf(prev, newLength);
+        Arrays.fill(cellOfSlot, oldLength, newLength, NONE);
+    }
+
+    private int clamp(int cell) {
+        return Math.max(0, Math.min(cellsPerSide - 1, cell));
+    }
+}
@@ -0,0 +1,58 @@
+package eu.catlabs.humanaity.simulation.domain;
+
+/**
+ * Tick timing counters of one running city, measured against its tick budget.
+ */
+public class TickStats {
+
+    private long ticks;
+    private long overruns;
+    private long skippedTicks;
+    private long lastTickNanos;
+    private long maxTickNanos;
+    private long totalTickNanos;
+    private long maxLagNanos;
+
+    public synchronized void recordTick(long durationNanos, long lagNanos, long budgetNanos) {
+        ticks++;
+        lastTickNanos = durationNanos;
+        totalTickNanos += durationNanos;
+        maxTickNanos = Math.max(maxTickNanos, durationNanos);
+        maxLagNanos = Math.max(maxLagNanos, lagNanos);
+        if (durationNanos > budgetNanos) {
+            overruns++;
+        }
+    }
+
+    public synchronized void recordSkipped(long count) {
+        skippedTicks += count;
+    }
+
+    public synchronized long getTicks() {
+        return ticks;
+    }
+
+    public synchronized long getOverruns() {
+        return overruns;
+    }
+
+    public synchronized long getSkippedTicks() {
+        return skippedTicks;
+    }
+
+    public synchronized long getLastTickNanos() {
+        return lastTickNanos;
+    }
+
+    public synchronized long getMaxTickNanos() {
+        return maxTickNanos;
+    }
+
+    public synchronized long getMeanTickNanos() {
+        return ticks == 0 ? 0 : totalTickNanos / ticks;
+    }
+
+    public synchronized long getMaxLagNanos() {
+        return maxLagNanos;
+    }
+}
@@ -0,0 +1,43 @@
+package eu.catlabs.humanaity.simulation.infrastructure.persistence;
+
+import eu.catlabs.humanaity.simulation.domain.PositionBatch;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Writes only the hot columns of {@code human} in a single JDBC batch, bypassing entity merges.
+ */
+@Repository
+public class HumanPositionRepository {
+
+    private static final String UPDATE_POSITION = "UPDATE human SET x = ?, y = ?, busy = ? WHERE id = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public HumanPositionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Transactional
+    public void updatePositions(PositionBatch batch) {
+        jdbcTemplate.batchUpdate(UPDATE_POSITION, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement statement, int index) throws SQLException {
+                statement.setDouble(1, batch.x(index));
+                statement.setDouble(2, batch.y(index));
+                statement.setBoolean(3, batch.isBusy(index));
+                statement.setLong(4, batch.id(index));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return batch.size();
+            }
+        });
+    }
+}
@@ -0,0 +1,46 @@
+package eu.catlabs.humanaity.simulation.infrastructure.persistence;
+
+import eu.catlabs.humanaity.simulation.domain.InteractionBatch;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+
+/**
+ * Appends finished interactions to the {@code interaction} table in a single JDBC batch.
+ */
+@Repository
+public class InteractionLogRepository {
+
+    private static final String INSERT_INTERACTION =
+            "INSERT INTO interaction (city_id, first_human_id, second_human_id, started_at, ended_at) VALUES (?, ?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public InteractionLogRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Transactional
+    public void insertAll(Long cityId, InteractionBatch batch) {
+        jdbcTemplate.batchUpdate(INSERT_INTERACTION, new BatchPreparedStatementSetter() {
+            @Override
+            public void setValues(PreparedStatement statement, int index) throws SQLException {
+                statement.setLong(1, cityId);
+                statement.setLong(2, batch.firstHumanId(index));
+                statement.setLong(3, batch.secondHumanId(index));
+                statement.setTimestamp(4, new Timestamp(batch.startedAt(index)));
+                statement.setTimestamp(5, new Timestamp(batch.endedAt(index)));
+            }
+
+            @Override
+            public int getBatchSize() {
+                return batch.size();
+            }
+        });
+    }
+}
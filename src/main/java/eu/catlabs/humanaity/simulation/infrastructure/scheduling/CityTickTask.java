@@ -0,0 +1,145 @@
+package eu.catlabs.humanaity.simulation.infrastructure.scheduling;
+
+import eu.catlabs.humanaity.simulation.domain.TickStats;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * One city's tick and its timing, shared by the scheduler implementations.
+ * Overruns are counted in the stats; they are logged as a warning at most once per city every
+ * {@value #OVERRUN_WARNING_INTERVAL_SECONDS} seconds, so an overloaded node does not flood its log.
+ * A tick throwing an exception is logged and the city keeps ticking; an error cancels the city, is kept as
+ * its failure and is rethrown to the scheduler's thread.
+ */
+class CityTickTask implements TickHandle {
+
+    private static final Logger logger = LoggerFactory.getLogger(CityTickTask.class);
+    private static final long OVERRUN_WARNING_INTERVAL_SECONDS = 10;
+
+    private final Long cityId;
+    private final Runnable tick;
+    private volatile long periodNanos;
+    private final TickStats stats = new TickStats();
+    private final AtomicBoolean running = new AtomicBoolean();
+    private final Runnable onCancel;
+    private volatile boolean cancelled;
+    private volatile Throwable failure;
+    private long lastOverrunWarningNanos;
+    private long overrunsSinceWarning;
+
+    CityTickTask(Long cityId, Runnable tick, long periodMillis, Runnable onCancel) {
+        this.cityId = cityId;
+        this.tick = tick;
+        this.periodNanos = TimeUnit.MILLISECONDS.toNanos(periodMillis);
+        this.onCancel = onCancel;
+    }
+
+    Long getCityId() {
+        return cityId;
+    }
+
+    long getPeriodNanos() {
+        return periodNanos;
+    }
+
+    boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Claims the task for one run; false while the previous tick is still in progress.
+     */
+    boolean tryStart() {
+        return running.compareAndSet(false, true);
+    }
+
+    /**
+     * Gives back a claimed run that could not be started.
+     */
+    void abandon() {
+        running.set(false);
+    }
+
+    /**
+     * Runs a claimed tick and records its duration against the budget.
+     *
+     * @param deadline the {@link System#nanoTime()} at which the tick was due
+     * @return the time the tick finished
+     */
+    long run(long deadline) {
+        long budgetNanos = periodNanos;
+        long start = System.nanoTime();
+        try {
+            tick.run();
+        } catch (Exception e) {
+            logger.error("Error ticking city {}: {}", cityId, e.getMessage(), e);
+        } catch (Error e) {
+            logger.error("Stopping city {} after an error in its tick: {}", cityId, e, e);
+            failure = e;
+            cancel();
+            throw e;
+        } finally {
+            running.set(false);
+        }
+        long end = System.nanoTime();
+        stats.recordTick(end - start, Math.max(0, start - deadline), budgetNanos);
+        if (end - start > budgetNanos) {
+            logOverrun(end, end - start, budgetNanos);
+        }
+        return end;
+    }
+
+    /**
+     * Warns about an overrun unless the city was warned about less than the interval ago, counting the
+     * overruns in between; those are logged at debug level.
+     */
+    private synchronized void logOverrun(long now, long tickNanos, long budgetNanos) {
+        overrunsSinceWarning++;
+        if (lastOverrunWarningNanos != 0
+                && now - lastOverrunWarningNanos < TimeUnit.SECONDS.toNanos(OVERRUN_WARNING_INTERVAL_SECONDS)) {
+            logger.debug("City {} tick took {} ms, over its {} ms budget", cityId,
+                    TimeUnit.NANOSECONDS.toMillis(tickNanos), TimeUnit.NANOSECONDS.toMillis(budgetNanos));
+            return;
+        }
+        logger.warn("City {} tick took {} ms, over its {} ms budget; {} overruns since the last warning", cityId,
+                TimeUnit.NANOSECONDS.toMillis(tickNanos), TimeUnit.NANOSECONDS.toMillis(budgetNanos),
+                overrunsSinceWarning);
+        lastOverrunWarningNanos = now;
+        overrunsSinceWarning = 0;
+    }
+
+    void skip(long count) {
+        stats.recordSkipped(count);
+    }
+
+    @Override
+    public TickStats getStats() {
+        return stats;
+    }
+
+    @Override
+    public long getBudgetNanos() {
+        return periodNanos;
+    }
+
+    @Override
+    public void setPeriodMillis(long periodMillis) {
+        periodNanos = TimeUnit.MILLISECONDS.toNanos(periodMillis);
+    }
+
+    @Override
+    public Throwable getFailure() {
+        return failure;
+    }
+
+    @Override
+    public void cancel() {
+        if (!cancelled) {
+            cancelled = true;
+            onCancel.run();
+        }
+    }
+}
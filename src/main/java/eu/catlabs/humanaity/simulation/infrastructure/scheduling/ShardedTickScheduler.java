@@ -0,0 +1,84 @@
+package eu.catlabs.humanaity.simulation.infrastructure.scheduling;
+
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pins each city to the least loaded of N single-threaded workers.
+ * A tick finishing past the next deadline skips the missed ticks instead of queueing them.
+ */
+@Component
+@ConditionalOnProperty(name = "simulation.scheduler.mode", havingValue = "pool", matchIfMissing = true)
+public class ShardedTickScheduler implements TickScheduler {
+
+    private final ScheduledExecutorService[] workers;
+    private final int[] cityCounts;
+
+    public ShardedTickScheduler(@Value("${simulation.scheduler.threads:4}") int threads) {
+        this.workers = new ScheduledExecutorService[threads];
+        this.cityCounts = new int[threads];
+        for (int i = 0; i < threads; i++) {
+            String name = "simulation-worker-" + i;
+            workers[i] = Executors.newSingleThreadScheduledExecutor(runnable -> {
+                Thread thread = new Thread(runnable, name);
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    @Override
+    public synchronized TickHandle schedule(Long cityId, long periodMillis, Runnable tick) {
+        int worker = leastLoadedWorker();
+        cityCounts[worker]++;
+        CityTickTask task = new CityTickTask(cityId, tick, periodMillis, () -> release(worker));
+        long deadline = System.nanoTime();
+        workers[worker].execute(() -> runAt(task, workers[worker], deadline));
+        return task;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        for (ScheduledExecutorService worker : workers) {
+            worker.shutdownNow();
+        }
+    }
+
+    private void runAt(CityTickTask task, ScheduledExecutorService worker, long deadline) {
+        if (task.isCancelled() || !task.tryStart()) {
+            return;
+        }
+        long end = task.run(deadline);
+        long period = task.getPeriodNanos();
+        long next = deadline + period;
+        if (end - next >= 0) {
+            long missed = (end - next) / period + 1;
+            task.skip(missed);
+            next += missed * period;
+        }
+        if (!task.isCancelled()) {
+            long nextDeadline = next;
+            worker.schedule(() -> runAt(task, worker, nextDeadline), nextDeadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private int leastLoadedWorker() {
+        int best = 0;
+        for (int i = 1; i < cityCounts.length; i++) {
+            if (cityCounts[i] < cityCounts[best]) {
+                best = i;
+            }
+        }
+        return best;
+    }
+
+    private synchronized void release(int worker) {
+        cityCounts[worker]--;
+    }
+}
@@ -0,0 +1,25 @@
+package eu.catlabs.humanaity.simulation.infrastructure.scheduling;
+
+import eu.catlabs.humanaity.simulation.domain.TickStats;
+
+/**
+ * A city scheduled on a {@link TickScheduler}.
+ */
+public interface TickHandle {
+
+    TickStats getStats();
+
+    long getBudgetNanos();
+
+    /**
+     * Changes the period, and with it the budget, from the next tick on.
+     */
+    void setPeriodMillis(long periodMillis);
+
+    void cancel();
+
+    /**
+     * Error that stopped the ticks of the city, or null while it ticks.
+     */
+    Throwable getFailure();
+}
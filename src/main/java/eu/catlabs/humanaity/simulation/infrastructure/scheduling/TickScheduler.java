@@ -0,0 +1,10 @@
+package eu.catlabs.humanaity.simulation.infrastructure.scheduling;
+
+/**
+ * Drives the periodic ticks of running cities.
+ * Implementations never queue late ticks: a tick that cannot start on time is skipped and counted.
+ */
+public interface TickScheduler {
+
+    TickHandle schedule(Long cityId, long periodMillis, Runnable tick);
+}
@@ -0,0 +1,144 @@
+package eu.catlabs.humanaity.simulation.infrastructure.scheduling;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Single driver thread advancing a hashed timing wheel and handing due cities to a worker pool.
+ * A city whose previous tick is still running when it comes due again has that tick skipped.
+ * Failures are caught per city and around each advance, since an exception escaping the driver
+ * would cancel it and silently stop every city on the wheel.
+ */
+@Component
+@ConditionalOnProperty(name = "simulation.scheduler.mode", havingValue = "wheel")
+public class TimeWheelTickScheduler implements TickScheduler {
+
+    private static final Logger logger = LoggerFactory.getLogger(TimeWheelTickScheduler.class);
+
+    private static final int WHEEL_SIZE = 512;
+    private static final int MASK = WHEEL_SIZE - 1;
+
+    private final List<List<Entry>> buckets = new ArrayList<>(WHEEL_SIZE);
+    private final Queue<Entry> pending = new ConcurrentLinkedQueue<>();
+    private final ScheduledExecutorService driver;
+    private final ExecutorService workers;
+    private final long resolutionNanos;
+    private final long startNanos;
+    private long cursor;
+
+    public TimeWheelTickScheduler(@Value("${simulation.scheduler.threads:4}") int threads,
+                                  @Value("${simulation.scheduler.wheel-resolution-ms:10}") long resolutionMillis) {
+        for (int i = 0; i < WHEEL_SIZE; i++) {
+            buckets.add(new ArrayList<>());
+        }
+        AtomicInteger workerCount = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "simulation-worker-" + workerCount.getAndIncrement());
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.driver = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "simulation-driver");
+            thread.setDaemon(true);
+            return thread;
+        });
+        this.resolutionNanos = TimeUnit.MILLISECONDS.toNanos(resolutionMillis);
+        this.startNanos = System.nanoTime();
+        driver.scheduleAtFixedRate(this::tick, resolutionNanos, resolutionNanos, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public TickHandle schedule(Long cityId, long periodMillis, Runnable tick) {
+        CityTickTask task = new CityTickTask(cityId, tick, periodMillis, () -> { });
+        pending.add(new Entry(task));
+        return task;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        driver.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    private void tick() {
+        try {
+            advance();
+        } catch (RuntimeException e) {
+            logger.error("Error advancing the tick wheel: {}", e.getMessage(), e);
+        }
+    }
+
+    private void advance() {
+        for (Entry entry = pending.poll(); entry != null; entry = pending.poll()) {
+            insert(entry);
+            dispatch(entry.task, System.nanoTime());
+        }
+
+        cursor++;
+        long deadline = startNanos + cursor * resolutionNanos;
+        List<Entry> due = new ArrayList<>();
+        Iterator<Entry> iterator = buckets.get((int) (cursor & MASK)).iterator();
+        while (iterator.hasNext()) {
+            Entry entry = iterator.next();
+            if (entry.task.isCancelled()) {
+                iterator.remove();
+            } else if (entry.rounds > 0) {
+                entry.rounds--;
+            } else {
+                iterator.remove();
+                due.add(entry);
+            }
+        }
+        for (Entry entry : due) {
+            insert(entry);
+            dispatch(entry.task, deadline);
+        }
+    }
+
+    /**
+     * Hands a due city to the workers; the city is already back on the wheel, so a failure here only loses this tick.
+     */
+    private void dispatch(CityTickTask task, long deadline) {
+        if (!task.tryStart()) {
+            task.skip(1);
+            return;
+        }
+        try {
+            workers.execute(() -> task.run(deadline));
+        } catch (RuntimeException e) {
+            task.abandon();
+            task.skip(1);
+            logger.error("Error dispatching the tick of city {}: {}", task.getCityId(), e.getMessage(), e);
+        }
+    }
+
+    private void insert(Entry entry) {
+        long ticksAhead = Math.max(1, entry.task.getPeriodNanos() / resolutionNanos);
+        entry.rounds = (ticksAhead - 1) / WHEEL_SIZE;
+        buckets.get((int) ((cursor + ticksAhead) & MASK)).add(entry);
+    }
+
+    private static final class Entry {
+        private final CityTickTask task;
+        private long rounds;
+
+        private Entry(CityTickTask task) {
+            this.task = task;
+        }
+    }
+}
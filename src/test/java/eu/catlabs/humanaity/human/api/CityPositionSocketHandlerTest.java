@@ -0,0 +1,125 @@
+package eu.catlabs.humanaity.human.api;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.catlabs.humanaity.common.exception.TooManyStreamsException;
+import eu.catlabs.humanaity.human.api.dto.ViewportInput;
+import eu.catlabs.humanaity.human.application.HumanApplicationService;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.net.URI;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+
+class CityPositionSocketHandlerTest {
+
+    private final HumanApplicationService humanApplicationService = mock(HumanApplicationService.class);
+    private final CityPositionSocketHandler handler =
+            new CityPositionSocketHandler(humanApplicationService, new ObjectMapper());
+    private final WebSocketSession session = mock(WebSocketSession.class);
+    private final Map<String, Object> attributes = new HashMap<>();
+
+    CityPositionSocketHandlerTest() {
+        when(session.getAttributes()).thenReturn(attributes);
+        when(humanApplicationService.openPositionSocket(anyLong(), any(), eq(session), any(), any(), any(), any()))
+                .thenReturn("s-1");
+    }
+
+    @Test
+    void theCityComesFromThePathAndTheStreamOptionsFromTheQuery() throws Exception {
+        connect("/api/humans/city/42/positions/socket?format=binary&lastEventId=e-7"
+                + "&minX=0.1&minY=0.2&maxX=0.3&maxY=0.4&hz=5");
+
+        verify(humanApplicationService).openPositionSocket(42L, null, session, "binary", "e-7",
+                new ViewportInput(0.1, 0.2, 0.3, 0.4), 5.0);
+        assertThat(attributes).containsEntry("cityId", 42L).containsEntry("subscriptionId", "s-1");
+        verify(session, never()).close(any());
+    }
+
+    @Test
+    void missingOptionsAreLeftToTheService() throws Exception {
+        connect("/api/humans/city/3/positions/socket");
+
+        verify(humanApplicationService).openPositionSocket(3L, null, session, null, null,
+                new ViewportInput(), null);
+    }
+
+    @Test
+    void aBadCityIdClosesWithBadData() throws Exception {
+        connect("/api/humans/city/abc/positions/socket");
+
+        verify(session).close(CloseStatus.BAD_DATA.withReason("For input string: \"abc\""));
+        verifyNoInteractions(humanApplicationService);
+    }
+
+    @Test
+    void aRejectedStreamClosesWithBadData() throws Exception {
+        when(humanApplicationService.openPositionSocket(anyLong(), isNull(), eq(session), eq("csv"), isNull(),
+                any(), isNull())).thenThrow(new IllegalArgumentException("Unknown format: csv"));
+
+        connect("/api/humans/city/3/positions/socket?format=csv");
+
+        verify(session).close(CloseStatus.BAD_DATA.withReason("Unknown format: csv"));
+        assertThat(attributes).doesNotContainKey("subscriptionId");
+    }
+
+    @Test
+    void aStreamOverTheCapsClosesWithServiceOverload() throws Exception {
+        when(humanApplicationService.openPositionSocket(anyLong(), isNull(), eq(session), isNull(), isNull(),
+                any(), isNull())).thenThrow(new TooManyStreamsException("Too many streams"));
+
+        connect("/api/humans/city/3/positions/socket");
+
+        verify(session).close(CloseStatus.SERVICE_OVERLOAD.withReason("Too many streams"));
+    }
+
+    @Test
+    void textMessagesChangeTheViewportOfTheSubscription() throws Exception {
+        connect("/api/humans/city/42/positions/socket");
+
+        handler.handleMessage(session, new TextMessage("{\"minX\":0.5,\"minY\":0.5,\"maxX\":0.75,\"maxY\":1.0}"));
+        handler.handleMessage(session, new TextMessage("{}"));
+
+        verify(humanApplicationService).changeStreamViewport(42L, "s-1", new ViewportInput(0.5, 0.5, 0.75, 1.0));
+        verify(humanApplicationService).changeStreamViewport(42L, "s-1", new ViewportInput());
+    }
+
+    @Test
+    void malformedViewportsAreIgnored() throws Exception {
+        connect("/api/humans/city/42/positions/socket");
+
+        handler.handleMessage(session, new TextMessage("not json"));
+
+        verify(humanApplicationService, never()).changeStreamViewport(any(), any(), any());
+        verify(session, never()).close(any());
+    }
+
+    @Test
+    void closingReleasesTheSubscriptionOnlyWhenOneWasOpened() throws Exception {
+        handler.afterConnectionClosed(session, CloseStatus.NORMAL);
+        verify(humanApplicationService, never()).closePositionSocket(any());
+
+        connect("/api/humans/city/42/positions/socket");
+        handler.afterConnectionClosed(session, CloseStatus.NORMAL);
+
+        verify(humanApplicationService).closePositionSocket("s-1");
+    }
+
+    private void connect(String uri) throws Exception {
+        when(session.getUri()).thenReturn(URI.create("ws://localhost" + uri));
+        handler.afterConnectionEstablished(session);
+    }
+}
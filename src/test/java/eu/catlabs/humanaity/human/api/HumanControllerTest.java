@@ -0,0 +1,79 @@
+package eu.catlabs.humanaity.human.api;
+
+import eu.catlabs.humanaity.human.application.HumanApplicationService;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.web.context.request.ServletWebRequest;
+import org.springframework.web.context.request.async.CallableProcessingInterceptor;
+import org.springframework.web.context.request.async.WebAsyncManager;
+import org.springframework.web.context.request.async.WebAsyncUtils;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayOutputStream;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class HumanControllerTest {
+
+    @Test
+    void gzipIsAcceptedWhenListedWithoutAZeroWeight() {
+        assertThat(HumanController.acceptsGzip("gzip")).isTrue();
+        assertThat(HumanController.acceptsGzip("deflate, GZIP;q=0.5")).isTrue();
+        assertThat(HumanController.acceptsGzip("x-gzip")).isTrue();
+    }
+
+    @Test
+    void gzipIsRefusedWhenAbsentOrWeightedZero() {
+        assertThat(HumanController.acceptsGzip(null)).isFalse();
+        assertThat(HumanController.acceptsGzip("deflate, br")).isFalse();
+        assertThat(HumanController.acceptsGzip("gzip;q=0")).isFalse();
+        assertThat(HumanController.acceptsGzip("gzip; q=0.0")).isFalse();
+        assertThat(HumanController.acceptsGzip("gzip;q=high")).isFalse();
+    }
+
+    @Test
+    void aGzipEntryTakesPrecedenceOverTheWildcard() {
+        assertThat(HumanController.acceptsGzip("*")).isTrue();
+        assertThat(HumanController.acceptsGzip("*;q=0")).isFalse();
+        assertThat(HumanController.acceptsGzip("gzip;q=0, *")).isFalse();
+        assertThat(HumanController.acceptsGzip("gzip, *;q=0")).isTrue();
+    }
+
+    @Test
+    void theExportSlotIsReleasedWhenTheRequestCompletesWithoutWritingTheBody() throws Exception {
+        ServletWebRequest request = new ServletWebRequest(new MockHttpServletRequest());
+        AtomicInteger releases = new AtomicInteger();
+
+        export(request, releases);
+        assertThat(releases.get()).isZero();
+        interceptor(request).afterCompletion(request, () -> null);
+
+        assertThat(releases.get()).isEqualTo(1);
+    }
+
+    @Test
+    void theExportSlotIsReleasedOnceTheBodyIsWritten() throws Exception {
+        AtomicInteger releases = new AtomicInteger();
+
+        export(new ServletWebRequest(new MockHttpServletRequest()), releases).writeTo(new ByteArrayOutputStream());
+
+        assertThat(releases.get()).isEqualTo(1);
+    }
+
+    private static StreamingResponseBody export(ServletWebRequest request, AtomicInteger releases) {
+        HumanApplicationService service = mock(HumanApplicationService.class);
+        when(service.reserveExport()).thenReturn(releases::incrementAndGet);
+        return new HumanController(service).exportHumansByCity(1L, "gzip", request).getBody();
+    }
+
+    private static CallableProcessingInterceptor interceptor(ServletWebRequest request) {
+        WebAsyncManager asyncManager = WebAsyncUtils.getAsyncManager(request);
+        CallableProcessingInterceptor interceptor =
+                asyncManager.getCallableInterceptor(HumanController.class.getName() + ".exportSlot");
+        assertThat(interceptor).isNotNull();
+        return interceptor;
+    }
+}
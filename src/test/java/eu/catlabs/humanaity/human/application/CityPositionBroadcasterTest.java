@@ -0,0 +1,130 @@
+package eu.catlabs.humanaity.human.application;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.catlabs.humanaity.common.exception.TooManyStreamsException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CityPositionBroadcasterTest {
+
+    private final CityPositionBroadcaster broadcaster = new CityPositionBroadcaster(new ObjectMapper());
+    private final ExecutorService sseWriters = Executors.newSingleThreadExecutor();
+
+    CityPositionBroadcasterTest() {
+        ReflectionTestUtils.setField(broadcaster, "replayFrames", 4);
+        ReflectionTestUtils.setField(broadcaster, "queueCapacity", 16);
+        ReflectionTestUtils.setField(broadcaster, "slowConsumerPolicy", "latest");
+        ReflectionTestUtils.setField(broadcaster, "idleTimeoutMs", 60_000L);
+        ReflectionTestUtils.setField(broadcaster, "maxStreams", 2);
+        ReflectionTestUtils.setField(broadcaster, "maxStreamsPerUser", 1);
+        ReflectionTestUtils.setField(broadcaster, "sseWriters", sseWriters);
+    }
+
+    @AfterEach
+    void tearDown() {
+        sseWriters.shutdownNow();
+    }
+
+    @Test
+    void aStreamOverTheUserCapIsRejectedWithoutCreatingAHub() {
+        subscribe(1L, "alice");
+
+        assertThatThrownBy(() -> subscribe(2L, "alice")).isInstanceOf(TooManyStreamsException.class);
+
+        assertThat(broadcaster.hasHub(2L)).isFalse();
+        assertThat(broadcaster.getMetrics().getRejectedStreams()).isEqualTo(1);
+    }
+
+    @Test
+    void aStreamOverTheServerCapIsRejectedWithoutCreatingAHub() {
+        subscribe(1L, "alice");
+        subscribe(1L, "bob");
+
+        assertThatThrownBy(() -> subscribe(2L, null)).isInstanceOf(TooManyStreamsException.class);
+
+        assertThat(broadcaster.hasHub(2L)).isFalse();
+    }
+
+    @Test
+    void aClosedStreamFreesItsSlot() {
+        String first = subscribe(1L, "alice");
+        broadcaster.unsubscribe(first);
+
+        subscribe(1L, "alice");
+
+        assertThat(broadcaster.getConnections(1L)).hasSize(1);
+    }
+
+    @Test
+    void aStreamFailingToSubscribeReleasesItsSlotsAndTheHub() {
+        assertThatThrownBy(() -> broadcaster.subscribe(1L, "alice", PositionStreamFormat.DELTA, null, null, null,
+                box -> {
+                    throw new IllegalStateException("Snapshot failed");
+                })).isInstanceOf(IllegalStateException.class).hasMessage("Snapshot failed");
+
+        assertThat(broadcaster.getMetrics().getActiveStreams()).isZero();
+        assertThat(broadcaster.getConnections(1L)).isEmpty();
+        ReflectionTestUtils.setField(broadcaster, "idleTimeoutMs", 0L);
+        broadcastFrame();
+        assertThat(broadcaster.hasHub(1L)).isFalse();
+
+        subscribe(1L, "alice");
+        assertThat(broadcaster.getConnections(1L)).hasSize(1);
+    }
+
+    @Test
+    void aHubIsKeptForResumeThenRemovedOnceNoStreamHeldItForTheIdleTimeout() {
+        String subscriptionId = subscribe(1L, "alice");
+        broadcaster.unsubscribe(subscriptionId);
+
+        broadcastFrame();
+        assertThat(broadcaster.hasHub(1L)).isTrue();
+
+        ReflectionTestUtils.setField(broadcaster, "idleTimeoutMs", 0L);
+        broadcastFrame();
+        assertThat(broadcaster.hasHub(1L)).isFalse();
+    }
+
+    @Test
+    void aHubWithAStreamIsNeverRemoved() {
+        subscribe(1L, "alice");
+        ReflectionTestUtils.setField(broadcaster, "idleTimeoutMs", 0L);
+
+        broadcastFrame();
+
+        assertThat(broadcaster.hasHub(1L)).isTrue();
+    }
+
+    @Test
+    void serverSentEventStreamsHaveNoTimeout() {
+        assertThat(broadcaster.subscribe(1L, null, PositionStreamFormat.FULL, null, null, null, box -> List.of())
+                .getTimeout()).isZero();
+    }
+
+    @Test
+    void startRejectsAnEmptyReplayRing() {
+        ReflectionTestUtils.setField(broadcaster, "replayFrames", 0);
+
+        assertThatThrownBy(broadcaster::start).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private String subscribe(Long cityId, String owner) {
+        broadcaster.subscribe(cityId, owner, PositionStreamFormat.FULL, null, null, null, box -> List.of());
+        return broadcaster.getConnections(cityId).stream()
+                .reduce((first, second) -> second)
+                .orElseThrow()
+                .getSubscriptionId();
+    }
+
+    private void broadcastFrame() {
+        ReflectionTestUtils.invokeMethod(broadcaster, "broadcastFrame");
+    }
+}
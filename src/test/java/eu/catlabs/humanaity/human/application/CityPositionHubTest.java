@@ -0,0 +1,258 @@
+package eu.catlabs.humanaity.human.application;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.catlabs.humanaity.human.api.dto.HumanOutput;
+import eu.catlabs.humanaity.human.domain.Human;
+import eu.catlabs.humanaity.simulation.domain.BoundingBox;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.codec.ServerSentEvent;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CityPositionHubTest {
+
+    private static final BoundingBox LOWER_LEFT = new BoundingBox(0, 0, 0.5, 0.5);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final PositionFrameEncoder encoder = new PositionFrameEncoder(objectMapper);
+    private final CityPositionHub hub = new CityPositionHub(1L, 4);
+    private final PendingPositions pending = new PendingPositions();
+    private final List<BoundingBox> snapshotBoxes = new ArrayList<>();
+    private final Function<BoundingBox, List<HumanOutput>> snapshot = box -> {
+        snapshotBoxes.add(box);
+        return List.of();
+    };
+
+    @Test
+    void aClientResumingInsideTheRingGetsTheFramesItMissed() throws Exception {
+        RecordingSubscription first = subscribe(PositionStreamFormat.FULL, null, null);
+        broadcast(human(1, 0.1, 0.1));
+        broadcast(human(2, 0.2, 0.2));
+        broadcast(human(3, 0.3, 0.3));
+        String epoch = first.frames.get(0).id().split("-")[0];
+
+        RecordingSubscription resumed = subscribe(PositionStreamFormat.DELTA, null, epoch + "-1");
+
+        assertThat(resumed.snapshots).isEmpty();
+        assertThat(resumed.frames).extracting(ServerSentEvent::id).containsExactly(epoch + "-2", epoch + "-3");
+        assertThat(ids(resumed.frames.get(0))).containsExactly(2L);
+    }
+
+    @Test
+    void aClientResumingPastTheRingGetsASnapshot() throws Exception {
+        RecordingSubscription first = subscribe(PositionStreamFormat.FULL, null, null);
+        for (int i = 1; i <= 6; i++) {
+            broadcast(human(i, 0.1, 0.1));
+        }
+        String epoch = first.frames.get(0).id().split("-")[0];
+
+        RecordingSubscription resumed = subscribe(PositionStreamFormat.FULL, null, epoch + "-1");
+
+        assertThat(resumed.snapshots).containsExactly(epoch + "-6");
+        assertThat(resumed.frames).isEmpty();
+    }
+
+    @Test
+    void framesInWhichNobodyMovedAreNeitherSentNorKept() throws Exception {
+        RecordingSubscription first = subscribe(PositionStreamFormat.FULL, null, null);
+        broadcast(human(1, 0.1, 0.1));
+        for (int i = 0; i < 10; i++) {
+            broadcast();
+        }
+        broadcast(human(2, 0.2, 0.2));
+        String epoch = first.frames.get(0).id().split("-")[0];
+
+        assertThat(first.frames).extracting(ServerSentEvent::id).containsExactly(epoch + "-1", epoch + "-12");
+
+        RecordingSubscription resumed = subscribe(PositionStreamFormat.DELTA, null, epoch + "-1");
+        assertThat(resumed.snapshots).isEmpty();
+        assertThat(resumed.frames).extracting(ServerSentEvent::id).containsExactly(epoch + "-12");
+    }
+
+    @Test
+    void aStrideSubscriberGetsTheLastMovesOnceTheCityGoesIdle() throws Exception {
+        RecordingSubscription everyOther = new RecordingSubscription(PositionStreamFormat.DELTA, null);
+        everyOther.setFrameStride(2);
+        hub.subscribe(everyOther, null, snapshot, encoder);
+
+        broadcast(human(1, 0.1, 0.1));
+        broadcast();
+        broadcast();
+        broadcast();
+
+        assertThat(everyOther.frames).hasSize(1);
+        assertThat(everyOther.frames.get(0).id()).endsWith("-1");
+        assertThat(ids(everyOther.frames.get(0))).containsExactly(1L);
+    }
+
+    @Test
+    void anIdOfAnotherEpochGetsASnapshotRatherThanFramesOfThisOne() throws Exception {
+        subscribe(PositionStreamFormat.FULL, null, null);
+        broadcast(human(1, 0.1, 0.1));
+        broadcast(human(2, 0.2, 0.2));
+
+        RecordingSubscription resumed = subscribe(PositionStreamFormat.FULL, null, "0-1");
+
+        assertThat(resumed.snapshots).hasSize(1);
+        assertThat(resumed.snapshots.get(0)).endsWith("-2").doesNotStartWith("0-");
+        assertThat(resumed.frames).isEmpty();
+    }
+
+    @Test
+    void aViewportSubscriberGetsAViewportSnapshotAndOnlyTheHumansInside() throws Exception {
+        broadcast(human(1, 0.1, 0.1), human(2, 0.9, 0.9), human(3, 0.3, 0.1));
+        RecordingSubscription viewer = subscribe(PositionStreamFormat.DELTA, LOWER_LEFT, null);
+
+        broadcast(human(1, 0.2, 0.2), human(2, 0.8, 0.8), human(3, 0.4, 0.1));
+
+        assertThat(snapshotBoxes).containsExactly(LOWER_LEFT);
+        assertThat(viewer.snapshots).hasSize(1);
+        assertThat(ids(viewer.frames.get(0))).containsExactlyInAnyOrder(1L, 3L);
+    }
+
+    @Test
+    void subscribersOfOneRegionShareItsEncodedFrame() throws Exception {
+        broadcast(human(1, 0.2, 0.25), human(2, 0.7, 0.75));
+        BoundingBox region = new BoundingBox(0.11, 0.11, 0.32, 0.37).snap(0.05);
+        RecordingSubscription first = subscribe(PositionStreamFormat.DELTA, region, null);
+        RecordingSubscription second = subscribe(PositionStreamFormat.DELTA,
+                new BoundingBox(0.12, 0.14, 0.33, 0.38).snap(0.05), null);
+        RecordingSubscription elsewhere = subscribe(PositionStreamFormat.DELTA, new BoundingBox(0.6, 0.6, 0.9, 0.9), null);
+
+        broadcast(human(1, 0.2, 0.2), human(2, 0.7, 0.7));
+
+        assertThat(second.frames.get(0)).isSameAs(first.frames.get(0));
+        assertThat(ids(first.frames.get(0))).containsExactly(1L);
+        assertThat(ids(elsewhere.frames.get(0))).containsExactly(2L);
+    }
+
+    @Test
+    void humansWalkingOutOfAViewportAreSentTheirPositionOutsideIt() throws Exception {
+        broadcast(human(1, 0.45, 0.45), human(2, 0.8, 0.8));
+        RecordingSubscription viewer = subscribe(PositionStreamFormat.DELTA, LOWER_LEFT, null);
+
+        broadcast(human(1, 0.55, 0.45), human(2, 0.85, 0.8));
+        broadcast(human(1, 0.6, 0.45));
+
+        assertThat(ids(viewer.frames.get(0))).containsExactly(1L);
+        assertThat(objectMapper.readTree(viewer.frames.get(0).data()).get(0).get(1).asDouble()).isEqualTo(0.55);
+        assertThat(ids(viewer.frames.get(1))).isEmpty();
+    }
+
+    @Test
+    void humansWalkingInAndOutBetweenStridesAreSentTheirLatestPosition() throws Exception {
+        broadcast(human(1, 0.45, 0.45), human(2, 0.8, 0.8));
+        RecordingSubscription viewer = new RecordingSubscription(PositionStreamFormat.DELTA, LOWER_LEFT);
+        viewer.setFrameStride(2);
+        hub.subscribe(viewer, null, snapshot, encoder);
+
+        broadcast(human(1, 0.7, 0.45), human(2, 0.4, 0.4));
+        broadcast(human(1, 0.8, 0.45), human(2, 0.9, 0.4));
+
+        assertThat(viewer.frames).hasSize(1);
+        assertThat(ids(viewer.frames.get(0))).containsExactlyInAnyOrder(1L, 2L);
+    }
+
+    @Test
+    void humansWithoutAPreviousPositionGoToEveryViewport() throws Exception {
+        RecordingSubscription viewer = subscribe(PositionStreamFormat.DELTA, LOWER_LEFT, null);
+
+        broadcast(human(1, 0.2, 0.2), human(2, 0.8, 0.8));
+        broadcast(human(2, 0.85, 0.8));
+
+        assertThat(ids(viewer.frames.get(0))).containsExactlyInAnyOrder(1L, 2L);
+        assertThat(ids(viewer.frames.get(1))).isEmpty();
+    }
+
+    @Test
+    void aSubscriberWithAStrideGetsEveryStrideThFrameMergedFromTheSkippedOnes() throws Exception {
+        RecordingSubscription everyFrame = subscribe(PositionStreamFormat.DELTA, null, null);
+        RecordingSubscription everyOther = new RecordingSubscription(PositionStreamFormat.DELTA, null);
+        everyOther.setFrameStride(2);
+        hub.subscribe(everyOther, null, snapshot, encoder);
+
+        broadcast(human(1, 0.1, 0.1));
+        broadcast(human(2, 0.2, 0.2));
+        broadcast(human(1, 0.3, 0.3));
+
+        assertThat(everyFrame.frames).hasSize(3);
+        assertThat(everyOther.frames).hasSize(1);
+        assertThat(everyOther.frames.get(0).id()).endsWith("-2");
+        assertThat(ids(everyOther.frames.get(0))).containsExactlyInAnyOrder(1L, 2L);
+    }
+
+    private RecordingSubscription subscribe(PositionStreamFormat format, BoundingBox viewport, String lastEventId)
+            throws Exception {
+        RecordingSubscription subscription = new RecordingSubscription(format, viewport);
+        hub.subscribe(subscription, lastEventId, snapshot, encoder);
+        return subscription;
+    }
+
+    private void broadcast(Human... humans) {
+        for (Human human : humans) {
+            pending.put(human.getId(), human, human.getX(), human.getY(), human.isBusy());
+        }
+        hub.broadcast(pending, encoder);
+    }
+
+    /**
+     * Ids of the humans in a {@code full} or {@code delta} event.
+     */
+    private List<Long> ids(ServerSentEvent<String> event) throws Exception {
+        List<Long> ids = new ArrayList<>();
+        for (JsonNode row : objectMapper.readTree(event.data())) {
+            ids.add(row.isArray() ? row.get(0).asLong() : row.get("id").asLong());
+        }
+        return ids;
+    }
+
+    private static Human human(long id, double x, double y) {
+        Human human = new Human();
+        human.setId(id);
+        human.setX(x);
+        human.setY(y);
+        return human;
+    }
+
+    private static class RecordingSubscription extends PositionSubscription {
+
+        private final List<String> snapshots = new ArrayList<>();
+        private final List<ServerSentEvent<String>> frames = new ArrayList<>();
+
+        RecordingSubscription(PositionStreamFormat format, BoundingBox viewport) {
+            super(1L, format, viewport);
+        }
+
+        @Override
+        String getTransport() {
+            return "test";
+        }
+
+        @Override
+        void sendSubscription() {
+        }
+
+        @Override
+        void sendSnapshot(String eventId, List<HumanOutput> humans) {
+            snapshots.add(eventId);
+        }
+
+        @Override
+        void send(EncodedFrame frame) {
+            frames.add(frame.reactiveEvent());
+        }
+
+        @Override
+        void sendHeartbeat() {
+        }
+
+        @Override
+        void fail(Exception cause) {
+        }
+    }
+}
@@ -0,0 +1,155 @@
+package eu.catlabs.humanaity.human.application;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.catlabs.humanaity.common.exception.TooManyStreamsException;
+import eu.catlabs.humanaity.human.api.dto.HumanOutput;
+import eu.catlabs.humanaity.human.api.dto.HumanPositionOutput;
+import eu.catlabs.humanaity.human.domain.Human;
+import eu.catlabs.humanaity.human.infrastructure.persistence.HumanRepository;
+import eu.catlabs.humanaity.simulation.application.CityWorldRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+import org.springframework.data.domain.SliceImpl;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.LongStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class HumanApplicationServiceTest {
+
+    private static final Long CITY_ID = 1L;
+
+    private final HumanRepository humanRepository = mock(HumanRepository.class);
+    private final CityWorldRegistry worldRegistry = new CityWorldRegistry(humanRepository);
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final HumanApplicationService service = new HumanApplicationService(humanRepository, null, worldRegistry,
+            null, objectMapper, null);
+
+    HumanApplicationServiceTest() {
+        ReflectionTestUtils.setField(service, "defaultPageLimit", 2);
+        ReflectionTestUtils.setField(service, "maxPageLimit", 3);
+        ReflectionTestUtils.setField(service, "maxConcurrentExports", 1);
+    }
+
+    @Test
+    void pagesOfARunningCityWalkEveryHumanOnceByAscendingId() {
+        runningCity(7, 3, 1, 9, 4);
+
+        List<Long> ids = new ArrayList<>();
+        Long after = null;
+        Slice<HumanOutput> page;
+        do {
+            page = service.getHumanPage(CITY_ID, after, null);
+            page.forEach(human -> ids.add(human.getId()));
+            after = page.getContent().get(page.getNumberOfElements() - 1).getId();
+        } while (page.hasNext());
+
+        assertThat(ids).containsExactly(1L, 3L, 4L, 7L, 9L);
+    }
+
+    @Test
+    void lastFullPageOfARunningCityHasNoNext() {
+        runningCity(1, 2, 3, 4);
+
+        Slice<HumanPositionOutput> first = service.getHumanPositionPage(CITY_ID, null, 2);
+        Slice<HumanPositionOutput> last = service.getHumanPositionPage(CITY_ID, 2L, 2);
+
+        assertThat(first.hasNext()).isTrue();
+        assertThat(last.getContent()).extracting(HumanPositionOutput::getId).containsExactly(3L, 4L);
+        assertThat(last.hasNext()).isFalse();
+    }
+
+    @Test
+    void stoppedCityIsPagedByTheDatabaseAfterTheGivenId() {
+        Slice<HumanOutput> stored = new SliceImpl<>(List.of(new HumanOutput()), PageRequest.of(0, 3), true);
+        when(humanRepository.findOutputsByCityIdAfter(CITY_ID, 5L, PageRequest.of(0, 3))).thenReturn(stored);
+
+        assertThat(service.getHumanPage(CITY_ID, 5L, 3)).isSameAs(stored);
+    }
+
+    @Test
+    void rejectsALimitOutsideTheBounds() {
+        assertThatThrownBy(() -> service.getHumanPage(CITY_ID, null, 4)).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.getHumanPage(CITY_ID, null, 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void streamOfARunningCityWalksItsWorldInKeysetPages() {
+        runningCity(LongStream.rangeClosed(1, 1200).map(id -> 1201 - id).toArray());
+
+        List<Long> ids = service.streamHumansByCityId(CITY_ID).map(HumanOutput::getId).collectList().block();
+
+        assertThat(ids).containsExactlyElementsOf(LongStream.rangeClosed(1, 1200).boxed().toList());
+    }
+
+    @Test
+    void exportOfARunningCityWalksItsWorldPageByPage() throws Exception {
+        runningCity(LongStream.rangeClosed(1, 2500).toArray());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        service.exportHumansByCityId(CITY_ID, out);
+
+        JsonNode rows = objectMapper.readTree(out.toByteArray());
+        assertThat(rows).hasSize(2500);
+        for (int i = 0; i < rows.size(); i++) {
+            assertThat(rows.get(i).get("id").asLong()).isEqualTo(i + 1);
+        }
+    }
+
+    @Test
+    void exportOfARunningCityEndingOnAFullPageWritesEveryHumanOnce() throws Exception {
+        runningCity(LongStream.rangeClosed(1, 2000).map(id -> id * 3).toArray());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        service.exportHumansByCityId(CITY_ID, out);
+
+        JsonNode rows = objectMapper.readTree(out.toByteArray());
+        assertThat(rows).hasSize(2000);
+        assertThat(rows.get(1999).get("id").asLong()).isEqualTo(6000L);
+    }
+
+    @Test
+    void exportsOverTheCapAreRejectedUntilASlotIsReleased() {
+        Runnable release = service.reserveExport();
+
+        assertThatThrownBy(service::reserveExport).isInstanceOf(TooManyStreamsException.class);
+
+        release.run();
+        service.reserveExport();
+    }
+
+    @Test
+    void releasingAnExportSlotTwiceFreesItOnce() {
+        ReflectionTestUtils.setField(service, "maxConcurrentExports", 2);
+        Runnable release = service.reserveExport();
+        service.reserveExport();
+
+        release.run();
+        release.run();
+
+        service.reserveExport();
+        assertThatThrownBy(service::reserveExport).isInstanceOf(TooManyStreamsException.class);
+    }
+
+    private void runningCity(long... ids) {
+        List<Human> humans = new ArrayList<>();
+        for (long id : ids) {
+            Human human = new Human();
+            human.setId(id);
+            human.setX(0.5);
+            human.setY(0.5);
+            humans.add(human);
+        }
+        when(humanRepository.findByCityIdOrderByIdAsc(CITY_ID)).thenReturn(humans);
+        worldRegistry.load(CITY_ID);
+    }
+}
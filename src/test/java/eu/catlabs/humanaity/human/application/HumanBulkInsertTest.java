@@ -0,0 +1,84 @@
+package eu.catlabs.humanaity.human.application;
+
+import eu.catlabs.humanaity.city.domain.City;
+import eu.catlabs.humanaity.city.infrastructure.persistence.CityRepository;
+import eu.catlabs.humanaity.human.api.dto.HumanInput;
+import eu.catlabs.humanaity.human.domain.Human;
+import eu.catlabs.humanaity.human.infrastructure.persistence.HumanRepository;
+import eu.catlabs.humanaity.simulation.application.CityWorldRegistry;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+class HumanBulkInsertTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Autowired
+    private HumanRepository humanRepository;
+
+    @Autowired
+    private CityRepository cityRepository;
+
+    private CityWorldRegistry worldRegistry;
+    private HumanApplicationService service;
+    private City city;
+
+    @BeforeEach
+    void setUp() {
+        worldRegistry = new CityWorldRegistry(humanRepository);
+        service = new HumanApplicationService(humanRepository, cityRepository, worldRegistry, null, null,
+                entityManager);
+        ReflectionTestUtils.setField(service, "insertBatchSize", 2);
+        city = new City();
+        city.setName("bulk");
+        entityManager.persist(city);
+        entityManager.flush();
+    }
+
+    @Test
+    void insertsEveryHumanAcrossBatchesAndLeavesTheCallersEntitiesManaged() {
+        int created = service.createHumans(city.getId(), inputs(5));
+
+        assertThat(created).isEqualTo(5);
+        assertThat(entityManager.contains(city)).isTrue();
+        List<Human> stored = humanRepository.findByCityIdOrderByIdAsc(city.getId());
+        assertThat(stored).extracting(Human::getName)
+                .containsExactly("Human 0", "Human 1", "Human 2", "Human 3", "Human 4");
+    }
+
+    @Test
+    void aRunningWorldGetsTheHumansOnceTheTransactionCommits() {
+        worldRegistry.load(city.getId());
+
+        service.createHumans(city.getId(), inputs(3));
+        assertThat(worldRegistry.find(city.getId()).orElseThrow().size()).isZero();
+
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        assertThat(worldRegistry.find(city.getId()).orElseThrow().size()).isEqualTo(3);
+    }
+
+    private static List<HumanInput> inputs(int count) {
+        List<HumanInput> inputs = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            HumanInput input = new HumanInput();
+            input.setName("Human " + i);
+            input.setX(i / 10.0);
+            input.setY(0.5);
+            inputs.add(input);
+        }
+        return inputs;
+    }
+}
@@ -0,0 +1,124 @@
+package eu.catlabs.humanaity.human.application;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.catlabs.humanaity.human.domain.Human;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.codec.ServerSentEvent;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OutboundQueueTest {
+
+    private static final ServerSentEvent<String> SNAPSHOT = ServerSentEvent.builder("[]").event("snapshot").build();
+    private static final ServerSentEvent<String> HEARTBEAT = ServerSentEvent.<String>builder().comment("heartbeat").build();
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final PositionFrameEncoder encoder = new PositionFrameEncoder(objectMapper);
+
+    @Test
+    void latestMergesTheDroppedFrameIntoTheNextQueuedFrame() throws Exception {
+        OutboundQueue<ServerSentEvent<String>> queue = queue(2, SlowConsumerPolicy.LATEST);
+
+        assertThat(queue.offer(frame(1, human(1, 0.1), human(2, 0.1)))).isTrue();
+        assertThat(queue.offer(frame(2, human(2, 0.2)))).isTrue();
+        assertThat(queue.offer(frame(3, human(3, 0.3)))).isTrue();
+
+        assertThat(queue.size()).isEqualTo(2);
+        assertThat(queue.getDropped()).isEqualTo(1);
+        ServerSentEvent<String> merged = queue.poll();
+        assertThat(merged.id()).isEqualTo("e-2");
+        assertThat(positions(merged)).isEqualTo(Map.of(1L, 0.1, 2L, 0.2));
+        ServerSentEvent<String> last = queue.poll();
+        assertThat(last.id()).isEqualTo("e-3");
+        assertThat(positions(last)).isEqualTo(Map.of(3L, 0.3));
+    }
+
+    @Test
+    void latestMergesTheLastQueuedFrameIntoTheIncomingOne() throws Exception {
+        OutboundQueue<ServerSentEvent<String>> queue = queue(1, SlowConsumerPolicy.LATEST);
+
+        queue.offer(frame(1, human(1, 0.1), human(2, 0.1)));
+        queue.offer(frame(2, human(1, 0.2)));
+
+        assertThat(queue.size()).isEqualTo(1);
+        ServerSentEvent<String> merged = queue.poll();
+        assertThat(merged.id()).isEqualTo("e-2");
+        assertThat(positions(merged)).isEqualTo(Map.of(1L, 0.2, 2L, 0.1));
+    }
+
+    @Test
+    void disconnectRejectsAFrameFindingTheQueueFull() {
+        OutboundQueue<ServerSentEvent<String>> queue = queue(1, SlowConsumerPolicy.DISCONNECT);
+
+        assertThat(queue.offer(frame(1, human(1, 0.1)))).isTrue();
+        assertThat(queue.offer(frame(2, human(1, 0.2)))).isFalse();
+
+        assertThat(queue.getDropped()).isEqualTo(1);
+        assertThat(queue.poll().id()).isEqualTo("e-1");
+    }
+
+    @Test
+    void messagesThatCannotBeDroppedAreAlwaysQueued() {
+        OutboundQueue<ServerSentEvent<String>> queue = queue(1, SlowConsumerPolicy.LATEST);
+
+        queue.offer(SNAPSHOT, false);
+        queue.offer(SNAPSHOT, false);
+        queue.offer(frame(1, human(1, 0.1)));
+
+        assertThat(queue.size()).isEqualTo(3);
+        assertThat(queue.getMaxDepth()).isEqualTo(3);
+        assertThat(queue.getDropped()).isZero();
+        assertThat(queue.poll()).isSameAs(SNAPSHOT);
+        assertThat(queue.poll()).isSameAs(SNAPSHOT);
+        assertThat(queue.poll().id()).isEqualTo("e-1");
+    }
+
+    @Test
+    void heartbeatsGiveWayWithoutCountingAsDroppedFrames() {
+        OutboundQueue<ServerSentEvent<String>> queue = queue(1, SlowConsumerPolicy.LATEST);
+
+        queue.offer(HEARTBEAT, true);
+        queue.offer(frame(1, human(1, 0.1)));
+        queue.offer(HEARTBEAT, true);
+
+        assertThat(queue.size()).isEqualTo(1);
+        assertThat(queue.getDropped()).isZero();
+        assertThat(queue.poll().id()).isEqualTo("e-1");
+        assertThat(queue.isEmpty()).isTrue();
+    }
+
+    private static OutboundQueue<ServerSentEvent<String>> queue(int capacity, SlowConsumerPolicy policy) {
+        return new OutboundQueue<>(capacity, policy, EncodedFrame::reactiveEvent);
+    }
+
+    private EncodedFrame frame(long sequence, Human... humans) {
+        PendingPositions positions = new PendingPositions();
+        for (Human human : humans) {
+            positions.put(human.getId(), human, human.getX(), human.getY(), human.isBusy());
+        }
+        return new EncodedFrame(PositionStreamFormat.DELTA, "e", positions.drain(sequence), encoder);
+    }
+
+    /**
+     * x of every human in a {@code delta} event, by id.
+     */
+    private Map<Long, Double> positions(ServerSentEvent<String> event) throws Exception {
+        Map<Long, Double> positions = new TreeMap<>();
+        for (JsonNode row : objectMapper.readTree(event.data())) {
+            positions.put(row.get(0).asLong(), row.get(1).asDouble());
+        }
+        return positions;
+    }
+
+    private static Human human(long id, double x) {
+        Human human = new Human();
+        human.setId(id);
+        human.setX(x);
+        human.setY(0.5);
+        return human;
+    }
+}
@@ -0,0 +1,173 @@
+package eu.catlabs.humanaity.human.application;
+
+import eu.catlabs.humanaity.human.domain.Human;
+import eu.catlabs.humanaity.simulation.domain.CityWorld;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PendingPositionsTest {
+
+    private final PendingPositions pending = new PendingPositions();
+
+    @Test
+    void severalUpdatesOfOneHumanCoalesceIntoTheLatest() {
+        Human first = human(1);
+        pending.put(1, first, 0.1, 0.1, false);
+        pending.put(2, human(2), 0.2, 0.2, false);
+        Human latest = human(1);
+        pending.put(1, latest, 0.3, 0.4, true);
+
+        PositionFrame frame = pending.drain(5);
+
+        assertThat(frame.getSequence()).isEqualTo(5);
+        assertThat(ids(frame)).containsExactly(1L, 2L);
+        assertThat(frame.human(0)).isSameAs(latest);
+        assertThat(frame.x(0)).isEqualTo(0.3);
+        assertThat(frame.y(0)).isEqualTo(0.4);
+        assertThat(frame.isBusy(0)).isTrue();
+    }
+
+    @Test
+    void eachDrainOnlyHoldsTheUpdatesPublishedSinceThePreviousOne() {
+        pending.put(1, human(1), 0.1, 0.1, false);
+        pending.put(2, human(2), 0.2, 0.2, false);
+        assertThat(ids(pending.drain(1))).containsExactly(1L, 2L);
+
+        assertThat(pending.drain(2).size()).isZero();
+
+        pending.put(2, human(2), 0.5, 0.5, false);
+        PositionFrame frame = pending.drain(3);
+        assertThat(ids(frame)).containsExactly(2L);
+        assertThat(frame.x(0)).isEqualTo(0.5);
+    }
+
+    @Test
+    void removedHumansAreLeftOutUntilTheyMoveAgain() {
+        pending.put(1, human(1), 0.1, 0.1, false);
+        pending.put(2, human(2), 0.2, 0.2, false);
+        pending.remove(1);
+        pending.remove(3);
+        assertThat(ids(pending.drain(1))).containsExactly(2L);
+
+        pending.put(1, human(1), 0.1, 0.1, false);
+        pending.remove(1);
+        pending.put(1, human(1), 0.6, 0.6, false);
+        PositionFrame frame = pending.drain(2);
+        assertThat(ids(frame)).containsExactly(1L);
+        assertThat(frame.x(0)).isEqualTo(0.6);
+    }
+
+    @Test
+    void framesCarryThePositionSentBeforeThemUntilTheHumanIsRemoved() {
+        pending.put(1, human(1), 0.1, 0.2, false);
+        PositionFrame first = pending.drain(1);
+        pending.put(1, human(1), 0.3, 0.4, false);
+        pending.put(1, human(1), 0.5, 0.6, false);
+        PositionFrame second = pending.drain(2);
+        pending.remove(1);
+        pending.drain(3);
+        pending.put(1, human(1), 0.7, 0.8, false);
+        PositionFrame afterRemoval = pending.drain(4);
+
+        assertThat(first.previousX(0)).isNaN();
+        assertThat(second.previousX(0)).isEqualTo(0.1);
+        assertThat(second.previousY(0)).isEqualTo(0.2);
+        assertThat(afterRemoval.previousX(0)).isNaN();
+    }
+
+    @Test
+    void valuesAreCopiedFromTheWorldWhenTheyArePublished() {
+        CityWorld world = new CityWorld(1L, List.of(human(1, 0.1, 0.1), human(2, 0.2, 0.2)));
+        int[] slots = {world.slotOf(2), world.slotOf(1)};
+        world.setBusy(slots[0], true);
+
+        synchronized (world) {
+            pending.put(world, slots, 1);
+        }
+        world.move(slots[0], 0.9, 0.9);
+        world.setBusy(slots[0], false);
+        PositionFrame frame = pending.drain(1);
+
+        assertThat(ids(frame)).containsExactly(2L);
+        assertThat(frame.x(0)).isEqualTo(0.2);
+        assertThat(frame.y(0)).isEqualTo(0.2);
+        assertThat(frame.isBusy(0)).isTrue();
+        assertThat(frame.human(0).getX()).isEqualTo(0.2);
+    }
+
+    @Test
+    void framesKeepTheirValuesWhenTheBuffersAreReused() {
+        pending.put(1, human(1), 0.1, 0.1, false);
+        PositionFrame first = pending.drain(1);
+        pending.put(1, human(1), 0.7, 0.7, true);
+        pending.drain(2);
+        pending.put(1, human(1), 0.8, 0.8, true);
+        pending.drain(3);
+
+        assertThat(first.size()).isEqualTo(1);
+        assertThat(first.x(0)).isEqualTo(0.1);
+        assertThat(first.isBusy(0)).isFalse();
+    }
+
+    @Test
+    void theBuffersGrowPastTheirInitialCapacity() {
+        for (long id = 1000; id > 0; id--) {
+            pending.put(id, human(id), id / 1000.0, 0.5, false);
+        }
+        pending.put(500, human(500), 0.25, 0.25, false);
+
+        PositionFrame frame = pending.drain(1);
+
+        assertThat(frame.size()).isEqualTo(1000);
+        for (int i = 0; i < frame.size(); i++) {
+            long id = frame.id(i);
+            assertThat(frame.x(i)).isEqualTo(id == 500 ? 0.25 : id / 1000.0);
+        }
+    }
+
+    @Test
+    void updatesPublishedDuringDrainsLandInExactlyOneFrame() throws Exception {
+        int updates = 100_000;
+        Thread publisher = new Thread(() -> {
+            for (long id = 1; id <= updates; id++) {
+                pending.put(id, human(id), 0.5, 0.5, false);
+            }
+        });
+        List<Long> drained = new ArrayList<>();
+
+        publisher.start();
+        long sequence = 0;
+        while (publisher.isAlive()) {
+            drained.addAll(ids(pending.drain(++sequence)));
+        }
+        publisher.join();
+        drained.addAll(ids(pending.drain(++sequence)));
+
+        assertThat(drained).hasSize(updates).doesNotHaveDuplicates();
+    }
+
+    private static List<Long> ids(PositionFrame frame) {
+        List<Long> ids = new ArrayList<>(frame.size());
+        for (int i = 0; i < frame.size(); i++) {
+            ids.add(frame.id(i));
+        }
+        return ids;
+    }
+
+    private static Human human(long id) {
+        Human human = new Human();
+        human.setId(id);
+        return human;
+    }
+
+    private static Human human(long id, double x, double y) {
+        Human human = human(id);
+        human.setX(x);
+        human.setY(y);
+        return human;
+    }
+}
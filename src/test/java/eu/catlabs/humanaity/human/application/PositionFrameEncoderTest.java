@@ -0,0 +1,125 @@
+package eu.catlabs.humanaity.human.application;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.catlabs.humanaity.human.domain.Human;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class PositionFrameEncoderTest {
+
+    private static final double QUANTIZATION_STEP = 1.0 / PositionFrameEncoder.QUANTIZATION_SCALE;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final PositionFrameEncoder encoder = new PositionFrameEncoder(objectMapper);
+    private final PendingPositions pending = new PendingPositions();
+    private PositionFrame frame;
+
+    @BeforeEach
+    void setUp() {
+        put(1, 0.0, 1.0, false);
+        put(42, 0.123456789, 0.987654321, true);
+        put(Long.MAX_VALUE, 0.5, 0.25, false);
+        frame = pending.drain(1);
+    }
+
+    @Test
+    void quantizationRoundsToTheNearestStepAndHitsBothBounds() {
+        assertThat(PositionFrameEncoder.quantize(0.0)).isZero();
+        assertThat(PositionFrameEncoder.quantize(1.0)).isEqualTo(65535);
+        assertThat(PositionFrameEncoder.quantize(0.5)).isEqualTo(32768);
+        assertThat(PositionFrameEncoder.quantize(QUANTIZATION_STEP * 0.49)).isZero();
+        assertThat(PositionFrameEncoder.quantize(QUANTIZATION_STEP * 0.51)).isEqualTo(1);
+        assertThat(PositionFrameEncoder.quantize(-0.2)).isZero();
+        assertThat(PositionFrameEncoder.quantize(1.2)).isEqualTo(65535);
+    }
+
+    @Test
+    void deltaRowsCarryExactCoordinates() throws Exception {
+        JsonNode rows = objectMapper.readTree(encoder.encode(PositionStreamFormat.DELTA, frame));
+
+        assertThat(rows).hasSize(frame.size());
+        for (int i = 0; i < frame.size(); i++) {
+            JsonNode row = rows.get(i);
+            assertThat(row.get(0).asLong()).isEqualTo(frame.id(i));
+            assertThat(row.get(1).asDouble()).isEqualTo(frame.x(i));
+            assertThat(row.get(2).asDouble()).isEqualTo(frame.y(i));
+            assertThat(row.get(3).asInt()).isEqualTo(frame.isBusy(i) ? 1 : 0);
+        }
+    }
+
+    @Test
+    void quantizedRowsDecodeWithinHalfAStep() throws Exception {
+        JsonNode rows = objectMapper.readTree(encoder.encode(PositionStreamFormat.QUANTIZED, frame));
+
+        assertThat(rows).hasSize(frame.size());
+        for (int i = 0; i < frame.size(); i++) {
+            JsonNode row = rows.get(i);
+            assertThat(row.get(0).asLong()).isEqualTo(frame.id(i));
+            assertThat(row.get(1).isInt()).isTrue();
+            assertThat(dequantize(row.get(1).asInt())).isCloseTo(frame.x(i), within(QUANTIZATION_STEP / 2));
+            assertThat(dequantize(row.get(2).asInt())).isCloseTo(frame.y(i), within(QUANTIZATION_STEP / 2));
+            assertThat(row.get(3).asInt()).isEqualTo(frame.isBusy(i) ? 1 : 0);
+        }
+        assertThat(rows.get(0).get(1).asInt()).isZero();
+        assertThat(rows.get(0).get(2).asInt()).isEqualTo(65535);
+    }
+
+    @Test
+    void binaryRecordsAreThirteenBigEndianBytesEach() {
+        ByteBuffer records = ByteBuffer.wrap(encoder.encode(PositionStreamFormat.BINARY, frame));
+
+        assertThat(records.remaining()).isEqualTo(13 * frame.size());
+        for (int i = 0; i < frame.size(); i++) {
+            assertThat(records.getLong()).isEqualTo(frame.id(i));
+            int x = Short.toUnsignedInt(records.getShort());
+            int y = Short.toUnsignedInt(records.getShort());
+            assertThat(x).isEqualTo(PositionFrameEncoder.quantize(frame.x(i)));
+            assertThat(dequantize(x)).isCloseTo(frame.x(i), within(QUANTIZATION_STEP / 2));
+            assertThat(dequantize(y)).isCloseTo(frame.y(i), within(QUANTIZATION_STEP / 2));
+            assertThat(records.get()).isEqualTo((byte) (frame.isBusy(i) ? 1 : 0));
+        }
+        assertThat(records.hasRemaining()).isFalse();
+    }
+
+    @Test
+    void theUpperBoundSurvivesTheUnsignedShortInBinaryRecords() {
+        put(7, 1.0, 1.0, true);
+        ByteBuffer records = ByteBuffer.wrap(encoder.encode(PositionStreamFormat.BINARY, pending.drain(2)));
+
+        records.getLong();
+        assertThat(Short.toUnsignedInt(records.getShort())).isEqualTo(65535);
+        assertThat(Short.toUnsignedInt(records.getShort())).isEqualTo(65535);
+    }
+
+    @Test
+    void theReusedBufferGrowsForLargerFrames() {
+        encoder.encode(PositionStreamFormat.BINARY, frame);
+        for (long id = 1; id <= 1000; id++) {
+            put(id, 0.5, 0.5, false);
+        }
+
+        byte[] records = encoder.encode(PositionStreamFormat.BINARY, pending.drain(2));
+
+        assertThat(records).hasSize(13 * 1000);
+    }
+
+    private static double dequantize(int value) {
+        return value / (double) PositionFrameEncoder.QUANTIZATION_SCALE;
+    }
+
+    private void put(long id, double x, double y, boolean busy) {
+        pending.put(id, human(id), x, y, busy);
+    }
+
+    private static Human human(long id) {
+        Human human = new Human();
+        human.setId(id);
+        return human;
+    }
+}
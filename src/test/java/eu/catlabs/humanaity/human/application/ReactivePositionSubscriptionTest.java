@@ -0,0 +1,131 @@
+package eu.catlabs.humanaity.human.application;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.catlabs.humanaity.human.domain.Human;
+import org.junit.jupiter.api.Test;
+import org.reactivestreams.Subscription;
+import org.springframework.http.codec.ServerSentEvent;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ReactivePositionSubscriptionTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final PositionFrameEncoder encoder = new PositionFrameEncoder(objectMapper);
+    private final AtomicInteger closes = new AtomicInteger();
+
+    @Test
+    void eventsWaitInTheQueueUntilTheSubscriberRequestsThem() throws Exception {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        ReactivePositionSubscription subscription = subscribe(subscriber, 16, SlowConsumerPolicy.LATEST);
+
+        subscription.sendSubscription();
+        subscription.send(frame(1));
+        subscription.send(frame(2));
+
+        assertThat(subscriber.events).isEmpty();
+        assertThat(subscription.getQueueDepth()).isEqualTo(3);
+
+        subscriber.request(2);
+        assertThat(subscriber.events).extracting(ServerSentEvent::event).containsExactly("subscription", "delta");
+        assertThat(subscription.getQueueDepth()).isEqualTo(1);
+
+        subscriber.request(5);
+        assertThat(subscriber.events).extracting(ServerSentEvent::id).endsWith("e-2");
+        assertThat(subscription.getQueueDepth()).isZero();
+        assertThat(subscription.getSentMessages()).isEqualTo(3);
+    }
+
+    @Test
+    void eventsGoStraightToASubscriberWithOutstandingDemand() throws Exception {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        ReactivePositionSubscription subscription = subscribe(subscriber, 16, SlowConsumerPolicy.LATEST);
+        subscriber.request(1);
+
+        subscription.send(frame(1));
+
+        assertThat(subscriber.events).extracting(ServerSentEvent::id).containsExactly("e-1");
+        assertThat(subscription.getQueueDepth()).isZero();
+    }
+
+    @Test
+    void aSlowConsumerIsCompletedOnceItsQueueOverflows() throws Exception {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        ReactivePositionSubscription subscription = subscribe(subscriber, 2, SlowConsumerPolicy.DISCONNECT);
+        subscription.send(frame(1));
+        subscription.send(frame(2));
+
+        assertThatThrownBy(() -> subscription.send(frame(3))).isInstanceOf(IOException.class);
+
+        assertThat(subscriber.completed).isTrue();
+        assertThat(subscription.getQueueDepth()).isZero();
+        assertThat(subscription.getDroppedFrames()).isEqualTo(1);
+        assertThatThrownBy(() -> subscription.send(frame(4))).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void cancellingClearsTheQueueAndReleasesTheSubscriptionOnce() throws Exception {
+        RecordingSubscriber subscriber = new RecordingSubscriber();
+        ReactivePositionSubscription subscription = subscribe(subscriber, 16, SlowConsumerPolicy.LATEST);
+        subscription.send(frame(1));
+        subscription.send(frame(2));
+
+        subscriber.dispose();
+
+        assertThat(closes.get()).isEqualTo(1);
+        assertThat(subscription.getQueueDepth()).isZero();
+        assertThatThrownBy(() -> subscription.send(frame(3))).isInstanceOf(IOException.class);
+        assertThat(subscriber.events).isEmpty();
+    }
+
+    /**
+     * Subscribes as the broadcaster does, attaching the subscription when the {@code Flux} is subscribed.
+     */
+    private ReactivePositionSubscription subscribe(RecordingSubscriber subscriber, int capacity,
+                                                   SlowConsumerPolicy policy) {
+        ReactivePositionSubscription subscription = new ReactivePositionSubscription(1L, PositionStreamFormat.DELTA,
+                null, objectMapper, capacity, policy);
+        Flux.<ServerSentEvent<String>>create(sink -> subscription.attach(sink, closes::incrementAndGet))
+                .subscribe(subscriber);
+        return subscription;
+    }
+
+    private EncodedFrame frame(long sequence) {
+        Human human = new Human();
+        human.setId(sequence);
+        PendingPositions positions = new PendingPositions();
+        positions.put(human.getId(), human, 0.5, 0.5, false);
+        return new EncodedFrame(PositionStreamFormat.DELTA, "e", positions.drain(sequence), encoder);
+    }
+
+    /**
+     * Subscriber requesting nothing until told to.
+     */
+    private static class RecordingSubscriber extends BaseSubscriber<ServerSentEvent<String>> {
+
+        private final List<ServerSentEvent<String>> events = new ArrayList<>();
+        private boolean completed;
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+        }
+
+        @Override
+        protected void hookOnNext(ServerSentEvent<String> event) {
+            events.add(event);
+        }
+
+        @Override
+        protected void hookOnComplete() {
+            completed = true;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package eu.catlabs.humanaity.human.application;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import eu.catlabs.humanaity.human.domain.Human;
+import jakarta.websocket.RemoteEndpoint;
+import jakarta.websocket.SendHandler;
+import jakarta.websocket.SendResult;
+import jakarta.websocket.Session;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.adapter.NativeWebSocketSession;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SocketPositionSubscriptionTest {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final PositionFrameEncoder encoder = new PositionFrameEncoder(objectMapper);
+    private final NativeWebSocketSession session = mock(NativeWebSocketSession.class);
+    private final RemoteEndpoint.Async remote = mock(RemoteEndpoint.Async.class);
+    private final List<Object> sent = new ArrayList<>();
+    private final List<SendHandler> handlers = new ArrayList<>();
+    private PositionStreamFormat format;
+
+    SocketPositionSubscriptionTest() {
+        Session nativeSession = mock(Session.class);
+        when(session.getNativeSession(Session.class)).thenReturn(nativeSession);
+        when(nativeSession.getAsyncRemote()).thenReturn(remote);
+        doAnswer(invocation -> {
+            sent.add(invocation.getArgument(0));
+            handlers.add(invocation.getArgument(1));
+            return null;
+        }).when(remote).sendText(any(String.class), any(SendHandler.class));
+        doAnswer(invocation -> {
+            sent.add(invocation.getArgument(0));
+            handlers.add(invocation.getArgument(1));
+            return null;
+        }).when(remote).sendBinary(any(ByteBuffer.class), any(SendHandler.class));
+    }
+
+    @Test
+    void keepsOneMessageInFlightAndSendsTheNextWhenItCompletes() throws Exception {
+        SocketPositionSubscription subscription = subscription(PositionStreamFormat.DELTA, 16, SlowConsumerPolicy.LATEST);
+
+        subscription.sendSubscription();
+        subscription.send(frame(1));
+        subscription.send(frame(2));
+
+        assertThat(sent).hasSize(1);
+        assertThat((String) sent.get(0)).contains("\"event\":\"subscription\"");
+        assertThat(subscription.getQueueDepth()).isEqualTo(2);
+
+        complete(0);
+        assertThat(sent).hasSize(2);
+        assertThat((String) sent.get(1)).contains("\"id\":\"e-1\"");
+
+        complete(1);
+        complete(2);
+        assertThat(sent).hasSize(3);
+        assertThat(subscription.getQueueDepth()).isZero();
+        assertThat(subscription.getSentMessages()).isEqualTo(3);
+
+        subscription.send(frame(3));
+        assertThat(sent).hasSize(4);
+    }
+
+    @Test
+    void aFailedSendClosesTheSessionAsUnreliable() throws Exception {
+        SocketPositionSubscription subscription = subscription(PositionStreamFormat.DELTA, 16, SlowConsumerPolicy.LATEST);
+        subscription.sendSubscription();
+        subscription.send(frame(1));
+
+        handlers.get(0).onResult(new SendResult(new IOException("Broken pipe")));
+
+        verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+        assertThat(sent).hasSize(1);
+        assertThat(subscription.getQueueDepth()).isZero();
+        assertThatThrownBy(() -> subscription.send(frame(2))).isInstanceOf(IOException.class);
+    }
+
+    @Test
+    void aSendThrowingSynchronouslyIsHandledLikeAFailedSend() throws Exception {
+        doAnswer(invocation -> {
+            throw new IllegalStateException("Session closed");
+        }).when(remote).sendText(any(String.class), any(SendHandler.class));
+        SocketPositionSubscription subscription = subscription(PositionStreamFormat.DELTA, 16, SlowConsumerPolicy.LATEST);
+
+        subscription.sendSubscription();
+
+        verify(session).close(CloseStatus.SESSION_NOT_RELIABLE);
+    }
+
+    @Test
+    void aSlowConsumerIsClosedWithServiceOverload() throws Exception {
+        SocketPositionSubscription subscription = subscription(PositionStreamFormat.DELTA, 1, SlowConsumerPolicy.DISCONNECT);
+        subscription.send(frame(1));
+        subscription.send(frame(2));
+
+        assertThatThrownBy(() -> subscription.send(frame(3))).isInstanceOf(IOException.class);
+
+        verify(session).close(CloseStatus.SERVICE_OVERLOAD.withReason("Slow consumer"));
+        assertThat(subscription.getDroppedFrames()).isEqualTo(1);
+
+        complete(0);
+        assertThat(sent).hasSize(1);
+    }
+
+    @Test
+    void theLatestPolicyMergesTheOldestQueuedFrameInsteadOfClosing() throws Exception {
+        SocketPositionSubscription subscription = subscription(PositionStreamFormat.DELTA, 1, SlowConsumerPolicy.LATEST);
+        subscription.send(frame(1));
+        subscription.send(frame(2));
+        subscription.send(frame(3));
+
+        verify(session, never()).close(any());
+        assertThat(subscription.getDroppedFrames()).isEqualTo(1);
+
+        complete(0);
+        assertThat((String) sent.get(1)).contains("\"id\":\"e-3\"").contains("[2,").contains("[3,");
+    }
+
+    @Test
+    void binaryFramesGoOutRawAfterTheirSequence() throws Exception {
+        SocketPositionSubscription subscription = subscription(PositionStreamFormat.BINARY, 16, SlowConsumerPolicy.LATEST);
+
+        subscription.send(frame(7));
+
+        ByteBuffer message = (ByteBuffer) sent.get(0);
+        assertThat(message.remaining()).isEqualTo(Long.BYTES + 13);
+        assertThat(message.getLong()).isEqualTo(7);
+        assertThat(message.getLong()).isEqualTo(7);
+    }
+
+    private SocketPositionSubscription subscription(PositionStreamFormat format, int capacity, SlowConsumerPolicy policy) {
+        this.format = format;
+        return new SocketPositionSubscription(1L, format, null, session, objectMapper, capacity, policy, 1000,
+                Runnable::run);
+    }
+
+    private void complete(int message) {
+        handlers.get(message).onResult(new SendResult());
+    }
+
+    /**
+     * Frame in the format of the last subscription, moving the human whose id is the sequence.
+     */
+    private EncodedFrame frame(long sequence) {
+        Human human = new Human();
+        human.setId(sequence);
+        PendingPositions positions = new PendingPositions();
+        positions.put(sequence, human, 0.5, 0.5, false);
+        return new EncodedFrame(format, "e", positions.drain(sequence), encoder);
+    }
+}
@@ -0,0 +1,114 @@
+package eu.catlabs.humanaity.human.application;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter.DataWithMediaType;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SsePositionSubscriptionTest {
+
+    private final ExecutorService writers = Executors.newFixedThreadPool(2);
+    private final ExecutorService closer = Executors.newSingleThreadExecutor();
+
+    @AfterEach
+    void tearDown() {
+        writers.shutdownNow();
+        closer.shutdownNow();
+    }
+
+    @Test
+    void aStreamFailedWhileItsWriteIsBlockedHoldsNoOtherThread() throws Exception {
+        BlockingEmitter blocked = new BlockingEmitter();
+        RecordingEmitter other = new RecordingEmitter(2);
+        SsePositionSubscription stuck = subscription(blocked);
+        SsePositionSubscription healthy = subscription(other);
+
+        stuck.sendHeartbeat();
+        assertThat(blocked.sending.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(stuck.isWriteStalled(System.nanoTime(), 0)).isTrue();
+        stuck.fail(new IOException("Write blocked"));
+        // the closer is free for other streams, and both writers but the blocked one keep writing
+        healthy.sendHeartbeat();
+        healthy.sendHeartbeat();
+
+        assertThat(other.sent.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(closer.submit(() -> true).get(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(blocked.completed.getCount()).isEqualTo(1);
+
+        blocked.release.countDown();
+        assertThat(blocked.completed.await(1, TimeUnit.SECONDS)).isTrue();
+        assertThat(stuck.isWriteStalled(System.nanoTime(), 0)).isFalse();
+    }
+
+    @Test
+    void aStreamFailedBetweenWritesIsCompletedByTheCloser() throws Exception {
+        RecordingEmitter emitter = new RecordingEmitter(1);
+        SsePositionSubscription subscription = subscription(emitter);
+        subscription.sendHeartbeat();
+        assertThat(emitter.sent.await(1, TimeUnit.SECONDS)).isTrue();
+
+        subscription.fail(new IOException("Reaped"));
+
+        assertThat(emitter.completed.await(1, TimeUnit.SECONDS)).isTrue();
+    }
+
+    private SsePositionSubscription subscription(SseEmitter emitter) {
+        return new SsePositionSubscription(1L, PositionStreamFormat.FULL, emitter, null, 16,
+                SlowConsumerPolicy.LATEST, writers, closer);
+    }
+
+    /**
+     * Emitter whose writes block until released, locked meanwhile like a servlet emitter writing to a client
+     * that does not read.
+     */
+    private static class BlockingEmitter extends SseEmitter {
+
+        private final CountDownLatch sending = new CountDownLatch(1);
+        private final CountDownLatch release = new CountDownLatch(1);
+        private final CountDownLatch completed = new CountDownLatch(1);
+
+        @Override
+        public synchronized void send(Set<DataWithMediaType> items) throws IOException {
+            sending.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        @Override
+        public synchronized void completeWithError(Throwable ex) {
+            completed.countDown();
+        }
+    }
+
+    private static class RecordingEmitter extends SseEmitter {
+
+        private final CountDownLatch sent;
+        private final CountDownLatch completed = new CountDownLatch(1);
+
+        RecordingEmitter(int messages) {
+            this.sent = new CountDownLatch(messages);
+        }
+
+        @Override
+        public synchronized void send(Set<DataWithMediaType> items) {
+            sent.countDown();
+        }
+
+        @Override
+        public synchronized void completeWithError(Throwable ex) {
+            completed.countDown();
+        }
+    }
+}
@@ -0,0 +1,95 @@
+package eu.catlabs.humanaity.human.infrastructure.persistence;
+
+import eu.catlabs.humanaity.city.domain.City;
+import eu.catlabs.humanaity.human.api.dto.HumanOutput;
+import eu.catlabs.humanaity.human.api.dto.HumanPositionOutput;
+import eu.catlabs.humanaity.human.domain.Human;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.autoconfigure.orm.jpa.TestEntityManager;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Slice;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+@DataJpaTest
+class HumanRepositoryTest {
+
+    @Autowired
+    private TestEntityManager entityManager;
+
+    @Autowired
+    private HumanRepository humanRepository;
+
+    private City city;
+    private final List<Long> ids = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        city = entityManager.persist(city("paged"));
+        City other = entityManager.persist(city("other"));
+        for (int i = 0; i < 5; i++) {
+            ids.add(entityManager.persist(human(city, i)).getId());
+            entityManager.persist(human(other, i));
+        }
+        entityManager.flush();
+    }
+
+    @Test
+    void outputPagesStartAfterTheGivenIdAndStayInTheCity() {
+        Slice<HumanOutput> first = humanRepository.findOutputsByCityIdAfter(city.getId(), 0L, PageRequest.of(0, 2));
+        Slice<HumanOutput> second = humanRepository.findOutputsByCityIdAfter(city.getId(),
+                first.getContent().get(1).getId(), PageRequest.of(0, 2));
+        Slice<HumanOutput> last = humanRepository.findOutputsByCityIdAfter(city.getId(),
+                second.getContent().get(1).getId(), PageRequest.of(0, 2));
+
+        assertThat(first.getContent()).extracting(HumanOutput::getId).containsExactly(ids.get(0), ids.get(1));
+        assertThat(second.getContent()).extracting(HumanOutput::getId).containsExactly(ids.get(2), ids.get(3));
+        assertThat(last.getContent()).extracting(HumanOutput::getId).containsExactly(ids.get(4));
+        assertThat(first.hasNext()).isTrue();
+        assertThat(second.hasNext()).isTrue();
+        assertThat(last.hasNext()).isFalse();
+    }
+
+    @Test
+    void positionPagesCarryTheHotFields() {
+        Slice<HumanPositionOutput> page = humanRepository.findPositionsByCityIdAfter(city.getId(), ids.get(3),
+                PageRequest.of(0, 2));
+
+        assertThat(page.getContent()).hasSize(1);
+        HumanPositionOutput position = page.getContent().get(0);
+        assertThat(position.getId()).isEqualTo(ids.get(4));
+        assertThat(position.getX()).isEqualTo(0.4);
+        assertThat(position.isBusy()).isTrue();
+        assertThat(page.hasNext()).isFalse();
+    }
+
+    @Test
+    void humansWithinABoxIncludeItsBoundsAndStayInTheCity() {
+        List<HumanOutput> within = humanRepository.findOutputsByCityIdWithin(city.getId(), 0.1, 0.3, 0.5, 0.6);
+
+        assertThat(within).extracting(HumanOutput::getId).containsExactly(ids.get(1), ids.get(2), ids.get(3));
+        assertThat(humanRepository.findOutputsByCityIdWithin(city.getId(), 0.1, 0.3, 0.6, 0.7)).isEmpty();
+    }
+
+    private static City city(String name) {
+        City city = new City();
+        city.setName(name);
+        return city;
+    }
+
+    private static Human human(City city, int index) {
+        Human human = new Human();
+        human.setName("Human " + index);
+        human.setCity(city);
+        human.setX(index / 10.0);
+        human.setY(0.5);
+        human.setBusy(index % 2 == 0);
+        return human;
+    }
+}
@@ -0,0 +1,59 @@
+package eu.catlabs.humanaity.human.infrastructure.persistence;
+
+import eu.catlabs.humanaity.human.domain.Human;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// ALTER SEQUENCE commits on H2, so the rows written here are removed by hand rather than rolled back
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class HumanSequenceInitializerTest {
+
+    private static final long EXISTING_ID = 100_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @AfterEach
+    void tearDown() {
+        jdbcTemplate.update("DELETE FROM human WHERE id = ?", EXISTING_ID);
+    }
+
+    @Test
+    void restartsTheSequencePastTheExistingIds() {
+        jdbcTemplate.update("INSERT INTO human (id, busy, name) VALUES (?, false, 'existing')", EXISTING_ID);
+
+        new HumanSequenceInitializer(jdbcTemplate).alignSequence();
+
+        // the pooled optimizer hands out the block of ids just below the value it reads
+        assertThat(nextValue() - Human.ID_BLOCK_SIZE).isGreaterThan(EXISTING_ID);
+    }
+
+    @Test
+    void leavesASequenceAlreadyPastTheExistingIdsUntouched() {
+        jdbcTemplate.update("INSERT INTO human (id, busy, name) VALUES (?, false, 'existing')", EXISTING_ID);
+        new HumanSequenceInitializer(jdbcTemplate).alignSequence();
+        long aligned = peekNextValue();
+
+        new HumanSequenceInitializer(jdbcTemplate).alignSequence();
+        new HumanSequenceInitializer(jdbcTemplate).alignSequence();
+
+        assertThat(peekNextValue()).isEqualTo(aligned);
+    }
+
+    private long nextValue() {
+        return jdbcTemplate.queryForObject("SELECT NEXT VALUE FOR human_seq", Long.class);
+    }
+
+    private long peekNextValue() {
+        return jdbcTemplate.queryForObject(
+                "SELECT BASE_VALUE FROM INFORMATION_SCHEMA.SEQUENCES WHERE SEQUENCE_NAME = 'HUMAN_SEQ'", Long.class);
+    }
+}
@@ -0,0 +1,106 @@
+package eu.catlabs.humanaity.infrastructure.config;
+
+import eu.catlabs.humanaity.auth.domain.User;
+import eu.catlabs.humanaity.auth.domain.UserSummary;
+import eu.catlabs.humanaity.auth.infrastructure.persistence.UserRepository;
+import eu.catlabs.humanaity.city.domain.City;
+import eu.catlabs.humanaity.city.domain.CitySummary;
+import eu.catlabs.humanaity.city.infrastructure.persistence.CityRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// evictions apply on commit, so every repository call here runs in a transaction of its own
+@DataJpaTest
+@Import(CacheConfig.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CacheConfigTest {
+
+    @Autowired
+    private CityRepository cityRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    private User owner;
+    private City city;
+
+    @BeforeEach
+    void setUp() {
+        owner = new User();
+        owner.setEmail("owner@example.com");
+        owner.setPassword("hash");
+        owner = userRepository.save(owner);
+        city = new City();
+        city.setName("before");
+        city.setOwner(owner);
+        city = cityRepository.save(city);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cityRepository.deleteAll();
+        userRepository.deleteAll();
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+    }
+
+    @Test
+    void aCitySummaryIsCachedUntilTheCityIsSaved() {
+        CitySummary cached = cityRepository.findSummaryById(city.getId()).orElseThrow();
+        assertThat(cached.getOwnerId()).isEqualTo(owner.getId());
+        assertThat(cities().get(city.getId())).isNotNull();
+
+        city.setName("after");
+        cityRepository.save(city);
+
+        assertThat(cities().get(city.getId())).isNull();
+        assertThat(cityRepository.findSummaryById(city.getId()).orElseThrow().getName()).isEqualTo("after");
+    }
+
+    @Test
+    void aDeletedCityIsEvicted() {
+        cityRepository.findSummaryById(city.getId());
+
+        cityRepository.deleteById(city.getId());
+
+        assertThat(cities().get(city.getId())).isNull();
+        assertThat(cityRepository.findSummaryById(city.getId())).isEmpty();
+    }
+
+    @Test
+    void aUserSummaryIsCachedUntilTheUserIsSavedOrDeleted() {
+        UserSummary cached = userRepository.findSummaryByEmail(owner.getEmail()).orElseThrow();
+        assertThat(cached.getRoles()).containsExactly("ROLE_USER");
+        assertThat(users().get(owner.getEmail())).isNotNull();
+
+        userRepository.save(userRepository.findByEmail(owner.getEmail()).orElseThrow());
+        assertThat(users().get(owner.getEmail())).isNull();
+
+        userRepository.findSummaryByEmail(owner.getEmail());
+        cityRepository.findSummaryById(city.getId());
+        userRepository.delete(userRepository.findByEmail(owner.getEmail()).orElseThrow());
+
+        assertThat(users().get(owner.getEmail())).isNull();
+        assertThat(cities().get(city.getId())).isNull();
+    }
+
+    private Cache cities() {
+        return cacheManager.getCache(CacheConfig.CITIES);
+    }
+
+    private Cache users() {
+        return cacheManager.getCache(CacheConfig.USERS);
+    }
+}
@@ -0,0 +1,100 @@
+package eu.catlabs.humanaity.simulation.application;
+
+import eu.catlabs.humanaity.human.domain.Human;
+import eu.catlabs.humanaity.simulation.domain.CityWorld;
+import eu.catlabs.humanaity.simulation.domain.SimulationSettings;
+import eu.catlabs.humanaity.simulation.domain.TickStats;
+import eu.catlabs.humanaity.simulation.infrastructure.scheduling.TickHandle;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RunningSimulationTest {
+
+    private static final SimulationSettings ADAPTIVE = new SimulationSettings(10, null, 100, 1000, true);
+
+    @Test
+    void adaptiveTickBeforeTheHandleIsSetUsesTheConfiguredSample() {
+        RunningSimulation simulation = new RunningSimulation(world(100), 42, ADAPTIVE);
+
+        assertThat(simulation.nextSampleSize(0.5)).isEqualTo(10);
+    }
+
+    @Test
+    void adaptiveSampleFollowsTheMeasuredTickCost() {
+        RunningSimulation simulation = new RunningSimulation(world(100), 42, ADAPTIVE);
+        TickStats stats = new TickStats();
+        simulation.setTickHandle(handle(stats));
+        simulation.setLastSampleSize(10);
+        // 10 humans in 1 ms against a 50 ms target: the sample doubles, the most it may grow per tick
+        stats.recordTick(1_000_000, 0, 100_000_000);
+
+        assertThat(simulation.nextSampleSize(0.5)).isEqualTo(20);
+    }
+
+    @Test
+    void fixedSampleIsCappedByTheCitySize() {
+        RunningSimulation simulation = new RunningSimulation(world(5),
+                42, new SimulationSettings(10, null, 100, 1000, false));
+
+        assertThat(simulation.nextSampleSize(0.5)).isEqualTo(5);
+    }
+
+    @Test
+    void eachCityDrawsFromItsOwnSeededStream() {
+        RunningSimulation first = new RunningSimulation(world(5), 42, ADAPTIVE);
+        RunningSimulation replay = new RunningSimulation(world(5), 42, ADAPTIVE);
+        RunningSimulation other = new RunningSimulation(world(5), 43, ADAPTIVE);
+
+        long[] draws = draws(first);
+        assertThat(draws(replay)).containsExactly(draws);
+        assertThat(draws(other)).isNotEqualTo(draws);
+        assertThat(first.getSeed()).isEqualTo(42);
+    }
+
+    private static long[] draws(RunningSimulation simulation) {
+        return simulation.getRandom().longs(8).toArray();
+    }
+
+    private static CityWorld world(int size) {
+        List<Human> humans = new ArrayList<>();
+        for (long id = 1; id <= size; id++) {
+            Human human = new Human();
+            human.setId(id);
+            human.setX(0.5);
+            human.setY(0.5);
+            humans.add(human);
+        }
+        return new CityWorld(1L, humans);
+    }
+
+    private static TickHandle handle(TickStats stats) {
+        return new TickHandle() {
+            @Override
+            public TickStats getStats() {
+                return stats;
+            }
+
+            @Override
+            public long getBudgetNanos() {
+                return 100_000_000;
+            }
+
+            @Override
+            public void setPeriodMillis(long periodMillis) {
+            }
+
+            @Override
+            public void cancel() {
+            }
+
+            @Override
+            public Throwable getFailure() {
+                return null;
+            }
+        };
+    }
+}
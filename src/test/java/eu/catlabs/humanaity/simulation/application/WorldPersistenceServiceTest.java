@@ -0,0 +1,74 @@
+package eu.catlabs.humanaity.simulation.application;
+
+import eu.catlabs.humanaity.human.domain.Human;
+import eu.catlabs.humanaity.simulation.domain.CityWorld;
+import eu.catlabs.humanaity.simulation.domain.PositionBatch;
+import eu.catlabs.humanaity.simulation.infrastructure.persistence.HumanPositionRepository;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+class WorldPersistenceServiceTest {
+
+    private final HumanPositionRepository humanPositionRepository = mock(HumanPositionRepository.class);
+    private final WorldPersistenceService service = new WorldPersistenceService(null, null, humanPositionRepository, null);
+    private final List<double[]> written = new ArrayList<>();
+
+    @Test
+    void aSaveLandingDuringAFlushIsWrittenAgainByTheNextOne() {
+        CityWorld world = new CityWorld(1L, List.of(human(1, 0.1, 0.1)));
+        world.move(world.slotOf(1), 0.2, 0.2);
+        doAnswer(invocation -> {
+            record(invocation.getArgument(0));
+            if (written.size() == 1) {
+                // a REST update commits after the flush drained the old position, before its batch lands
+                world.put(human(1, 0.9, 0.8));
+            }
+            return null;
+        }).when(humanPositionRepository).updatePositions(any());
+
+        service.flush(world);
+        service.flush(world);
+        service.flush(world);
+
+        assertThat(written).hasSize(2);
+        assertThat(written.get(0)).containsExactly(1, 0.2, 0.2);
+        assertThat(written.get(1)).containsExactly(1, 0.9, 0.8);
+    }
+
+    @Test
+    void aHumanJoiningTheWorldIsWrittenByTheNextFlush() {
+        CityWorld world = new CityWorld(1L, List.of(human(1, 0.1, 0.1)));
+        doAnswer(invocation -> record(invocation.getArgument(0))).when(humanPositionRepository).updatePositions(any());
+
+        world.put(human(2, 0.4, 0.6));
+        service.flush(world);
+
+        assertThat(written).hasSize(1);
+        assertThat(written.get(0)).containsExactly(2, 0.4, 0.6);
+    }
+
+    /**
+     * Copies the rows of a batch, which the service reuses across flushes.
+     */
+    private Void record(PositionBatch batch) {
+        for (int i = 0; i < batch.size(); i++) {
+            written.add(new double[]{batch.id(i), batch.x(i), batch.y(i)});
+        }
+        return null;
+    }
+
+    private static Human human(long id, double x, double y) {
+        Human human = new Human();
+        human.setId(id);
+        human.setX(x);
+        human.setY(y);
+        return human;
+    }
+}
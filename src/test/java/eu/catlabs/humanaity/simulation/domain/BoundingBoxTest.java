@@ -0,0 +1,40 @@
+package eu.catlabs.humanaity.simulation.domain;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class BoundingBoxTest {
+
+    @Test
+    void expandGrowsTheBoxWithinTheUnitSquare() {
+        BoundingBox box = new BoundingBox(0.125, 0.5, 0.5, 0.875).expand(0.25);
+
+        assertThat(box).isEqualTo(new BoundingBox(0, 0.25, 0.75, 1));
+    }
+
+    @Test
+    void aBoxPastTheEdgeOfTheCityShrinksToThatEdge() {
+        assertThat(new BoundingBox(1.25, 0.5, 1.5, 0.625).expand(0.25))
+                .isEqualTo(new BoundingBox(0.75, 0.25, 1, 0.875));
+        assertThat(new BoundingBox(-0.5, -0.5, -0.25, -0.25).expand(0.25))
+                .isEqualTo(new BoundingBox(0, 0, 0.25, 0.25));
+        assertThat(new BoundingBox(1.2, 1.2, 1.5, 1.5).snap(0.05)).isEqualTo(new BoundingBox(1, 1, 1, 1));
+    }
+
+    @Test
+    void snapWidensToWholeCells() {
+        BoundingBox first = new BoundingBox(0.11, 0.11, 0.32, 0.37).snap(0.05);
+        BoundingBox second = new BoundingBox(0.12, 0.14, 0.33, 0.38).snap(0.05);
+
+        assertThat(first).isEqualTo(second).hasSameHashCodeAs(second);
+        assertThat(first.contains(0.1, 0.1)).isTrue();
+        assertThat(first.contains(0.35, 0.4)).isTrue();
+    }
+
+    @Test
+    void aMinimumAboveItsMaximumIsRejected() {
+        assertThatThrownBy(() -> new BoundingBox(0.6, 0, 0.4, 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
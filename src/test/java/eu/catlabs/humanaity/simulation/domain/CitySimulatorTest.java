@@ -0,0 +1,109 @@
+package eu.catlabs.humanaity.simulation.domain;
+
+import eu.catlabs.humanaity.human.domain.Human;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CitySimulatorTest {
+
+    private static final int HUMANS = 2000;
+    private static final int SAMPLE = 500;
+    private static final int TICKS = 30;
+
+    private final ForkJoinPool pool = new ForkJoinPool(4);
+    private final ForkJoinPool singleThread = new ForkJoinPool(1);
+
+    @AfterEach
+    void shutdown() {
+        pool.shutdownNow();
+        singleThread.shutdownNow();
+    }
+
+    @Test
+    void parallelTicksDoNotDependOnTheThreadsOrTheRegionSplit() {
+        double[] fourThreadsSixteenRegions = run(new CitySimulator(pool, 1, 4, 20, 100), 42);
+        double[] oneThreadOneRegion = run(new CitySimulator(singleThread, 1, 1, 20, 100), 42);
+
+        assertThat(fourThreadsSixteenRegions).containsExactly(oneThreadOneRegion);
+    }
+
+    @Test
+    void ticksBelowTheParallelThresholdFollowTheSequentialPath() {
+        double[] belowThreshold = run(new CitySimulator(pool, SAMPLE + 1, 4, 20, 100), 42);
+        double[] sequential = run(new CitySimulator(), 42);
+
+        assertThat(belowThreshold).containsExactly(sequential);
+    }
+
+    @Test
+    void theSameSeedReplaysTheSameTrajectory() {
+        assertThat(run(new CitySimulator(), 42)).containsExactly(run(new CitySimulator(), 42));
+        assertThat(run(new CitySimulator(), 42)).isNotEqualTo(run(new CitySimulator(), 43));
+    }
+
+    @Test
+    void parallelTicksStartInteractionsAndMoveHumans() {
+        CityWorld world = world();
+        double[] before = state(world);
+
+        tick(new CitySimulator(pool, 1, 4, 20, 100), world, 42);
+
+        assertThat(world.getInteractions().getActive()).isPositive();
+        assertThat(state(world)).isNotEqualTo(before);
+    }
+
+    /**
+     * Positions and busy flags of every slot after {@link #TICKS} ticks of the same city from the same seed.
+     */
+    private static double[] run(CitySimulator simulator, long seed) {
+        CityWorld world = world();
+        tick(simulator, world, seed);
+        return state(world);
+    }
+
+    private static void tick(CitySimulator simulator, CityWorld world, long seed) {
+        SplittableRandom random = new SplittableRandom(seed);
+        int[] sampled = new int[SAMPLE];
+        synchronized (world) {
+            for (int i = 0; i < TICKS; i++) {
+                simulator.tick(world, random, sampled, SAMPLE);
+            }
+        }
+    }
+
+    private static double[] state(CityWorld world) {
+        synchronized (world) {
+            double[] state = new double[world.size() * 3];
+            for (int slot = 0; slot < world.size(); slot++) {
+                state[slot * 3] = world.x(slot);
+                state[slot * 3 + 1] = world.y(slot);
+                state[slot * 3 + 2] = world.isBusy(slot) ? 1 : 0;
+            }
+            return state;
+        }
+    }
+
+    private static CityWorld world() {
+        SplittableRandom placement = new SplittableRandom(7);
+        List<Human> humans = new ArrayList<>();
+        for (long id = 1; id <= HUMANS; id++) {
+            humans.add(human(id, placement.nextDouble(), placement.nextDouble()));
+        }
+        return new CityWorld(1L, humans);
+    }
+
+    private static Human human(long id, double x, double y) {
+        Human human = new Human();
+        human.setId(id);
+        human.setX(x);
+        human.setY(y);
+        return human;
+    }
+}
@@ -0,0 +1,153 @@
+package eu.catlabs.humanaity.simulation.domain;
+
+import eu.catlabs.humanaity.human.domain.Human;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class CityWorldTest {
+
+    @Test
+    void findsCollisionsAcrossCellBoundaries() {
+        CityWorld world = new CityWorld(1L, List.of(human(1, 0.199, 0.5), human(2, 0.201, 0.5), human(3, 0.9, 0.9)));
+
+        assertThat(world.findCollision(world.slotOf(1))).isEqualTo(world.slotOf(2));
+        assertThat(world.findCollision(world.slotOf(3))).isEqualTo(-1);
+    }
+
+    @Test
+    void collisionFollowsMoves() {
+        CityWorld world = new CityWorld(1L, List.of(human(1, 0.1, 0.1), human(2, 0.5, 0.5)));
+
+        world.move(world.slotOf(2), 0.11, 0.1);
+        assertThat(world.findCollision(world.slotOf(1))).isEqualTo(world.slotOf(2));
+
+        world.move(world.slotOf(2), 0.5, 0.5);
+        assertThat(world.findCollision(world.slotOf(1))).isEqualTo(-1);
+    }
+
+    @Test
+    void removeCompactsSlotsAndKeepsTheGridConsistent() {
+        CityWorld world = new CityWorld(1L, List.of(human(1, 0.1, 0.1), human(2, 0.5, 0.5), human(3, 0.51, 0.5)));
+        world.setBusy(world.slotOf(3), true);
+
+        assertThat(world.remove(1L)).isTrue();
+        assertThat(world.remove(1L)).isFalse();
+        assertThat(world.size()).isEqualTo(2);
+        assertThat(world.slotOf(1)).isEqualTo(-1);
+        assertThat(world.isBusy(world.slotOf(3))).isTrue();
+        assertThat(world.findCollision(world.slotOf(2))).isEqualTo(world.slotOf(3));
+        assertThat(ids(world.snapshotWithin(new BoundingBox(0, 0, 0.2, 0.2)))).isEmpty();
+    }
+
+    @Test
+    void slotsAreFoundByIdWhateverTheOrderOfAddsAndRemoves() {
+        CityWorld world = new CityWorld(1L, List.of(human(5, 0.1, 0.1), human(2, 0.2, 0.2), human(9, 0.3, 0.3)));
+        world.put(human(4, 0.4, 0.4));
+        world.remove(2L);
+        world.put(human(1, 0.5, 0.5));
+        world.remove(9L);
+
+        assertThat(world.size()).isEqualTo(3);
+        for (long id : new long[]{1, 4, 5}) {
+            assertThat(world.id(world.slotOf(id))).isEqualTo(id);
+        }
+        assertThat(world.slotOf(2)).isEqualTo(-1);
+        assertThat(world.slotOf(9)).isEqualTo(-1);
+        assertThat(world.x(world.slotOf(4))).isEqualTo(0.4);
+    }
+
+    @Test
+    void snapshotWithinChecksExactCoordinates() {
+        CityWorld world = new CityWorld(1L, List.of(human(1, 0.30, 0.30), human(2, 0.34, 0.30), human(3, 0.7, 0.7)));
+
+        assertThat(ids(world.snapshotWithin(new BoundingBox(0.25, 0.25, 0.32, 0.32)))).containsExactly(1L);
+    }
+
+    @Test
+    void putUpdatesAnExistingHumanInPlace() {
+        CityWorld world = new CityWorld(1L, List.of(human(1, 0.1, 0.1)));
+
+        world.put(human(1, 0.8, 0.8));
+        assertThat(world.size()).isEqualTo(1);
+        assertThat(world.x(world.slotOf(1))).isEqualTo(0.8);
+        assertThat(ids(world.snapshotWithin(new BoundingBox(0.7, 0.7, 0.9, 0.9)))).containsExactly(1L);
+    }
+
+    @Test
+    void humansLeaveTheWorldAsCopiesWithoutTouchingTheEntities() {
+        Human entity = human(1, 0.1, 0.1);
+        entity.setName("Ada");
+        CityWorld world = new CityWorld(1L, List.of(entity));
+        world.move(world.slotOf(1), 0.6, 0.7);
+        world.setBusy(world.slotOf(1), true);
+
+        Human copy = world.find(1L).orElseThrow();
+        assertThat(copy).isNotSameAs(entity);
+        assertThat(copy.getName()).isEqualTo("Ada");
+        assertThat(copy.getX()).isEqualTo(0.6);
+        assertThat(copy.isBusy()).isTrue();
+        assertThat(entity.getX()).isEqualTo(0.1);
+        assertThat(entity.isBusy()).isFalse();
+    }
+
+    @Test
+    void drainsOnlyDirtySlotsOnce() {
+        CityWorld world = new CityWorld(1L, List.of(human(1, 0.1, 0.1), human(2, 0.5, 0.5)));
+        world.move(world.slotOf(2), 0.6, 0.6);
+
+        PositionBatch batch = new PositionBatch();
+        world.drainDirty(batch);
+        assertThat(batch.size()).isEqualTo(1);
+        assertThat(batch.id(0)).isEqualTo(2L);
+
+        batch.clear();
+        world.drainDirty(batch);
+        assertThat(batch.size()).isZero();
+    }
+
+    @Test
+    void snapshotAfterPagesByAscendingIdWhateverTheSlotOrder() {
+        CityWorld world = new CityWorld(1L, List.of(human(5, 0.1, 0.1), human(2, 0.2, 0.2), human(9, 0.3, 0.3),
+                human(1, 0.4, 0.4), human(7, 0.5, 0.5)));
+
+        assertThat(ids(world.snapshotAfter(0, 2))).containsExactly(1L, 2L);
+        assertThat(ids(world.snapshotAfter(2, 2))).containsExactly(5L, 7L);
+        assertThat(ids(world.snapshotAfter(7, 2))).containsExactly(9L);
+        assertThat(world.snapshotAfter(9, 2)).isEmpty();
+    }
+
+    @Test
+    void snapshotAfterStartsBetweenIdsAndIncludesHumansAddedLater() {
+        CityWorld world = new CityWorld(1L, List.of(human(10, 0.1, 0.1), human(20, 0.2, 0.2), human(30, 0.3, 0.3)));
+        world.put(human(15, 0.4, 0.4));
+
+        assertThat(ids(world.snapshotAfter(12, 2))).containsExactly(15L, 20L);
+        assertThat(ids(world.snapshotAfter(20, Integer.MAX_VALUE))).containsExactly(30L);
+    }
+
+    @Test
+    void snapshotAfterSkipsRemovedHumans() {
+        CityWorld world = new CityWorld(1L, List.of(human(1, 0.1, 0.1), human(2, 0.2, 0.2), human(3, 0.3, 0.3)));
+        world.remove(2L);
+
+        assertThat(ids(world.snapshotAfter(1, 10))).containsExactly(3L);
+    }
+
+    static Human human(long id, double x, double y) {
+        Human human = new Human();
+        human.setId(id);
+        human.setX(x);
+        human.setY(y);
+        return human;
+    }
+
+    private static List<Long> ids(List<Human> humans) {
+        List<Long> ids = new ArrayList<>();
+        humans.forEach(human -> ids.add(human.getId()));
+        return ids;
+    }
+}
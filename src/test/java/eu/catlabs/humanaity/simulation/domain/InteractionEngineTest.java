@@ -0,0 +1,156 @@
+package eu.catlabs.humanaity.simulation.domain;
+
+import eu.catlabs.humanaity.human.domain.Human;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class InteractionEngineTest {
+
+    private final CityWorld world = new CityWorld(1L, List.of(human(1), human(2), human(3)));
+    private final InteractionEngine engine = world.getInteractions();
+
+    @Test
+    void releasesBothHumansWhenTheInteractionEnds() {
+        engine.begin(world, slot(1), slot(2), 3);
+
+        advance(2);
+        assertThat(busy(1)).isTrue();
+        assertThat(busy(2)).isTrue();
+
+        advance(1);
+        assertThat(busy(1)).isFalse();
+        assertThat(busy(2)).isFalse();
+        assertThat(engine.getActive()).isZero();
+
+        InteractionBatch finished = new InteractionBatch();
+        engine.drainFinished(finished);
+        assertThat(finished.size()).isEqualTo(1);
+        assertThat(finished.firstHumanId(0)).isEqualTo(1);
+        assertThat(finished.secondHumanId(0)).isEqualTo(2);
+    }
+
+    @Test
+    void countsEachInteractionOnceWhateverTheNumberOfEntries() {
+        engine.begin(world, slot(1), slot(2), 3);
+        assertThat(engine.getActive()).isEqualTo(1);
+
+        engine.begin(world, slot(3), slot(2), 5);
+        assertThat(engine.getActive()).isEqualTo(2);
+
+        advance(3);
+        assertThat(engine.getActive()).isEqualTo(1);
+
+        advance(2);
+        assertThat(engine.getActive()).isZero();
+    }
+
+    @Test
+    void aSupersededInteractionStopsCountingWhenItsHumanStartsAnother() {
+        engine.begin(world, slot(1), slot(2), 5);
+        synchronized (world) {
+            world.setBusy(slot(1), false);
+        }
+        engine.begin(world, slot(1), slot(3), 2);
+        assertThat(engine.getActive()).isEqualTo(1);
+
+        advance(2);
+        assertThat(engine.getActive()).isZero();
+
+        advance(3);
+        assertThat(engine.getActive()).isZero();
+    }
+
+    @Test
+    void waitsFullRoundsOfTheWheelForLongInteractions() {
+        engine.begin(world, slot(1), slot(2), 1200);
+
+        advance(1199);
+        assertThat(busy(1)).isTrue();
+
+        advance(1);
+        assertThat(busy(1)).isFalse();
+    }
+
+    @Test
+    void busyPartnerKeepsItsOwnExpiry() {
+        synchronized (world) {
+            world.setBusy(slot(2), true);
+            engine.hold(world, slot(2), 2);
+        }
+        engine.begin(world, slot(1), slot(2), 5);
+
+        advance(2);
+        assertThat(busy(2)).isFalse();
+        assertThat(busy(1)).isTrue();
+
+        advance(3);
+        assertThat(busy(1)).isFalse();
+    }
+
+    @Test
+    void staleEntryDoesNotReleaseAHumanInALaterInteraction() {
+        engine.begin(world, slot(1), slot(2), 2);
+        world.remove(1L);
+        world.put(human(1));
+        engine.begin(world, slot(1), slot(3), 5);
+
+        advance(2);
+        assertThat(busy(1)).isTrue();
+        assertThat(engine.getActive()).isEqualTo(1);
+
+        advance(3);
+        assertThat(busy(1)).isFalse();
+        assertThat(engine.getActive()).isZero();
+    }
+
+    @Test
+    void entryOfARemovedHumanReleasesNobody() {
+        engine.begin(world, slot(1), slot(2), 2);
+        world.remove(1L);
+
+        advance(2);
+        assertThat(world.slotOf(1L)).isEqualTo(-1);
+        assertThat(busy(2)).isFalse();
+        assertThat(engine.getActive()).isZero();
+    }
+
+    @Test
+    void requeuedInteractionsAreDrainedAgain() {
+        engine.begin(world, slot(1), slot(2), 1);
+        advance(1);
+        InteractionBatch finished = new InteractionBatch();
+        engine.drainFinished(finished);
+
+        engine.requeueFinished(finished);
+        InteractionBatch retried = new InteractionBatch();
+        engine.drainFinished(retried);
+        assertThat(retried.size()).isEqualTo(1);
+    }
+
+    private void advance(int ticks) {
+        synchronized (world) {
+            for (int i = 0; i < ticks; i++) {
+                engine.advance(world);
+            }
+        }
+    }
+
+    private int slot(long humanId) {
+        return world.slotOf(humanId);
+    }
+
+    private boolean busy(long humanId) {
+        return world.isBusy(slot(humanId));
+    }
+
+    private static Human human(long id) {
+        Human human = new Human();
+        human.setId(id);
+        human.setX(0.5);
+        human.setY(0.5);
+        return human;
+    }
+}
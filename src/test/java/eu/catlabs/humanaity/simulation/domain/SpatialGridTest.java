@@ -0,0 +1,144 @@
+package eu.catlabs.humanaity.simulation.domain;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SpatialGridTest {
+
+    private final SpatialGrid grid = new SpatialGrid(0.1, 4);
+
+    @Test
+    void insertedSlotsAreListedInTheirCell() {
+        grid.insert(0, 0.05, 0.05);
+        grid.insert(1, 0.07, 0.02);
+        grid.insert(2, 0.55, 0.55);
+
+        assertThat(cell(0, 0)).containsExactlyInAnyOrder(0, 1);
+        assertThat(cell(5, 5)).containsExactly(2);
+    }
+
+    @Test
+    void coordinatesOnTheUpperEdgeFallInTheLastCell() {
+        grid.insert(0, 1.0, 1.0);
+
+        assertThat(cell(grid.getCellsPerSide() - 1, grid.getCellsPerSide() - 1)).containsExactly(0);
+    }
+
+    @Test
+    void coordinatesOutsideTheCityAreClampedToTheBorderCells() {
+        grid.insert(0, -0.3, 0.5);
+        grid.insert(1, 0.5, 1.7);
+
+        assertThat(cell(0, 5)).containsExactly(0);
+        assertThat(cell(5, grid.getCellsPerSide() - 1)).containsExactly(1);
+    }
+
+    @Test
+    void aCellSizeNotDividingTheCityRoundsTheGridUp() {
+        SpatialGrid coarse = new SpatialGrid(0.3, 4);
+
+        assertThat(coarse.getCellsPerSide()).isEqualTo(4);
+        assertThat(coarse.column(0.95)).isEqualTo(3);
+        assertThat(coarse.row(1.0)).isEqualTo(3);
+    }
+
+    @Test
+    void moveChangesCellOnlyWhenCrossingABoundary() {
+        grid.insert(0, 0.05, 0.05);
+        grid.insert(1, 0.06, 0.06);
+
+        grid.move(0, 0.09, 0.01);
+        assertThat(cell(0, 0)).containsExactlyInAnyOrder(0, 1);
+
+        grid.move(0, 0.35, 0.05);
+        assertThat(cell(0, 0)).containsExactly(1);
+        assertThat(cell(3, 0)).containsExactly(0);
+    }
+
+    @Test
+    void removeUnlinksFromAnyPositionInTheCell() {
+        for (int slot = 0; slot < 3; slot++) {
+            grid.insert(slot, 0.05, 0.05);
+        }
+
+        grid.remove(1);
+        assertThat(cell(0, 0)).containsExactlyInAnyOrder(0, 2);
+        grid.remove(2);
+        grid.remove(0);
+        assertThat(cell(0, 0)).isEmpty();
+        grid.remove(0);
+        assertThat(cell(0, 0)).isEmpty();
+    }
+
+    @Test
+    void relocateKeepsTheCellUnderTheNewSlot() {
+        grid.insert(0, 0.05, 0.05);
+        grid.insert(1, 0.75, 0.25);
+
+        grid.remove(0);
+        grid.relocate(1, 0);
+        assertThat(cell(7, 2)).containsExactly(0);
+    }
+
+    @Test
+    void relocateFromTheMiddleOfACellKeepsItsNeighboursLinked() {
+        for (int slot = 0; slot < 3; slot++) {
+            grid.insert(slot, 0.45, 0.45);
+        }
+        grid.insert(3, 0.95, 0.95);
+
+        grid.remove(3);
+        grid.relocate(1, 3);
+        assertThat(cell(4, 4)).containsExactlyInAnyOrder(0, 2, 3);
+        assertThat(cell(9, 9)).isEmpty();
+
+        grid.move(3, 0.95, 0.95);
+        assertThat(cell(4, 4)).containsExactlyInAnyOrder(0, 2);
+        assertThat(cell(9, 9)).containsExactly(3);
+    }
+
+    @Test
+    void growsPastItsInitialCapacity() {
+        for (int slot = 0; slot < 100; slot++) {
+            grid.insert(slot, slot / 100.0, 0.5);
+        }
+
+        List<Integer> all = new ArrayList<>();
+        grid.query(new BoundingBox(0, 0, 1, 1), all::add);
+        assertThat(all).hasSize(100).doesNotHaveDuplicates();
+    }
+
+    @Test
+    void queryVisitsOnlyCellsOverlappingTheBox() {
+        grid.insert(0, 0.15, 0.15);
+        grid.insert(1, 0.25, 0.25);
+        grid.insert(2, 0.85, 0.85);
+
+        List<Integer> visited = new ArrayList<>();
+        grid.query(new BoundingBox(0.1, 0.1, 0.29, 0.29), visited::add);
+        assertThat(visited).containsExactlyInAnyOrder(0, 1);
+    }
+
+    @Test
+    void queryIncludesTheCellsOnTheUpperEdgeOfTheBox() {
+        grid.insert(0, 0.35, 0.35);
+        grid.insert(1, 1.0, 1.0);
+        grid.insert(2, 0.45, 0.05);
+
+        List<Integer> visited = new ArrayList<>();
+        grid.query(new BoundingBox(0.3, 0.3, 1, 1), visited::add);
+        assertThat(visited).containsExactlyInAnyOrder(0, 1);
+    }
+
+    private List<Integer> cell(int column, int row) {
+        List<Integer> slots = new ArrayList<>();
+        for (int slot = grid.first(column, row); slot != -1; slot = grid.next(slot)) {
+            slots.add(slot);
+        }
+        return slots;
+    }
+}
@@ -0,0 +1,91 @@
+package eu.catlabs.humanaity.simulation.infrastructure.scheduling;
+
+import eu.catlabs.humanaity.simulation.domain.TickStats;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CityTickTaskTest {
+
+    @Test
+    void tickOverItsBudgetCountsAsAnOverrunWithItsLag() {
+        CityTickTask task = new CityTickTask(1L, () -> sleep(5), 1, () -> { });
+        long deadline = System.nanoTime() - TimeUnit.MILLISECONDS.toNanos(3);
+
+        assertThat(task.tryStart()).isTrue();
+        task.run(deadline);
+
+        TickStats stats = task.getStats();
+        assertThat(stats.getTicks()).isEqualTo(1);
+        assertThat(stats.getOverruns()).isEqualTo(1);
+        assertThat(stats.getLastTickNanos()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(5));
+        assertThat(stats.getMaxLagNanos()).isGreaterThanOrEqualTo(TimeUnit.MILLISECONDS.toNanos(3));
+    }
+
+    @Test
+    void tickWithinItsBudgetIsNoOverrun() {
+        CityTickTask task = new CityTickTask(1L, () -> { }, 1000, () -> { });
+
+        task.tryStart();
+        task.run(System.nanoTime());
+        task.skip(2);
+
+        assertThat(task.getStats().getTicks()).isEqualTo(1);
+        assertThat(task.getStats().getOverruns()).isZero();
+        assertThat(task.getStats().getSkippedTicks()).isEqualTo(2);
+    }
+
+    @Test
+    void aFailingTickIsRecordedAndReleasesTheTask() {
+        CityTickTask task = new CityTickTask(1L, () -> {
+            throw new IllegalStateException("boom");
+        }, 1000, () -> { });
+
+        task.tryStart();
+        task.run(System.nanoTime());
+
+        assertThat(task.getStats().getTicks()).isEqualTo(1);
+        assertThat(task.getFailure()).isNull();
+        assertThat(task.tryStart()).isTrue();
+    }
+
+    @Test
+    void anErrorInATickStopsTheCityAndIsKeptAsItsFailure() {
+        AtomicInteger cancels = new AtomicInteger();
+        StackOverflowError error = new StackOverflowError();
+        CityTickTask task = new CityTickTask(1L, () -> {
+            throw error;
+        }, 1000, cancels::incrementAndGet);
+
+        task.tryStart();
+        assertThatThrownBy(() -> task.run(System.nanoTime())).isSameAs(error);
+
+        assertThat(task.getFailure()).isSameAs(error);
+        assertThat(task.isCancelled()).isTrue();
+        assertThat(cancels.get()).isEqualTo(1);
+        assertThat(task.tryStart()).isTrue();
+    }
+
+    @Test
+    void onlyOneRunIsClaimedUntilItEndsOrIsAbandoned() {
+        CityTickTask task = new CityTickTask(1L, () -> { }, 1000, () -> { });
+
+        assertThat(task.tryStart()).isTrue();
+        assertThat(task.tryStart()).isFalse();
+
+        task.abandon();
+        assertThat(task.tryStart()).isTrue();
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
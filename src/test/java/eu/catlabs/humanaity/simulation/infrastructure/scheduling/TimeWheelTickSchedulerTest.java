@@ -0,0 +1,82 @@
+package eu.catlabs.humanaity.simulation.infrastructure.scheduling;
+
+import eu.catlabs.humanaity.simulation.domain.TickStats;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimeWheelTickSchedulerTest {
+
+    private final TimeWheelTickScheduler scheduler = new TimeWheelTickScheduler(2, 1);
+
+    @AfterEach
+    void shutdown() {
+        scheduler.shutdown();
+    }
+
+    @Test
+    void slowTicksAreSkippedRatherThanQueuedOrOverlapped() throws InterruptedException {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        TickHandle handle = scheduler.schedule(1L, 5, () -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            sleep(30);
+            inFlight.decrementAndGet();
+        });
+
+        TickStats stats = handle.getStats();
+        awaitTrue(() -> stats.getTicks() >= 3);
+        handle.cancel();
+
+        assertThat(stats.getOverruns()).isGreaterThanOrEqualTo(3);
+        assertThat(stats.getSkippedTicks()).isPositive();
+        assertThat(maxInFlight.get()).isEqualTo(1);
+    }
+
+    @Test
+    void aCityWhoseTickFailsKeepsTickingAlongsideTheOthers() throws InterruptedException {
+        TickHandle failing = scheduler.schedule(1L, 5, () -> {
+            throw new IllegalStateException("boom");
+        });
+        AtomicInteger ticks = new AtomicInteger();
+        TickHandle healthy = scheduler.schedule(2L, 5, ticks::incrementAndGet);
+
+        awaitTrue(() -> failing.getStats().getTicks() >= 3 && ticks.get() >= 3);
+        failing.cancel();
+        healthy.cancel();
+    }
+
+    @Test
+    void cancelledCityIsNoLongerTicked() throws InterruptedException {
+        AtomicInteger ticks = new AtomicInteger();
+        TickHandle handle = scheduler.schedule(1L, 5, ticks::incrementAndGet);
+        awaitTrue(() -> ticks.get() >= 1);
+
+        handle.cancel();
+        Thread.sleep(20);
+        int afterCancel = ticks.get();
+        Thread.sleep(50);
+
+        assertThat(ticks.get()).isEqualTo(afterCancel);
+    }
+
+    private static void awaitTrue(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertThat(System.currentTimeMillis()).as("condition met within 5 s").isLessThan(deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}